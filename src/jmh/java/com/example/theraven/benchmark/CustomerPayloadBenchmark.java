@@ -0,0 +1,81 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.entity.Customer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization and deserialization of a customer list in each wire format the API offers.
+ * Payload sizes, raw and gzipped, are printed once per trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerPayloadBenchmark {
+
+    private static final TypeReference<List<Customer>> CUSTOMERS = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1000"})
+    private int customers;
+
+    private ObjectMapper mapper;
+    private List<Customer> list;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "json" -> new JsonMapper();
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> throw new IllegalArgumentException(format);
+        };
+        long now = System.currentTimeMillis();
+        list = LongStream.rangeClosed(1, customers)
+                .mapToObj(id -> new Customer(id, now - id * 1000, now, "Customer " + id,
+                        "customer" + id + "@example.com", "+38050" + (1000000 + id), id % 10 != 0))
+                .toList();
+        payload = mapper.writeValueAsBytes(list);
+        System.out.printf("%n%s: %d customers in %d bytes, %d bytes gzipped%n",
+                format, customers, payload.length, gzippedSize(payload));
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return mapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public List<Customer> read() throws IOException {
+        return mapper.readValue(payload, CUSTOMERS);
+    }
+
+    private static int gzippedSize(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.entity.Customer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Jackson serialization cost of a single {@link Customer} and of customer lists of increasing size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerSerializationBenchmark {
+
+    private static final TypeReference<List<Customer>> CUSTOMER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"100", "10000"})
+    private int listSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Customer customer;
+    private List<Customer> customers;
+    private byte[] customersJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        customer = customer(1L);
+        customers = LongStream.rangeClosed(1, listSize).mapToObj(CustomerSerializationBenchmark::customer).toList();
+        customersJson = objectMapper.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public byte[] serializeCustomer() throws IOException {
+        return objectMapper.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return objectMapper.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public List<Customer> deserializeList() throws IOException {
+        return objectMapper.readValue(customersJson, CUSTOMER_LIST);
+    }
+
+    static Customer customer(long id) {
+        return new Customer(id, 1620000000000L, 1620000000000L, "Customer " + id, "customer" + id + "@example.com",
+                "+123456789", true);
+    }
+}
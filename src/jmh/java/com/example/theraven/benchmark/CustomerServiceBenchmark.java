@@ -0,0 +1,114 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerChangeRepository;
+import com.example.theraven.repository.CustomerRepository;
+import com.example.theraven.service.CustomerBatchLoader;
+import com.example.theraven.service.CustomerChangeFeed;
+import com.example.theraven.service.CustomerEmailFilter;
+import com.example.theraven.service.CustomerServiceImpl;
+import com.example.theraven.service.CustomerStatsService;
+import com.example.theraven.service.CustomerValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Create, get, update, patch and delete through {@link CustomerServiceImpl} against an in-memory repository.
+ * Reports throughput and sampled latency percentiles; run with {@code -prof gc} for allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerServiceBenchmark {
+
+    private static final int PRELOADED_CUSTOMERS = 10_000;
+
+    private final AtomicLong emails = new AtomicLong();
+
+    private ValidatorFactory validatorFactory;
+    private CustomerBatchLoader customerBatchLoader;
+    private CustomerChangeFeed customerChangeFeed;
+    private CustomerEmailFilter customerEmailFilter;
+    private CustomerServiceImpl customerService;
+
+    @Setup
+    public void setUp() {
+        CustomerRepository customerRepository = InMemoryCustomerRepository.create();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        customerBatchLoader = new CustomerBatchLoader(customerRepository, 0, 100);
+        ObjectMapper objectMapper = new ObjectMapper();
+        CustomerChangeRepository customerChangeRepository = InMemoryCustomerChangeRepository.create();
+        // Not sharded: no shard routing data source
+        customerChangeFeed = new CustomerChangeFeed(customerChangeRepository, objectMapper,
+                new StaticListableBeanFactory().getBeanProvider(ShardRoutingDataSource.class), 500, 500, 15000, 1800000, 168);
+        customerEmailFilter = new CustomerEmailFilter(customerRepository, customerChangeRepository, objectMapper,
+                0.01, 1_000_000, 10_000, 1000, false);
+        customerEmailFilter.start();
+        while (!customerEmailFilter.isReady()) {
+            Thread.onSpinWait();
+        }
+        // Never started, so the counters are not flushed anywhere
+        CustomerStatsService customerStatsService = new CustomerStatsService(null, 1000, 60, 168, 30, 366);
+        customerService = new CustomerServiceImpl(customerRepository, null, objectMapper,
+                new CustomerValidator(validatorFactory.getValidator()), customerBatchLoader, customerChangeFeed, customerEmailFilter,
+                customerStatsService, new NoOpCacheManager(), null);
+        for (int i = 0; i < PRELOADED_CUSTOMERS; i++) {
+            customerService.createCustomer(newCustomer());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        customerBatchLoader.shutdown();
+        customerChangeFeed.shutdown();
+        customerEmailFilter.shutdown();
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Customer create() {
+        return customerService.createCustomer(newCustomer());
+    }
+
+    @Benchmark
+    public Customer getById() {
+        return customerService.getCustomerById(randomId());
+    }
+
+    @Benchmark
+    public Customer update() {
+        return customerService.updateCustomer(randomId(), newCustomer(), null);
+    }
+
+    @Benchmark
+    public Customer patch() {
+        return customerService.patchCustomer(randomId(), new CustomerPatch(null, null, "+123456789"), null);
+    }
+
+    @Benchmark
+    public Customer delete() {
+        return customerService.deleteCustomer(randomId(), null);
+    }
+
+    private Customer newCustomer() {
+        long n = emails.incrementAndGet();
+        return new Customer(null, null, null, "Customer " + n, "customer" + n + "@example.com", "+123456789", null);
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, PRELOADED_CUSTOMERS + 1);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.entity.Customer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation cost of the {@link Customer} constraints, for a valid customer and for one failing
+ * the {@code @Email} and {@code @Pattern} checks (violations build messages, which is the expensive part).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    private Customer valid;
+    private Customer invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        valid = new Customer(null, null, null, "John Doe", "john.doe@example.com", "+123456789", null);
+        invalid = new Customer(null, null, null, "John Doe", "john.doe@", "123456789", null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Customer>> validateValid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Customer>> validateInvalid() {
+        return validator.validate(invalid);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.repository.CustomerChangeRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the outbox behind {@link CustomerChangeRepository}.
+ * Recorded changes are numbered and dropped; the benchmarks only pay for building and serializing them.
+ */
+public final class InMemoryCustomerChangeRepository {
+
+    private InMemoryCustomerChangeRepository() {
+    }
+
+    public static CustomerChangeRepository create() {
+        AtomicLong sequence = new AtomicLong();
+        return (CustomerChangeRepository) Proxy.newProxyInstance(
+                CustomerChangeRepository.class.getClassLoader(),
+                new Class<?>[]{CustomerChangeRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        CustomerChange change = (CustomerChange) args[0];
+                        change.setId(sequence.incrementAndGet());
+                        yield change;
+                    }
+                    case "findAfter" -> List.of();
+                    case "currentSnapshotXmin" -> 0L;
+                    case "deleteCreatedBefore" -> 0;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryCustomerChangeRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.dto.CustomerEmail;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerRepository;
+import org.springframework.data.domain.Limit;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-process stand-in for the database behind {@link CustomerRepository}.
+ * Implements only the repository methods the service hot paths call, backed by a concurrent map,
+ * so benchmarks measure the service itself rather than network and Postgres.
+ */
+public final class InMemoryCustomerRepository {
+
+    private InMemoryCustomerRepository() {
+    }
+
+    public static CustomerRepository create() {
+        Map<Long, Customer> rows = new ConcurrentHashMap<>();
+        AtomicLong sequence = new AtomicLong();
+        return (CustomerRepository) Proxy.newProxyInstance(
+                CustomerRepository.class.getClassLoader(),
+                new Class<?>[]{CustomerRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save", "saveAndFlush" -> {
+                        Customer customer = (Customer) args[0];
+                        if (customer.getId() == null) {
+                            customer.setId(sequence.incrementAndGet());
+                        }
+                        rows.put(customer.getId(), copy(customer));
+                        yield customer;
+                    }
+                    case "findById" -> Optional.ofNullable(rows.get((Long) args[0])).map(InMemoryCustomerRepository::copy);
+                    case "findAllByIdIn" -> Arrays.stream((Long[]) args[0])
+                            .map(rows::get)
+                            .filter(Objects::nonNull)
+                            .map(InMemoryCustomerRepository::copy)
+                            .toList();
+                    case "updateDetails" -> update(rows, (Long) args[0], customer -> {
+                        customer.setFullName((String) args[1]);
+                        customer.setEmail((String) args[2]);
+                        customer.setPhone((String) args[3]);
+                        customer.setUpdated((Long) args[4]);
+                    });
+                    case "patchDetails" -> update(rows, (Long) args[0], customer -> {
+                        if (args[1] != null) {
+                            customer.setFullName((String) args[1]);
+                        }
+                        if (args[2] != null) {
+                            customer.setEmail((String) args[2]);
+                        }
+                        if (args[3] != null) {
+                            customer.setPhone((String) args[3]);
+                        }
+                        customer.setUpdated((Long) args[4]);
+                    });
+                    case "deactivate" -> updateIf(rows, (Long) args[0], customer -> {
+                        if (!Boolean.TRUE.equals(customer.getIsActive())) {
+                            return false;
+                        }
+                        customer.setIsActive(false);
+                        customer.setUpdated((Long) args[1]);
+                        return true;
+                    });
+                    case "existsByEmail" -> rows.values().stream().anyMatch(customer -> customer.getEmail().equals(args[0]));
+                    case "findEmailsAfter" -> rows.values().stream()
+                            .filter(customer -> customer.getId() > (Long) args[0])
+                            .sorted(Comparator.comparing(Customer::getId))
+                            .limit(((Limit) args[1]).max())
+                            .map(customer -> new CustomerEmail(customer.getId(), customer.getEmail()))
+                            .toList();
+                    case "count" -> (long) rows.size();
+                    case "findAll" -> List.copyOf(rows.values());
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryCustomerRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Optional<Customer> update(Map<Long, Customer> rows, Long id, Consumer<Customer> change) {
+        return updateIf(rows, id, customer -> {
+            change.accept(customer);
+            return true;
+        });
+    }
+
+    /**
+     * Apply a change to a row; the change returns false to leave the row as it is, like an unmatched WHERE.
+     */
+    private static Optional<Customer> updateIf(Map<Long, Customer> rows, Long id, Predicate<Customer> change) {
+        boolean[] matched = new boolean[1];
+        Customer updated = rows.computeIfPresent(id, (key, current) -> {
+            Customer next = copy(current);
+            matched[0] = change.test(next);
+            return matched[0] ? next : current;
+        });
+        return Optional.ofNullable(matched[0] ? updated : null).map(InMemoryCustomerRepository::copy);
+    }
+
+    private static Customer copy(Customer customer) {
+        return new Customer(customer.getId(), customer.getCreated(), customer.getUpdated(), customer.getFullName(),
+                customer.getEmail(), customer.getPhone(), customer.getIsActive());
+    }
+}
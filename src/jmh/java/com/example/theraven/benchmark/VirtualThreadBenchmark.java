@@ -0,0 +1,112 @@
+package com.example.theraven.benchmark;
+
+import com.example.theraven.config.AdmissionControlDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Platform vs virtual threads serving N concurrent clients.
+ * Each simulated request blocks on downstream I/O and then runs one query on a pooled connection,
+ * guarded by {@link AdmissionControlDataSource} as in the {@code virtual} profile. Platform mode uses a
+ * fixed pool the size of Tomcat's default {@code server.tomcat.threads.max}; virtual mode uses one
+ * virtual thread per request. The score is the time to drain all clients; {@code rejected} counts
+ * requests shed by the admission guard.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+    private static final long IO_MILLIS = 50;
+    private static final long QUERY_MILLIS = 1;
+
+    @Param({"1000", "10000", "50000"})
+    private int clients;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private AdmissionControlDataSource dataSource;
+    private ExecutorService executor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public int completed;
+        public int rejected;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        dataSource = new AdmissionControlDataSource(new SleepingDataSource(), POOL_SIZE, 5000, 2000);
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void serveClients(Outcome outcome) throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> requests = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            requests.add(executor.submit(() -> {
+                try {
+                    Thread.sleep(IO_MILLIS);
+                    try (Connection connection = dataSource.getConnection()) {
+                        connection.isValid(0);
+                    }
+                } catch (Exception e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+        outcome.rejected += rejected.get();
+        outcome.completed += clients - rejected.get();
+    }
+
+    /**
+     * Stand-in for a JDBC pool whose connections take {@link #QUERY_MILLIS} per statement.
+     */
+    private static final class SleepingDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("isValid".equals(method.getName())) {
+                            Thread.sleep(QUERY_MILLIS);
+                            return true;
+                        }
+                        return null;
+                    });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return getConnection();
+        }
+    }
+}
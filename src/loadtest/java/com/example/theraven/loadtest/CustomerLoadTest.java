@@ -0,0 +1,240 @@
+package com.example.theraven.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Side-by-side HTTP load test of running instances of the customer API, e.g. the default (MVC) stack
+ * and the {@code reactive} profile:
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.args="--target mvc=http://localhost:8080 --target reactive=http://localhost:8081 --clients 2000"
+ * </pre>
+ * Every target gets the same workload in turn: {@code --clients} concurrent keep-alive clients, each
+ * sending a request, then idling for {@code --think-ms} (long-tail clients spend most of their time idle),
+ * for {@code --duration-s}. 90% of requests fetch one customer by ID, 10% fetch a page. While a target is
+ * under load its live threads and used heap are sampled from the actuator.
+ */
+public final class CustomerLoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final int clients;
+    private final long durationMillis;
+    private final long thinkMillis;
+
+    private CustomerLoadTest(int clients, long durationMillis, long thinkMillis) {
+        this.clients = clients;
+        this.durationMillis = durationMillis;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> targets = new LinkedHashMap<>();
+        int clients = 1000;
+        long durationSeconds = 30;
+        long thinkMillis = 100;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--target" -> targets.put(value.substring(0, value.indexOf('=')), value.substring(value.indexOf('=') + 1));
+                case "--clients" -> clients = Integer.parseInt(value);
+                case "--duration-s" -> durationSeconds = Long.parseLong(value);
+                case "--think-ms" -> thinkMillis = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (targets.isEmpty()) {
+            targets.put("mvc", "http://localhost:8080");
+        }
+        CustomerLoadTest loadTest = new CustomerLoadTest(clients, TimeUnit.SECONDS.toMillis(durationSeconds), thinkMillis);
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, String> target : targets.entrySet()) {
+            System.out.printf("Running %d clients against %s (%s) for %d s%n", clients, target.getKey(), target.getValue(), durationSeconds);
+            results.add(loadTest.run(target.getKey(), target.getValue()));
+        }
+        System.out.println();
+        System.out.printf("%-10s %8s %9s %7s %9s %8s %8s %8s %8s %12s %11s%n",
+                "target", "clients", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "peak threads", "peak heap MB");
+        for (Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+    private Result run(String name, String baseUrl) throws Exception {
+        long[] ids = sampleIds(baseUrl);
+        List<long[]> latencies = new ArrayList<>(clients);
+        AtomicLong errors = new AtomicLong();
+        ResourceSampler sampler = new ResourceSampler(baseUrl);
+        Thread samplerThread = Thread.ofVirtual().start(sampler);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                LatencyLog log = new LatencyLog();
+                synchronized (latencies) {
+                    latencies.add(null);
+                }
+                int slot = i;
+                executor.execute(() -> {
+                    runClient(baseUrl, ids, deadline, log, errors);
+                    synchronized (latencies) {
+                        latencies.set(slot, log.toArray());
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        samplerThread.interrupt();
+        samplerThread.join();
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(name, clients, all, errors.get(), seconds, sampler.peakThreads, sampler.peakHeapBytes);
+    }
+
+    private void runClient(String baseUrl, long[] ids, long deadline, LatencyLog log, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Spread the first requests over one think time so the clients do not arrive in lockstep
+        sleep(random.nextLong(thinkMillis + 1));
+        while (System.nanoTime() < deadline) {
+            String path = random.nextInt(10) == 0
+                    ? "/api/customers?limit=20"
+                    : "/api/customers/" + ids[random.nextInt(ids.length)];
+            long begin = System.nanoTime();
+            try {
+                HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .timeout(Duration.ofSeconds(30))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            log.add(System.nanoTime() - begin);
+            sleep(thinkMillis);
+        }
+    }
+
+    private long[] sampleIds(String baseUrl) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/customers?limit=1000")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        long[] ids = new long[0];
+        for (JsonNode item : MAPPER.readTree(response.body()).path("items")) {
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            ids[ids.length - 1] = item.path("id").asLong();
+        }
+        if (ids.length == 0) {
+            throw new IllegalStateException("No customers at " + baseUrl + " to load test with");
+        }
+        return ids;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Latencies of one client in nanoseconds; only ever touched by that client's thread.
+     */
+    private static final class LatencyLog {
+
+        private long[] values = new long[256];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Polls the target's actuator once a second and keeps the peak live thread count and used heap.
+     */
+    private final class ResourceSampler implements Runnable {
+
+        private final String baseUrl;
+        private volatile long peakThreads;
+        private volatile long peakHeapBytes;
+
+        ResourceSampler(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    peakThreads = Math.max(peakThreads, metric("jvm.threads.live"));
+                    peakHeapBytes = Math.max(peakHeapBytes, metric("jvm.memory.used?tag=area:heap"));
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    // the target is too busy to answer; try again on the next tick
+                }
+            }
+        }
+
+        private long metric(String name) throws IOException, InterruptedException {
+            HttpResponse<String> response = http.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return MAPPER.readTree(response.body()).path("measurements").path(0).path("value").asLong();
+        }
+    }
+
+    private record Result(String name, int clients, long[] sortedNanos, long errors, double seconds,
+                          long peakThreads, long peakHeapBytes) {
+
+        private double percentileMillis(double percentile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %8d %9d %7d %9.0f %8.1f %8.1f %8.1f %8.1f %12d %11d",
+                    name, clients, sortedNanos.length, errors, sortedNanos.length / seconds,
+                    percentileMillis(0.50), percentileMillis(0.95), percentileMillis(0.99), percentileMillis(1.0),
+                    peakThreads, peakHeapBytes / (1024 * 1024));
+        }
+    }
+}
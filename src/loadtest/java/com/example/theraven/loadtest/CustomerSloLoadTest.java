@@ -0,0 +1,544 @@
+package com.example.theraven.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproducible end-to-end load test with SLO checks. It starts the packaged application against a database
+ * stand-in, seeds customers and offers every scenario of {@code customer-slo.properties} in turn:
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.main=com.example.theraven.loadtest.CustomerSloLoadTest -Dloadtest.args="--set duration-s=120"
+ * </pre>
+ * The stand-in is an embedded PostgreSQL run from the binaries on the class path, so neither Docker nor a database
+ * server is needed; {@code --db-host host:port} (with {@code --db-name}, {@code --db-user}, {@code --db-password})
+ * runs against a scratch database instead. Other options: {@code --jar}, {@code --config} to read scenarios from a
+ * file and {@code --set key=value} to override one setting.
+ * <p>
+ * Load follows an open model: requests arrive at Poisson-distributed times at the scenario's rate whether or not
+ * earlier ones have completed, and latency is measured from the intended arrival time, so a stalling server shows in
+ * the percentiles instead of slowing the load down. The run exits with status 1, failing the build, when a scenario
+ * misses one of its SLOs.
+ */
+public final class CustomerSloLoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int SEED_BATCH_SIZE = 500;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String baseUrl;
+    private final int clients;
+    // Only used by the thread scheduling requests, so the request sequence follows from the seed
+    private final Random random;
+    // Emails must be new on every run, also against a database kept from an earlier one
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private long nextCustomer;
+    private long[] ids;
+    private String[] emails;
+
+    private CustomerSloLoadTest(String baseUrl, int clients, long seed) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of("target/TheRaven-0.0.1-SNAPSHOT.jar");
+        Path configFile = null;
+        Map<String, String> overrides = new LinkedHashMap<>();
+        String dbHost = null;
+        String dbName = "postgres";
+        String dbUser = "postgres";
+        String dbPassword = "";
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--jar" -> jar = Path.of(value);
+                case "--config" -> configFile = Path.of(value);
+                case "--set" -> overrides.put(value.substring(0, value.indexOf('=')), value.substring(value.indexOf('=') + 1));
+                case "--db-host" -> dbHost = value;
+                case "--db-name" -> dbName = value;
+                case "--db-user" -> dbUser = value;
+                case "--db-password" -> dbPassword = value;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Properties properties = new Properties();
+        try (InputStream in = configFile != null ? Files.newInputStream(configFile)
+                : CustomerSloLoadTest.class.getResourceAsStream("/customer-slo.properties")) {
+            properties.load(in);
+        }
+        properties.putAll(overrides);
+        Config config = new Config(properties);
+        List<Scenario> scenarios = Arrays.stream(config.get("scenarios").split(","))
+                .map(name -> Scenario.parse(name.trim(), config))
+                .toList();
+        long warmUpSeconds = config.getLong("warm-up-s");
+        long durationSeconds = config.getLong("duration-s");
+
+        List<Row> rows = new ArrayList<>();
+        List<String> violations = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        try (Database database = dbHost != null ? new Database(dbHost, dbName, dbUser, dbPassword, null) : Database.embedded();
+             Application application = Application.start(jar.toAbsolutePath(), database, config)) {
+            CustomerSloLoadTest loadTest = new CustomerSloLoadTest(application.baseUrl(), config.getInt("clients"),
+                    config.getLong("seed"));
+            loadTest.seed(config.getInt("customers"));
+            for (Scenario scenario : scenarios) {
+                System.out.printf("Running %s at %.0f req/s for %d s after %d s of warm-up%n",
+                        scenario.name(), scenario.rate(), durationSeconds, warmUpSeconds);
+                Recorder recorder = loadTest.run(scenario, TimeUnit.SECONDS.toNanos(warmUpSeconds),
+                        TimeUnit.SECONDS.toNanos(durationSeconds));
+                Row all = recorder.all(scenario.name(), durationSeconds);
+                rows.add(all);
+                rows.addAll(recorder.byOperation(scenario.name(), durationSeconds));
+                violations.addAll(scenario.check(all));
+                recorder.errorKinds().forEach((kind, count) -> errors.add(scenario.name() + " " + kind + ": " + count));
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-12s %-12s %9s %7s %8s %9s %8s %8s %8s %8s%n",
+                "scenario", "operation", "requests", "errors", "error %", "ok req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        rows.forEach(System.out::println);
+        System.out.println();
+        errors.forEach(error -> System.out.println("Errors " + error));
+        if (violations.isEmpty()) {
+            System.out.println("All SLOs met");
+        } else {
+            violations.forEach(violation -> System.out.println("SLO missed: " + violation));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Create the customers the scenarios read and update.
+     */
+    private void seed(int customers) throws IOException, InterruptedException {
+        System.out.printf("Seeding %d customers%n", customers);
+        ids = new long[customers];
+        emails = new String[customers];
+        for (int from = 0; from < customers; from += SEED_BATCH_SIZE) {
+            int size = Math.min(SEED_BATCH_SIZE, customers - from);
+            ArrayNode batch = MAPPER.createArrayNode();
+            for (int i = 0; i < size; i++) {
+                emails[from + i] = email(nextCustomer);
+                batch.add(customer(nextCustomer, emails[from + i]));
+                nextCustomer++;
+            }
+            HttpResponse<String> response = http.send(post("/api/customers/batch", batch).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode result : MAPPER.readTree(response.body())) {
+                if (!"CREATED".equals(result.path("status").asText())) {
+                    throw new IllegalStateException("Seeding failed: " + result);
+                }
+                ids[from + result.path("index").asInt()] = result.path("id").asLong();
+            }
+        }
+    }
+
+    /**
+     * Offer a scenario for a warm-up period and then for the recorded duration, and wait for all its requests.
+     */
+    private Recorder run(Scenario scenario, long warmUpNanos, long durationNanos) {
+        Recorder recorder = new Recorder();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / scenario.rate();
+        long start = System.nanoTime();
+        long recordFrom = start + warmUpNanos;
+        long end = recordFrom + durationNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long arrival = start;
+            while (arrival < end) {
+                Operation operation = scenario.pick(random);
+                HttpRequest request = request(operation, scenario);
+                for (long wait = arrival - System.nanoTime(); wait > 0; wait = arrival - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                long intended = arrival;
+                boolean recorded = arrival >= recordFrom;
+                executor.execute(() -> send(request, operation, intended, recorded ? recorder : null));
+                // Exponential gaps make a Poisson arrival process
+                arrival += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            }
+        }
+        return recorder;
+    }
+
+    private void send(HttpRequest request, Operation operation, long intendedNanos, Recorder recorder) {
+        String error;
+        try {
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            error = status < 400 ? null : "HTTP " + status;
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (recorder != null) {
+            recorder.record(operation, System.nanoTime() - intendedNanos, error);
+        }
+    }
+
+    private HttpRequest request(Operation operation, Scenario scenario) {
+        HttpRequest.Builder request = switch (operation) {
+            case GET -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/customers/" + ids[random.nextInt(ids.length)]));
+            case LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/customers?limit=50"));
+            case UPDATE -> {
+                int index = random.nextInt(ids.length);
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/customers/" + ids[index]))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(customer(random.nextInt(1_000_000), emails[index]).toString()));
+            }
+            case BULK_CREATE -> {
+                ArrayNode batch = MAPPER.createArrayNode();
+                for (int i = 0; i < scenario.batchSize(); i++) {
+                    batch.add(customer(nextCustomer, email(nextCustomer)));
+                    nextCustomer++;
+                }
+                yield post("/api/customers/batch", batch);
+            }
+        };
+        // Spread over many clients like real traffic, each staying within the per-client rate limit
+        return request.header("X-Client-Id", "slo-client-" + random.nextInt(clients))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private HttpRequest.Builder post(String path, JsonNode body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private String email(long number) {
+        return "slo-" + runId + "-" + number + "@example.com";
+    }
+
+    private static ObjectNode customer(long number, String email) {
+        return MAPPER.createObjectNode()
+                .put("fullName", "Customer " + number)
+                .put("email", email)
+                .put("phone", "+38050" + (1_000_000 + number % 9_000_000));
+    }
+
+    private enum Operation {
+        GET("get"),
+        UPDATE("update"),
+        LIST("list"),
+        BULK_CREATE("bulk-create");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        static Operation of(String key) {
+            return Arrays.stream(values()).filter(operation -> operation.key.equals(key)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + key));
+        }
+    }
+
+    /**
+     * Service level objectives a scenario can set: a minimum for throughput, maximums for the others.
+     */
+    private enum Objective {
+        THROUGHPUT("throughput", true),
+        P50_MS("p50-ms", false),
+        P99_MS("p99-ms", false),
+        P999_MS("p999-ms", false),
+        ERROR_RATE("error-rate", false);
+
+        private final String key;
+        private final boolean minimum;
+
+        Objective(String key, boolean minimum) {
+            this.key = key;
+            this.minimum = minimum;
+        }
+
+        double measure(Row row) {
+            return switch (this) {
+                case THROUGHPUT -> row.throughput();
+                case P50_MS -> row.percentileMillis(0.50);
+                case P99_MS -> row.percentileMillis(0.99);
+                case P999_MS -> row.percentileMillis(0.999);
+                case ERROR_RATE -> row.errorRate();
+            };
+        }
+    }
+
+    /**
+     * Offered load and objectives of one scenario.
+     *
+     * @param rate      Mean arrival rate in requests per second
+     * @param mix       Weight of every operation
+     * @param batchSize Customers per bulk-create request
+     * @param slos      Limit of every objective the scenario sets
+     */
+    private record Scenario(String name, double rate, Map<Operation, Integer> mix, int batchSize,
+                            Map<Objective, Double> slos) {
+
+        static Scenario parse(String name, Config config) {
+            String prefix = "scenario." + name + ".";
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (String entry : config.get(prefix + "mix").split(",")) {
+                String[] weight = entry.trim().split(":");
+                mix.put(Operation.of(weight[0]), Integer.parseInt(weight[1]));
+            }
+            Map<Objective, Double> slos = new EnumMap<>(Objective.class);
+            for (Objective objective : Objective.values()) {
+                String limit = config.get(prefix + "slo." + objective.key, null);
+                if (limit != null) {
+                    slos.put(objective, Double.parseDouble(limit));
+                }
+            }
+            return new Scenario(name, config.getDouble(prefix + "rate"), mix,
+                    Integer.parseInt(config.get(prefix + "batch-size", "100")), slos);
+        }
+
+        Operation pick(Random random) {
+            int point = random.nextInt(mix.values().stream().mapToInt(Integer::intValue).sum());
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                point -= entry.getValue();
+                if (point < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Empty mix");
+        }
+
+        List<String> check(Row all) {
+            List<String> violations = new ArrayList<>();
+            slos.forEach((objective, limit) -> {
+                double measured = objective.measure(all);
+                if (objective.minimum ? measured < limit : measured > limit) {
+                    violations.add(String.format("%s %s %.4g %s %.4g", name, objective.key, measured,
+                            objective.minimum ? "<" : ">", limit));
+                }
+            });
+            return violations;
+        }
+    }
+
+    /**
+     * Latencies and errors of the recorded requests of one scenario, by operation.
+     */
+    private static final class Recorder {
+
+        private final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        private final Map<String, Long> errorKinds = new TreeMap<>();
+
+        /**
+         * @param error Status or exception of a failed request, null if it succeeded
+         */
+        synchronized void record(Operation operation, long nanos, String error) {
+            long[] values = latencies.computeIfAbsent(operation, key -> new long[1024]);
+            int count = counts.getOrDefault(operation, 0);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                latencies.put(operation, values);
+            }
+            values[count] = nanos;
+            counts.put(operation, count + 1);
+            if (error != null) {
+                errors.merge(operation, 1L, Long::sum);
+                errorKinds.merge(operation.key + " " + error, 1L, Long::sum);
+            }
+        }
+
+        synchronized Map<String, Long> errorKinds() {
+            return new TreeMap<>(errorKinds);
+        }
+
+        synchronized Row all(String scenario, long seconds) {
+            long[] all = latencies.entrySet().stream()
+                    .flatMapToLong(entry -> Arrays.stream(entry.getValue(), 0, counts.get(entry.getKey())))
+                    .sorted()
+                    .toArray();
+            return new Row(scenario, "all", all, errors.values().stream().mapToLong(Long::longValue).sum(), seconds);
+        }
+
+        synchronized List<Row> byOperation(String scenario, long seconds) {
+            List<Row> rows = new ArrayList<>();
+            latencies.forEach((operation, values) -> {
+                long[] sorted = Arrays.copyOf(values, counts.get(operation));
+                Arrays.sort(sorted);
+                rows.add(new Row(scenario, operation.key, sorted, errors.getOrDefault(operation, 0L), seconds));
+            });
+            return rows;
+        }
+    }
+
+    private record Row(String scenario, String operation, long[] sortedNanos, long errors, long seconds) {
+
+        double throughput() {
+            return (sortedNanos.length - errors) / (double) seconds;
+        }
+
+        double errorRate() {
+            return sortedNanos.length == 0 ? 0 : errors / (double) sortedNanos.length;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %-12s %9d %7d %8.3f %9.1f %8.1f %8.1f %8.1f %8.1f",
+                    scenario, operation, sortedNanos.length, errors, errorRate() * 100, throughput(),
+                    percentileMillis(0.50), percentileMillis(0.99), percentileMillis(0.999),
+                    percentileMillis(1.0));
+        }
+    }
+
+    private record Config(Properties properties) {
+
+        String get(String key) {
+            String value = get(key, null);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing setting " + key);
+            }
+            return value;
+        }
+
+        String get(String key, String defaultValue) {
+            String value = properties.getProperty(key);
+            return value == null ? defaultValue : value.trim();
+        }
+
+        int getInt(String key) {
+            return Integer.parseInt(get(key));
+        }
+
+        long getLong(String key) {
+            return Long.parseLong(get(key));
+        }
+
+        double getDouble(String key) {
+            return Double.parseDouble(get(key));
+        }
+    }
+
+    /**
+     * Database the application runs against, with the embedded server when this test started one.
+     */
+    private record Database(String host, String name, String user, String password, EmbeddedPostgres server)
+            implements AutoCloseable {
+
+        static Database embedded() throws IOException {
+            System.out.println("Starting embedded PostgreSQL");
+            EmbeddedPostgres server = EmbeddedPostgres.builder().start();
+            return new Database("localhost:" + server.getPort(), "postgres", "postgres", "", server);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * The packaged application running in its own JVM, so it does not share CPU time and heap with the load.
+     */
+    private record Application(Process process, String baseUrl) implements AutoCloseable {
+
+        static Application start(Path jar, Database database, Config config) throws IOException, InterruptedException {
+            int port = config.getInt("app.port");
+            List<String> command = new ArrayList<>();
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+            command.addAll(arguments(config.get("app.jvm-args", "")));
+            command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port));
+            // The harness stands in for a proxy forwarding many clients, so their X-Client-Id headers are honoured
+            command.add("--theraven.limiter.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1");
+            command.addAll(arguments(config.get("app.args", "")));
+            Path log = jar.resolveSibling("slo-app.log");
+            ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile());
+            builder.environment().putAll(Map.of("DB_HOST", database.host(), "DB_NAME", database.name(),
+                    "DB_USERNAME", database.user(), "DB_PASSWORD", database.password()));
+            System.out.printf("Starting %s on port %d, logging to %s%n", jar.getFileName(), port, log);
+            Application application = new Application(builder.start(), "http://localhost:" + port);
+            try {
+                application.awaitReady(log);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                application.close();
+                throw e;
+            }
+            return application;
+        }
+
+        private void awaitReady(Path log) throws IOException, InterruptedException {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(3);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/customers?limit=1")).build(),
+                            HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(250);
+            }
+            throw new IllegalStateException("Application did not start within 3 minutes, see " + log);
+        }
+
+        private static List<String> arguments(String value) {
+            return value.isBlank() ? List.of() : List.of(value.trim().split("\\s+"));
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
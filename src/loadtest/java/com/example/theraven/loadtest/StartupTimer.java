@@ -0,0 +1,305 @@
+package com.example.theraven.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Time to first request of the packaged application in each startup mode:
+ * <pre>
+ * mvn -Paot,loadtest -DskipTests verify -Dloadtest.main=com.example.theraven.loadtest.StartupTimer -Dloadtest.args="--runs 5"
+ * </pre>
+ * Every variant starts the jar {@code --runs} times and measures from process start until {@code --url} first
+ * answers with a 2xx, next to the "Started in" time the application logs. The {@code serve} variants expect
+ * the schema to be migrated already ({@code java -jar ... --migrate}) and the {@code aot} ones an AOT-processed
+ * jar ({@code -Paot}). The {@code cds} variants run from the unpacked jar with an AppCDS archive, recorded once
+ * per variant by a training run that exits after the context refresh. Database settings are taken from the
+ * environment, as for the application itself.
+ */
+public final class StartupTimer {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    private static final String SERVE = "--spring.profiles.active=serve";
+    private static final String AOT = "-Dspring.aot.enabled=true";
+
+    private static final List<Variant> VARIANTS = List.of(
+            new Variant("jar", List.of(), List.of(), false),
+            new Variant("serve", List.of(), List.of(SERVE), false),
+            new Variant("cds", List.of(), List.of(SERVE), true),
+            new Variant("aot", List.of(AOT), List.of(SERVE), false),
+            new Variant("aot-cds", List.of(AOT), List.of(SERVE), true));
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private final Path jar;
+    private final Path workDirectory;
+    private final URI url;
+    private final long timeoutMillis;
+    private final String java = ProcessHandle.current().info().command().orElse("java");
+
+    private StartupTimer(Path jar, URI url, long timeoutMillis) {
+        this.jar = jar;
+        this.workDirectory = jar.resolveSibling("startup-timer");
+        this.url = url;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of("target/TheRaven-0.0.1-SNAPSHOT.jar");
+        List<String> names = VARIANTS.stream().map(Variant::name).toList();
+        int runs = 3;
+        String url = "http://localhost:8080/api/customers?limit=1";
+        long timeoutSeconds = 180;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--jar" -> jar = Path.of(value);
+                case "--variants" -> names = Arrays.asList(value.split(","));
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--url" -> url = value;
+                case "--timeout-s" -> timeoutSeconds = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        StartupTimer timer = new StartupTimer(jar.toAbsolutePath(), URI.create(url), TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        List<Result> results = new ArrayList<>();
+        for (String name : names) {
+            Variant variant = VARIANTS.stream().filter(v -> v.name().equals(name)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown variant " + name));
+            System.out.printf("Starting %s %d times%n", name, runs);
+            results.add(timer.measure(variant, runs));
+        }
+        System.out.println();
+        System.out.printf("%-10s %5s %13s %13s %13s %15s%n",
+                "variant", "runs", "min ms", "median ms", "max ms", "started in ms");
+        for (Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+    private Result measure(Variant variant, int runs) throws Exception {
+        List<String> command = variant.cds() ? cdsCommand(variant) : new ArrayList<>(List.of(java));
+        if (!variant.cds()) {
+            command.addAll(variant.jvmArgs());
+            command.addAll(List.of("-jar", jar.toString()));
+            command.addAll(variant.appArgs());
+        }
+        long[] firstRequestMillis = new long[runs];
+        long[] startedMillis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            Start start = start(command);
+            firstRequestMillis[run] = start.firstRequestMillis();
+            startedMillis[run] = start.startedMillis();
+            System.out.printf("  run %d: first request after %d ms, started in %d ms%n",
+                    run + 1, start.firstRequestMillis(), start.startedMillis());
+        }
+        Arrays.sort(firstRequestMillis);
+        return new Result(variant.name(), firstRequestMillis, Arrays.stream(startedMillis).sorted().toArray());
+    }
+
+    /**
+     * Command running the unpacked jar with the variant's AppCDS archive, recording the archive first if needed.
+     * CDS only archives classes loaded from jar files, so the application classes are packed into a jar of their
+     * own, and the launcher is skipped: the main class runs straight from that class path.
+     */
+    private List<String> cdsCommand(Variant variant) throws Exception {
+        Path unpacked = unpack();
+        Path archive = workDirectory.resolve(variant.name() + ".jsa");
+        String classPath;
+        try (Stream<Path> libs = Files.list(unpacked.resolve("lib"))) {
+            classPath = Stream.concat(Stream.of(unpacked.resolve("application.jar")), libs.sorted())
+                    .map(Path::toString)
+                    .collect(Collectors.joining(File.pathSeparator));
+        }
+        List<String> command = new ArrayList<>(List.of(java));
+        command.addAll(variant.jvmArgs());
+        command.addAll(List.of("-cp", classPath, "com.example.theraven.TheRavenApplication"));
+        command.addAll(variant.appArgs());
+        if (!Files.exists(archive)) {
+            System.out.printf("  recording %s%n", archive);
+            List<String> training = new ArrayList<>(command);
+            training.addAll(1, List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"));
+            Process process = new ProcessBuilder(training).redirectErrorStream(true)
+                    .redirectOutput(workDirectory.resolve(variant.name() + "-training.log").toFile())
+                    .start();
+            if (process.waitFor() != 0 || !Files.exists(archive)) {
+                throw new IllegalStateException("Training run of " + variant.name() + " failed, see "
+                        + workDirectory.resolve(variant.name() + "-training.log"));
+            }
+        }
+        command.add(1, "-XX:SharedArchiveFile=" + archive);
+        return command;
+    }
+
+    /**
+     * Unpack the Boot jar once: its nested libraries into {@code lib}, its classes and resources into
+     * {@code application.jar}.
+     */
+    private Path unpack() throws IOException {
+        Path unpacked = workDirectory.resolve("unpacked");
+        Path applicationJar = unpacked.resolve("application.jar");
+        if (Files.exists(applicationJar) && Files.getLastModifiedTime(applicationJar).compareTo(Files.getLastModifiedTime(jar)) > 0) {
+            return unpacked;
+        }
+        // Archives recorded against an older build no longer match its class path
+        if (Files.exists(workDirectory)) {
+            try (Stream<Path> files = Files.walk(workDirectory)) {
+                for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+        Files.createDirectories(unpacked.resolve("lib"));
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(jar));
+             ZipOutputStream application = new ZipOutputStream(Files.newOutputStream(applicationJar))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                String name = entry.getName();
+                if (name.startsWith("BOOT-INF/lib/") && !entry.isDirectory()) {
+                    try (OutputStream out = Files.newOutputStream(unpacked.resolve("lib").resolve(name.substring("BOOT-INF/lib/".length())))) {
+                        in.transferTo(out);
+                    }
+                } else if (name.startsWith("BOOT-INF/classes/") && !name.equals("BOOT-INF/classes/")) {
+                    // Directory entries included: classpath scanning does not find packages without them
+                    application.putNextEntry(new ZipEntry(name.substring("BOOT-INF/classes/".length())));
+                    in.transferTo(application);
+                    application.closeEntry();
+                }
+            }
+        }
+        return unpacked;
+    }
+
+    private Start start(List<String> command) throws Exception {
+        long begin = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        StartedLogReader log = new StartedLogReader(process.getInputStream());
+        Thread.ofVirtual().start(log);
+        try {
+            long deadline = begin + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue()
+                            + " before serving requests:\n" + log.tail());
+                }
+                if (answers()) {
+                    long firstRequestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                    // The first request can be answered just before the startup line is logged
+                    long startedMillis = log.awaitStartedMillis();
+                    return new Start(firstRequestMillis, startedMillis);
+                }
+                Thread.sleep(20);
+            }
+            throw new IllegalStateException("No answer from " + url + " within " + timeoutMillis + " ms:\n" + log.tail());
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean answers() throws InterruptedException {
+        try {
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(url).timeout(Duration.ofSeconds(5)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2;
+        } catch (ConnectException e) {
+            return false;
+        } catch (IOException e) {
+            // accepting connections but not serving yet
+            return false;
+        }
+    }
+
+    /**
+     * Drains the application's output, keeping its last lines and the "Started in" time.
+     */
+    private static final class StartedLogReader implements Runnable {
+
+        private final InputStream output;
+        private final List<String> tail = new ArrayList<>();
+        private long startedMillis = -1;
+
+        StartedLogReader(InputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(output))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    Matcher matcher = STARTED.matcher(line);
+                    synchronized (this) {
+                        if (matcher.find()) {
+                            startedMillis = Math.round(Double.parseDouble(matcher.group(1)) * 1000);
+                            notifyAll();
+                        }
+                        tail.add(line);
+                        if (tail.size() > 20) {
+                            tail.remove(0);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // the process is gone
+            }
+        }
+
+        synchronized long awaitStartedMillis() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (startedMillis < 0 && System.currentTimeMillis() < deadline) {
+                wait(deadline - System.currentTimeMillis());
+            }
+            return startedMillis;
+        }
+
+        synchronized String tail() {
+            return String.join("\n", tail);
+        }
+    }
+
+    /**
+     * Startup mode: JVM options, application arguments and whether it runs with an AppCDS archive.
+     */
+    private record Variant(String name, List<String> jvmArgs, List<String> appArgs, boolean cds) {
+    }
+
+    private record Start(long firstRequestMillis, long startedMillis) {
+    }
+
+    private record Result(String name, long[] sortedFirstRequestMillis, long[] sortedStartedMillis) {
+
+        @Override
+        public String toString() {
+            int runs = sortedFirstRequestMillis.length;
+            return String.format("%-10s %5d %13d %13d %13d %15d",
+                    name, runs, sortedFirstRequestMillis[0], sortedFirstRequestMillis[runs / 2],
+                    sortedFirstRequestMillis[runs - 1], sortedStartedMillis[runs / 2]);
+        }
+    }
+}
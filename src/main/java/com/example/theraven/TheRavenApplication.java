@@ -1,13 +1,50 @@
 package com.example.theraven;
 
+import com.example.theraven.config.MigrationConfig;
+import com.example.theraven.config.RebalanceConfig;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.SpringProperties;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 @SpringBootApplication
 public class TheRavenApplication {
 
+    /**
+     * Argument that applies the database migrations and exits instead of serving, e.g. as a deploy step
+     * before starting instances with the {@code serve} profile.
+     */
+    public static final String MIGRATE = "--migrate";
+
+    /**
+     * Argument that spreads customers evenly over the configured shards and exits, e.g. after adding shards
+     * and migrating them. Instances keep serving while it runs.
+     */
+    public static final String REBALANCE = "--rebalance";
+
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(MIGRATE)) {
+            System.exit(runTask(MigrationConfig.class, MIGRATE, args, "--spring.liquibase.enabled=true"));
+        }
+        if (Arrays.asList(args).contains(REBALANCE)) {
+            System.exit(runTask(RebalanceConfig.class, REBALANCE, args, "--spring.liquibase.enabled=false"));
+        }
         SpringApplication.run(TheRavenApplication.class, args);
     }
 
+    private static int runTask(Class<?> context, String task, String[] args, String setting) {
+        // The AOT-generated initializer describes the serving context, not this one
+        SpringProperties.setProperty("spring.aot.enabled", "false");
+        String[] taskArgs = Stream.concat(
+                        Arrays.stream(args).filter(arg -> !task.equals(arg)),
+                        Stream.of(setting))
+                .toArray(String[]::new);
+        return SpringApplication.exit(new SpringApplicationBuilder(context)
+                .web(WebApplicationType.NONE)
+                .run(taskArgs));
+    }
 }
@@ -0,0 +1,81 @@
+package com.example.theraven.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free concurrency limit that adapts to observed latency (AIMD).
+ * A request slower than the latency target cuts the limit by the backoff ratio; a fast request while the
+ * limit is at least half used raises it by one. Requests already running during a cut do not cut it again,
+ * so a burst of slow responses counts as one congestion signal, like one loss per round trip in TCP.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxLatencyNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecreaseNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveConcurrencyLimit(ConcurrencyLimitProperties.Budget budget, double backoffRatio) {
+        this.minLimit = budget.getMinLimit();
+        this.maxLimit = budget.getMaxLimit();
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(budget.getMaxLatencyMs());
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(budget.getInitialLimit());
+        this.lastDecreaseNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Take a slot if the limit allows.
+     *
+     * @return Whether the request may proceed; if so, {@link #release(long)} must follow
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.get()) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Give back a slot and adjust the limit to the request's latency.
+     *
+     * @param startNanos {@link System#nanoTime()} when the request acquired its slot
+     */
+    public void release(long startNanos) {
+        long now = System.nanoTime();
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (now - startNanos > maxLatencyNanos) {
+            long lastDecrease = lastDecreaseNanos.get();
+            if (startNanos - lastDecrease > 0 && lastDecreaseNanos.compareAndSet(lastDecrease, now)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+            }
+        } else if (inFlightBefore * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.theraven.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process customer cache.
+ * Size, TTL and statistics are set through {@code spring.cache.caffeine.spec};
+ * {@code spring.cache.type=none} turns caching off without code changes.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String CUSTOMERS_CACHE = "customers";
+
+    /**
+     * Defer puts and evictions made inside a transaction until it commits, so a write that rolls back,
+     * also during flush or commit, never reaches the cache. Reads and writes outside a transaction are unchanged.
+     */
+    @Bean
+    static BeanPostProcessor transactionAwareCacheManager() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof CacheManager cacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)
+                        ? new TransactionAwareCacheManagerProxy(cacheManager)
+                        : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.theraven.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets, kept as one theoretical arrival time per client (GCRA) and updated with a
+ * single compare-and-set. Idle clients are forgotten once their bucket would be full again.
+ */
+public class ClientRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Cache<String, AtomicLong> arrivals;
+    private final LongAdder rejected = new LongAdder();
+
+    public ClientRateLimiter(double ratePerSecond, int burst) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.arrivals = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(Math.max(burstNanos, TimeUnit.SECONDS.toNanos(1))))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Take a token from the client's bucket.
+     *
+     * @param client Client key
+     * @return 0 if the request may proceed, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(String client) {
+        long now = System.nanoTime();
+        AtomicLong arrival = arrivals.get(client, key -> new AtomicLong(now - burstNanos));
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now - burstNanos) + intervalNanos;
+            long wait = next - now;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
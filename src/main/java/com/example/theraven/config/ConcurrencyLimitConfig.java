@@ -0,0 +1,85 @@
+package com.example.theraven.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Puts adaptive concurrency limits and per-client rate limits in front of the customer API;
+ * turn them off with {@code theraven.limiter.enabled=false}.
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+@ConditionalOnProperty(prefix = "theraven.limiter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimit readConcurrencyLimit(ConcurrencyLimitProperties properties) {
+        return new AdaptiveConcurrencyLimit(properties.getReads(), properties.getBackoffRatio());
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimit writeConcurrencyLimit(ConcurrencyLimitProperties properties) {
+        return new AdaptiveConcurrencyLimit(properties.getWrites(), properties.getBackoffRatio());
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimit bulkConcurrencyLimit(ConcurrencyLimitProperties properties) {
+        return new AdaptiveConcurrencyLimit(properties.getBulk(), properties.getBackoffRatio());
+    }
+
+    @Bean
+    public ClientRateLimiter clientRateLimiter(ConcurrencyLimitProperties properties) {
+        return new ClientRateLimiter(properties.getClientRate(), properties.getClientBurst());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(AdaptiveConcurrencyLimit readConcurrencyLimit,
+                                                                                 AdaptiveConcurrencyLimit writeConcurrencyLimit,
+                                                                                 AdaptiveConcurrencyLimit bulkConcurrencyLimit,
+                                                                                 ClientRateLimiter clientRateLimiter,
+                                                                                 ConcurrencyLimitProperties properties) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(new ConcurrencyLimitFilter(
+                readConcurrencyLimit, writeConcurrencyLimit, bulkConcurrencyLimit, clientRateLimiter, properties));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(AdaptiveConcurrencyLimit readConcurrencyLimit,
+                                               AdaptiveConcurrencyLimit writeConcurrencyLimit,
+                                               AdaptiveConcurrencyLimit bulkConcurrencyLimit,
+                                               ClientRateLimiter clientRateLimiter) {
+        return registry -> {
+            bind(registry, "read", readConcurrencyLimit);
+            bind(registry, "write", writeConcurrencyLimit);
+            bind(registry, "bulk", bulkConcurrencyLimit);
+            FunctionCounter.builder("customer.limiter.throttled", clientRateLimiter, ClientRateLimiter::getRejected)
+                    .description("Requests rejected with 429 because the client exceeded its rate")
+                    .register(registry);
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String budget, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("customer.limiter.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("budget", budget)
+                .register(registry);
+        Gauge.builder("customer.limiter.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Requests currently holding a concurrency slot")
+                .tag("budget", budget)
+                .register(registry);
+        FunctionCounter.builder("customer.limiter.rejected", limit, AdaptiveConcurrencyLimit::getRejected)
+                .description("Requests rejected with 503 because the budget was at its limit")
+                .tag("budget", budget)
+                .register(registry);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.theraven.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds load before it reaches the controllers. A client over its rate gets 429; a request arriving while
+ * its budget (reads, writes or bulk writes) is at its adaptive limit gets 503. Both carry Retry-After and cost no more
+ * than a few atomic operations, so a rejected request never waits for a thread or a connection.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD");
+
+    private final AdaptiveConcurrencyLimit reads;
+    private final AdaptiveConcurrencyLimit writes;
+    private final AdaptiveConcurrencyLimit bulk;
+    private final ClientRateLimiter clients;
+    private final Set<String> unlimitedPaths;
+    private final Set<String> bulkPaths;
+    private final Set<String> trustedProxies;
+    private final long retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimit reads, AdaptiveConcurrencyLimit writes,
+                                  AdaptiveConcurrencyLimit bulk, ClientRateLimiter clients,
+                                  ConcurrencyLimitProperties properties) {
+        this.reads = reads;
+        this.writes = writes;
+        this.bulk = bulk;
+        this.clients = clients;
+        this.unlimitedPaths = Set.copyOf(properties.getUnlimitedPaths());
+        this.bulkPaths = Set.copyOf(properties.getBulkPaths());
+        this.trustedProxies = Set.copyOf(properties.getTrustedProxies());
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long waitNanos = clients.tryAcquire(clientOf(request));
+        if (waitNanos > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1));
+            return;
+        }
+        if (unlimitedPaths.contains(request.getRequestURI())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = READ_METHODS.contains(request.getMethod()) ? reads
+                : bulkPaths.contains(request.getRequestURI()) ? bulk
+                : writes;
+        if (!limit.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release(start);
+        }
+    }
+
+    /**
+     * Key of the client's rate bucket: the authenticated user, else the {@code X-Client-Id} header when a trusted
+     * proxy forwarded the request, else the remote address.
+     */
+    String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String address = request.getRemoteAddr();
+        if (trustedProxies.contains(address)) {
+            String client = request.getHeader(ReadYourWritesFilter.CLIENT_ID_HEADER);
+            if (client != null && !client.isBlank()) {
+                return "client:" + client;
+            }
+        }
+        return "address:" + address;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds)
+            throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.sendError(status.value());
+    }
+}
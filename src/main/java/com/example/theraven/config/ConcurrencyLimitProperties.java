@@ -0,0 +1,94 @@
+package com.example.theraven.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Adaptive concurrency limits and per-client rates for the customer API.
+ */
+@Data
+@ConfigurationProperties(prefix = "theraven.limiter")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Budget shared by GET and HEAD requests.
+     */
+    private Budget reads = new Budget(50, 4, 400, 250);
+
+    /**
+     * Budget shared by every other method, except on the bulk paths.
+     */
+    private Budget writes = new Budget(20, 2, 200, 500);
+
+    /**
+     * Budget of writes to the bulk paths, which hold their slot for seconds; kept apart so they neither take
+     * the slots of single-customer writes nor cut their limit.
+     */
+    private Budget bulk = new Budget(4, 1, 8, 10000);
+
+    /**
+     * Factor applied to a budget's limit when a request exceeds its latency target.
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Sustained requests per second allowed to one client.
+     */
+    private double clientRate = 100;
+
+    /**
+     * Requests a client may send at once on top of its sustained rate.
+     */
+    private int clientBurst = 200;
+
+    /**
+     * Addresses of reverse proxies trusted to name the client in the {@code X-Client-Id} header. Requests from
+     * other addresses are limited by their authenticated user or, failing that, their address, so a client cannot
+     * escape its rate by sending a new header value.
+     */
+    private List<String> trustedProxies = List.of();
+
+    /**
+     * Retry-After sent with 503 responses when a budget is exhausted.
+     */
+    private long retryAfterSeconds = 1;
+
+    /**
+     * Bulk write endpoints, limited by the bulk budget.
+     */
+    private List<String> bulkPaths = List.of("/api/customers/batch", "/api/customers/import");
+
+    /**
+     * Long-lived streaming endpoints, which are rate limited per client but hold no concurrency slot.
+     */
+    private List<String> unlimitedPaths = List.of("/api/customers/changes", "/api/customers/export");
+
+    @Data
+    public static class Budget {
+
+        private int initialLimit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        /**
+         * Latency above which a request is taken as a sign of overload.
+         */
+        private long maxLatencyMs;
+
+        public Budget() {
+        }
+
+        public Budget(int initialLimit, int minLimit, int maxLimit, long maxLatencyMs) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.theraven.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Wraps every connection pool of the application in an {@link AdmissionControlDataSource}
+ * when {@code theraven.datasource.admission.enabled=true} (on in the {@code virtual} profile).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "theraven.datasource.admission", name = "enabled", havingValue = "true")
+public class DataSourceAdmissionConfig {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor dataSourceAdmissionPostProcessor(Environment environment) {
+        int maxWaiting = environment.getProperty("theraven.datasource.admission.max-waiting", Integer.class, 1000);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Only connection pools are limited, each by its own size; routing wrappers are left alone
+                if (bean instanceof HikariDataSource pool) {
+                    // Hikari leaves the size unset (-1) until the pool starts, then applies its default
+                    int maxConnections = pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                    log.info("Limiting data source '{}' to {} connections with at most {} waiting callers",
+                            beanName, maxConnections, maxWaiting);
+                    return new AdmissionControlDataSource(pool, maxConnections, maxWaiting, pool.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder dataSourceAdmissionMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream()
+                .filter(AdmissionControlDataSource.class::isInstance)
+                .map(AdmissionControlDataSource.class::cast)
+                .forEach(dataSource -> {
+                    String pool = poolName(dataSource);
+                    Gauge.builder("datasource.admission.waiting", dataSource, AdmissionControlDataSource::getWaiting)
+                            .description("Callers queued for a connection permit")
+                            .tag("pool", pool)
+                            .register(registry);
+                    Gauge.builder("datasource.admission.available", dataSource, AdmissionControlDataSource::getAvailablePermits)
+                            .description("Connection permits currently free")
+                            .tag("pool", pool)
+                            .register(registry);
+                });
+    }
+
+    private static String poolName(AdmissionControlDataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class).getPoolName();
+        } catch (SQLException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.theraven.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolationException;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.IOException;
+
+/**
+ * Application metrics on top of Boot's HTTP, Hikari and Hibernate instrumentation:
+ * per-method timers for {@code @Timed} services, JDBC statements per request and validation failures.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new RequestStatementCounter());
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> requestStatementMetricsFilter(MeterRegistry meterRegistry) {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                RequestStatementCounter.start();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    int statements = RequestStatementCounter.stop();
+                    Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    DistributionSummary.builder("http.server.requests.statements")
+                            .description("JDBC statements prepared while serving one request")
+                            .tag("method", request.getMethod())
+                            .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)
+                            .record(statements);
+                }
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * Counts validation failures by field and constraint, then lets the regular resolvers build the response.
+     */
+    @Bean
+    public HandlerExceptionResolver validationFailureMetricsResolver(MeterRegistry meterRegistry) {
+        return new OrderedHandlerExceptionResolver() {
+            @Override
+            public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                                 Object handler, Exception ex) {
+                if (ex instanceof MethodArgumentNotValidException notValid) {
+                    notValid.getBindingResult().getFieldErrors().forEach(error -> count(meterRegistry, error));
+                } else if (ex instanceof HandlerMethodValidationException methodValidation) {
+                    methodValidation.getAllValidationResults().forEach(result ->
+                            count(meterRegistry, result.getMethodParameter().getParameterName(), "parameter"));
+                } else if (ex instanceof ConstraintViolationException violations) {
+                    violations.getConstraintViolations().forEach(violation ->
+                            count(meterRegistry, violation.getPropertyPath().toString(),
+                                    violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName()));
+                }
+                return null;
+            }
+        };
+    }
+
+    private static void count(MeterRegistry meterRegistry, FieldError error) {
+        count(meterRegistry, error.getField(), error.getCode());
+    }
+
+    private static void count(MeterRegistry meterRegistry, String field, String constraint) {
+        Counter.builder("validation.failures")
+                .description("Request validation failures")
+                .tag("field", String.valueOf(field))
+                .tag("constraint", String.valueOf(constraint))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private interface OrderedHandlerExceptionResolver extends HandlerExceptionResolver, Ordered {
+
+        @Override
+        default int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.theraven.config;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Context of a {@code --migrate} run: the data source and Liquibase, without JPA, the web stack or the
+ * background jobs. Every shard is migrated when customers are sharded. Deliberately not a component, so the
+ * serving application does not pick it up.
+ */
+@Import(ShardingConfig.class)
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, LiquibaseAutoConfiguration.class})
+public class MigrationConfig {
+}
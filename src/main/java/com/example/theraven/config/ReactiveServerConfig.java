@@ -0,0 +1,20 @@
+package com.example.theraven.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Serves the {@code reactive} profile from Netty's event loops. Tomcat is on the classpath for the
+ * servlet stack and would otherwise be picked for the reactive server too.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
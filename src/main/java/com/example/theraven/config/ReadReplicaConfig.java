@@ -0,0 +1,93 @@
+package com.example.theraven.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a read replica when {@code theraven.datasource.replica.enabled=true}.
+ * The application data source defers fetching a connection until the first statement, by which time
+ * the transaction is known to be read-only, and then takes it from {@link ReplicaRoutingDataSource}
+ * instead of the primary pool.
+ */
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+@ConditionalOnProperty(prefix = "theraven.datasource.replica", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("theraven.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(ReadReplicaProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+        dataSource.setPoolName("replica");
+        // Fail over to the primary quickly when the replica stops answering
+        dataSource.setConnectionTimeout(1000);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource readDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                   @Qualifier("replicaDataSource") DataSource replica,
+                                                   ReadReplicaProperties properties) {
+        return new ReplicaRoutingDataSource(primary, replica, properties);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaRoutingDataSource readDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(readDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReadReplicaProperties properties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(properties.getReadYourWritesMs()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder readReplicaMetrics(ReplicaRoutingDataSource readDataSource) {
+        return registry -> {
+            Gauge.builder("datasource.replica.lag", readDataSource, ReplicaRoutingDataSource::getLagMillis)
+                    .description("Last measured replication lag in milliseconds, -1 if unreachable")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("datasource.replica.available", readDataSource, ds -> ds.isReplicaAvailable() ? 1 : 0)
+                    .description("Whether read-only transactions currently use the replica")
+                    .register(registry);
+            FunctionCounter.builder("datasource.replica.fallbacks", readDataSource, ReplicaRoutingDataSource::getFallbacks)
+                    .description("Read-only connections served by the primary")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.theraven.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read replica used for read-only transactions. Pool settings go under
+ * {@code theraven.datasource.replica.hikari.*}, like {@code spring.datasource.hikari.*} for the primary.
+ */
+@Data
+@ConfigurationProperties(prefix = "theraven.datasource.replica")
+public class ReadReplicaProperties {
+
+    private boolean enabled;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * Replication lag above which reads go back to the primary.
+     */
+    private long maxLagMs = 1000;
+
+    /**
+     * How often the replica's availability and lag are checked.
+     */
+    private long checkIntervalMs = 1000;
+
+    /**
+     * How long after a write a client keeps reading from the primary.
+     */
+    private long readYourWritesMs = 5000;
+
+    /**
+     * Query returning the replica's lag in milliseconds; 0 when it is caught up or not a standby.
+     */
+    private String lagQuery = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS BIGINT) END";
+}
@@ -0,0 +1,57 @@
+package com.example.theraven.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Keeps a client on the primary for a short window after it writes, so it never reads an older
+ * version of its own change from a lagging replica. Clients are identified by the {@code X-Client-Id}
+ * header, or by their address when it is missing. Tracking is per instance.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(long windowMillis) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(windowMillis))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = clientOf(request);
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write || recentWriters.getIfPresent(client) != null) {
+            ReplicaRoutingDataSource.pinToPrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unpin();
+            if (write && response.getStatus() < 400) {
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        }
+    }
+
+    static String clientOf(HttpServletRequest request) {
+        String client = request.getHeader(CLIENT_ID_HEADER);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.theraven.config;
+
+import com.example.theraven.repository.CustomerShardDirectoryRepository;
+import com.example.theraven.service.CustomerShardRebalancer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+
+/**
+ * Context of a {@code --rebalance} run: the shards and the directory, without JPA, the web stack or the
+ * background jobs. Deliberately not a component, so the serving application does not pick it up.
+ */
+@Import(ShardingConfig.class)
+@ImportAutoConfiguration(DataSourceAutoConfiguration.class)
+public class RebalanceConfig {
+
+    @Bean
+    public ApplicationRunner rebalance(ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource,
+                                       ObjectProvider<ShardingProperties> properties,
+                                       @Qualifier("directoryDataSource") ObjectProvider<DataSource> directoryDataSource) {
+        return args -> {
+            ShardRoutingDataSource shards = shardRoutingDataSource.getIfAvailable();
+            if (shards == null) {
+                throw new IllegalStateException("--rebalance needs theraven.sharding.enabled=true and the shards to spread customers over");
+            }
+            new CustomerShardRebalancer(new CustomerShardDirectoryRepository(directoryDataSource.getObject()), shards,
+                    properties.getObject()).rebalance();
+        };
+    }
+}
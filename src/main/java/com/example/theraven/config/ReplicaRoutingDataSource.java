@@ -0,0 +1,130 @@
+package com.example.theraven.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of connections for read-only transactions.
+ * Hands out replica connections while the replica is reachable and within the allowed lag, and primary
+ * connections otherwise or when the current thread is pinned to the primary (read-your-writes).
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> PINNED = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReadReplicaProperties properties;
+
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-check").daemon().factory());
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    private volatile boolean available;
+    private volatile long lagMillis = -1;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadReplicaProperties properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+        checker.scheduleWithFixedDelay(this::refreshReplicaStatus, 0, properties.getCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Route read-only transactions of the current thread to the primary until {@link #unpin()}.
+     */
+    public static void pinToPrimary() {
+        PINNED.set(true);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(target -> target.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        if (available && !isPinnedToPrimary()) {
+            try {
+                return opener.open(replica);
+            } catch (SQLException e) {
+                log.warn("Replica unavailable, reading from the primary: {}", e.getMessage());
+                available = false;
+            }
+        }
+        fallbacks.incrementAndGet();
+        return opener.open(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+
+        Connection open(DataSource target) throws SQLException;
+    }
+
+    /**
+     * Re-check whether the replica is reachable and within the allowed lag. Runs periodically.
+     */
+    public void refreshReplicaStatus() {
+        boolean wasAvailable = available;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+            long lag = resultSet.next() && resultSet.getObject(1) != null ? resultSet.getLong(1) : Long.MAX_VALUE;
+            lagMillis = lag;
+            available = lag <= properties.getMaxLagMs();
+        } catch (SQLException | RuntimeException e) {
+            lagMillis = -1;
+            available = false;
+        }
+        if (wasAvailable != available) {
+            log.info("Replica {} for reads (lag {} ms)", available ? "enabled" : "disabled", lagMillis);
+        }
+    }
+
+    public boolean isReplicaAvailable() {
+        return available;
+    }
+
+    /**
+     * Last measured replication lag in milliseconds, or -1 if the replica could not be reached.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Read-only connections served by the primary instead of the replica.
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+    }
+}
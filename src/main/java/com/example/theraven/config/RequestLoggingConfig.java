@@ -0,0 +1,25 @@
+package com.example.theraven.config;
+
+import com.example.theraven.logging.RequestLoggingFilter;
+import com.example.theraven.logging.RequestLoggingProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the sampled request log; turn it off with {@code theraven.logging.requests.enabled=false}.
+ */
+@Configuration
+@EnableConfigurationProperties(RequestLoggingProperties.class)
+@ConditionalOnProperty(prefix = "theraven.logging.requests", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestLoggingConfig {
+
+    @Bean
+    public FilterRegistrationBean<RequestLoggingFilter> requestLoggingFilter(RequestLoggingProperties properties) {
+        FilterRegistrationBean<RequestLoggingFilter> registration = new FilterRegistrationBean<>(new RequestLoggingFilter(properties));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
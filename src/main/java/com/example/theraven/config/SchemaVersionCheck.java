@@ -0,0 +1,101 @@
+package com.example.theraven.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.yaml.snakeyaml.Yaml;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Startup check of the {@code serve} profile, which leaves migrations to a separate {@code --migrate} run:
+ * every changelog included by the Liquibase master changelog must have been applied, otherwise startup fails.
+ * One query against {@code databasechangelog} instead of initializing Liquibase, on every shard when customers
+ * are sharded. Changelogs whose changesets all belong to contexts that are not active are not expected.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "theraven.schema", name = "verify", havingValue = "true")
+public class SchemaVersionCheck {
+
+    public SchemaVersionCheck(DataSource dataSource,
+                              ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource,
+                              ResourceLoader resourceLoader,
+                              @Value("${spring.liquibase.change-log}") String changeLog,
+                              @Value("${spring.liquibase.contexts:}") String contexts) throws IOException {
+        Set<String> activeContexts = StringUtils.commaDelimitedListToSet(contexts);
+        List<String> expected = new ArrayList<>();
+        for (String file : includedFiles(resourceLoader, changeLog)) {
+            if (activeContexts.isEmpty() || runsIn(resourceLoader, file, activeContexts)) {
+                expected.add(file);
+            }
+        }
+        ShardRoutingDataSource shards = shardRoutingDataSource.getIfAvailable();
+        int shardCount = shards == null ? 1 : shards.getShardCount();
+        for (int shard = 0; shard < shardCount; shard++) {
+            Set<String> applied = new HashSet<>(new JdbcTemplate(shards == null ? dataSource : shards.getShard(shard))
+                    .queryForList("SELECT filename FROM databasechangelog", String.class));
+            List<String> pending = expected.stream().filter(file -> !applied.contains(file)).toList();
+            if (!pending.isEmpty()) {
+                throw new IllegalStateException("Database schema is behind the application, run with --migrate first."
+                        + (shards == null ? "" : " Shard " + shard + ".") + " Pending changelogs: " + pending);
+            }
+        }
+        log.info("Database schema is current: {} changelogs applied", expected.size());
+    }
+
+    /**
+     * Whether any changeset of a changelog runs with the given contexts. Changesets without a context always run,
+     * as do the statements of a plain SQL file.
+     */
+    private static boolean runsIn(ResourceLoader resourceLoader, String file, Set<String> activeContexts)
+            throws IOException {
+        try (InputStream in = resourceLoader.getResource(file).getInputStream()) {
+            List<String> changeSets = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .filter(line -> line.startsWith("--changeset "))
+                    .toList();
+            if (changeSets.isEmpty()) {
+                return true;
+            }
+            for (String changeSet : changeSets) {
+                String context = Arrays.stream(changeSet.split("\\s+"))
+                        .filter(attribute -> attribute.startsWith("context:"))
+                        .map(attribute -> attribute.substring("context:".length()))
+                        .findFirst()
+                        .orElse(null);
+                if (context == null || StringUtils.commaDelimitedListToSet(context).stream()
+                        .anyMatch(activeContexts::contains)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> includedFiles(ResourceLoader resourceLoader, String changeLog) throws IOException {
+        try (InputStream in = resourceLoader.getResource(changeLog).getInputStream()) {
+            Map<String, List<Map<String, Map<String, String>>>> master = new Yaml().load(in);
+            return master.get("databaseChangeLog").stream()
+                    .map(entry -> entry.get("include"))
+                    .filter(Objects::nonNull)
+                    .map(include -> include.get("file"))
+                    .toList();
+        }
+    }
+}
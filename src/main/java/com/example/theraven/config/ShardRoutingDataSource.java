@@ -0,0 +1,83 @@
+package com.example.theraven.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections of the shard the current thread is bound to, shard 0 when it is not bound.
+ * Callers bind a shard around a unit of work with {@link #callOn}; the transaction started inside takes all
+ * its connections from that shard. Work that is not shard-aware, such as the background jobs, stays on shard 0.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * Run work with the current thread bound to a shard, restoring the previous binding afterwards.
+     */
+    public static <T> T callOn(int shard, Supplier<T> work) {
+        Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    public static void runOn(int shard, Runnable work) {
+        callOn(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static int currentShard() {
+        Integer shard = SHARD.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return shards.get(currentShard()).getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return shards.get(currentShard()).getConnection(username, password);
+    }
+
+    /**
+     * Close the pools of shards 1 and up, which are not beans of their own.
+     */
+    @Override
+    public void close() {
+        shards.stream().skip(1)
+                .filter(HikariDataSource.class::isInstance)
+                .forEach(shard -> ((HikariDataSource) shard).close());
+    }
+}
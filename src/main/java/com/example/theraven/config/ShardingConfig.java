@@ -0,0 +1,104 @@
+package com.example.theraven.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads customers over several databases when {@code theraven.sharding.enabled=true}.
+ * The application data source routes to the shard bound to the current thread (see {@link ShardRoutingDataSource})
+ * and defers fetching a connection until the first statement, so a shard can still be chosen after a transaction
+ * has started. Every shard gets the Liquibase migrations. Cannot be combined with the read replica.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(prefix = "theraven.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    /**
+     * Liquibase context of the changesets only sharded deployments run.
+     */
+    public static final String SHARDED_CONTEXT = "sharded";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource directoryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(@Qualifier("directoryDataSource") DataSource directory,
+                                                         ShardingProperties properties, Environment environment) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(directory);
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName("shard-" + shards.size());
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource,
+                                 @Value("${theraven.datasource.replica.enabled:false}") boolean replicaEnabled) {
+        if (replicaEnabled) {
+            throw new IllegalStateException("theraven.sharding.enabled cannot be combined with theraven.datasource.replica.enabled");
+        }
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Migrate shards 1 and up; Liquibase's own run migrates shard 0 through the application data source.
+     * Every shard needs the changesets of the {@code sharded} context.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.liquibase", name = "enabled", matchIfMissing = true)
+    public InitializingBean shardMigrations(ShardRoutingDataSource shardRoutingDataSource, ResourceLoader resourceLoader,
+                                            @Value("${spring.liquibase.change-log}") String changeLog,
+                                            @Value("${spring.liquibase.contexts:}") String contexts) {
+        if (!StringUtils.commaDelimitedListToSet(contexts).contains(SHARDED_CONTEXT)) {
+            throw new IllegalStateException("theraven.sharding.enabled needs spring.liquibase.contexts to include "
+                    + SHARDED_CONTEXT + ", see application-sharded.properties");
+        }
+        return () -> {
+            for (int shard = 1; shard < shardRoutingDataSource.getShardCount(); shard++) {
+                SpringLiquibase liquibase = new SpringLiquibase();
+                liquibase.setDataSource(shardRoutingDataSource.getShard(shard));
+                liquibase.setChangeLog(changeLog);
+                liquibase.setContexts(contexts);
+                liquibase.setResourceLoader(resourceLoader);
+                liquibase.afterPropertiesSet();
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.theraven.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Databases customers are spread over. Shard 0 is {@code spring.datasource} and also holds the directory;
+ * the shards listed here follow as 1, 2, ... and get pools configured like {@code spring.datasource.hikari.*}.
+ * Shards are only ever appended: their position is their number in the directory.
+ */
+@Data
+@ConfigurationProperties(prefix = "theraven.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * How often every instance re-reads which shard each bucket is on.
+     */
+    private long directoryRefreshMs = 1000;
+
+    /**
+     * How long an email claimed for a customer that never appeared on its shard keeps blocking others,
+     * e.g. after an instance died between claiming the email and committing the customer.
+     */
+    private long emailClaimTimeoutMs = 60000;
+
+    private Rebalance rebalance = new Rebalance();
+
+    @Data
+    public static class Shard {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+    }
+
+    @Data
+    public static class Rebalance {
+
+        /**
+         * Buckets moved together; writes to them are refused for the duration of one step.
+         */
+        private int bucketsPerStep = 32;
+
+        /**
+         * Rows copied per statement.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Wait after marking buckets as moving and after switching them to their new shard, so every instance
+         * has re-read the directory and finished its statements against the old state. Should exceed
+         * the directory refresh interval plus the longest customer transaction.
+         */
+        private long graceMs = 5000;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.theraven.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Startup tuning: beans from the packages in {@code theraven.startup.lazy-packages}, such as the OpenAPI
+ * documentation, are not needed to serve the API and are created on first use instead of at startup.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("theraven.startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+        return beanFactory -> {
+            if (packages.isEmpty()) {
+                return;
+            }
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String declaringClass = declaringClass(definition);
+                if (declaringClass != null && packages.stream().anyMatch(declaringClass::startsWith)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * Class of the bean, or the configuration class declaring its {@code @Bean} method.
+     */
+    private static String declaringClass(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getDeclaringClassName();
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -1,53 +1,302 @@
 package com.example.theraven.controller;
 
+import com.example.theraven.dto.ArchivedCustomerPage;
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerField;
+import com.example.theraven.dto.CustomerFieldsPage;
+import com.example.theraven.dto.CustomerImportError;
+import com.example.theraven.dto.CustomerImportJob;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.dto.CustomerStats;
+import com.example.theraven.dto.EmailAvailability;
+import com.example.theraven.entity.ArchivedCustomer;
 import com.example.theraven.entity.Customer;
-import com.example.theraven.service.CustomerServiceImpl;
+import com.example.theraven.service.CustomerArchiveService;
+import com.example.theraven.service.CustomerChangeFeed;
+import com.example.theraven.service.CustomerImportService;
+import com.example.theraven.service.CustomerStatsService;
+import com.example.theraven.service.interfaces.CustomerService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * REST Controller for managing customers.
  */
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/customers")
 @RequiredArgsConstructor
 public class CustomerController {
 
-    private final CustomerServiceImpl customerService;
+    private static final int MAX_IDS_PER_REQUEST = 1000;
+
+    private final CustomerService customerService;
+    private final CustomerChangeFeed customerChangeFeed;
+    private final CustomerImportService customerImportService;
+    private final CustomerArchiveService customerArchiveService;
+    private final CustomerStatsService customerStatsService;
 
     /**
-     * Retrieve all customers.
+     * Retrieve customers page by page using a keyset cursor.
      *
-     * @return List of customers
+     * @param cursor       Cursor from the previous page, omitted for the first page
+     * @param limit        Page size
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis)
+     * @return Page of customers with the cursor for the next page
      */
-    @Operation(summary = "Retrieve all customers")
+    @Operation(summary = "Retrieve customers page by page")
+    @ApiResponse(responseCode = "200", description = "Customers page returned")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
     @GetMapping
-    public List<Customer> getAllCustomers() {
-        log.info("Fetching all customers");
-        return customerService.getAllCustomers();
+    public CustomerPage getCustomers(@RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) Boolean isActive,
+                                     @RequestParam(required = false) Long updatedAfter) {
+        log.debug("Fetching customers page after cursor: {}", cursor);
+        return customerService.getCustomersPage(cursor, limit, isActive, updatedAfter);
     }
 
     /**
-     * Retrieve a customer by ID.
+     * Retrieve customers page by page with only the selected fields.
+     *
+     * @param fields       Comma-separated fields to return, e.g. {@code id,email}; the ID is always returned
+     * @param cursor       Cursor from the previous page, omitted for the first page
+     * @param limit        Page size
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis)
+     * @return Page of projected customers with the cursor for the next page
+     */
+    @Operation(summary = "Retrieve selected customer fields page by page")
+    @ApiResponse(responseCode = "200", description = "Customers page returned")
+    @ApiResponse(responseCode = "400", description = "Unknown field or invalid cursor")
+    @GetMapping(params = "fields")
+    public CustomerFieldsPage getCustomerFields(@RequestParam String fields,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestParam(required = false) Boolean isActive,
+                                                @RequestParam(required = false) Long updatedAfter) {
+        log.debug("Fetching {} of customers page after cursor: {}", fields, cursor);
+        return customerService.getCustomerFieldsPage(CustomerField.parse(fields), cursor, limit, isActive, updatedAfter);
+    }
+
+    /**
+     * Search customers by email, phone or name. Supplied criteria must all match.
+     * Results are ordered by email for an email prefix, by phone for a phone prefix and by ID otherwise.
+     *
+     * @param email       Exact email
+     * @param emailPrefix Start of the email
+     * @param phonePrefix Start of the phone number
+     * @param name        Case-insensitive part of the full name, at least 3 characters
+     * @param cursor      Cursor from the previous page, omitted for the first page
+     * @param limit       Page size
+     * @return Page of matching customers with the cursor for the next page
+     */
+    @Operation(summary = "Search customers by email, phone or name")
+    @ApiResponse(responseCode = "200", description = "Matching customers page returned")
+    @ApiResponse(responseCode = "400", description = "No search criteria, name too short or invalid cursor")
+    @GetMapping("/search")
+    public CustomerPage searchCustomers(@RequestParam(required = false) String email,
+                                        @RequestParam(required = false) String emailPrefix,
+                                        @RequestParam(required = false) String phonePrefix,
+                                        @RequestParam(required = false) String name,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer limit) {
+        log.debug("Searching customers after cursor: {}", cursor);
+        return customerService.searchCustomers(email, emailPrefix, phonePrefix, name, cursor, limit);
+    }
+
+    /**
+     * Retrieve several customers by ID in one call.
+     *
+     * @param ids Customer IDs, at most 1000
+     * @return Customers that exist, in request order
+     */
+    @Operation(summary = "Retrieve several customers by ID")
+    @ApiResponse(responseCode = "200", description = "Customers found")
+    @ApiResponse(responseCode = "400", description = "Too many IDs")
+    @GetMapping(params = "ids")
+    public List<Customer> getCustomersByIds(@RequestParam @Size(max = MAX_IDS_PER_REQUEST) List<Long> ids) {
+        log.debug("Fetching {} customers by ID", ids.size());
+        return customerService.getCustomersByIds(ids);
+    }
+
+    /**
+     * Retrieve selected fields of several customers by ID in one call.
+     *
+     * @param ids    Customer IDs, at most 1000
+     * @param fields Comma-separated fields to return; the ID is always returned
+     * @return Projected customers that exist, in request order
+     */
+    @Operation(summary = "Retrieve selected fields of several customers by ID")
+    @ApiResponse(responseCode = "200", description = "Customers found")
+    @ApiResponse(responseCode = "400", description = "Too many IDs or unknown field")
+    @GetMapping(params = {"ids", "fields"})
+    public List<Map<String, Object>> getCustomerFieldsByIds(@RequestParam @Size(max = MAX_IDS_PER_REQUEST) List<Long> ids,
+                                                            @RequestParam String fields) {
+        log.debug("Fetching {} of {} customers by ID", fields, ids.size());
+        return customerService.getCustomerFieldsByIds(CustomerField.parse(fields), ids);
+    }
+
+    /**
+     * Export all customers as newline-delimited JSON.
+     * The response is streamed while the table is read, one customer per line.
+     *
+     * @param response HTTP response the customers are written to
+     * @throws IOException If writing the response fails
+     */
+    @Operation(summary = "Export all customers as NDJSON")
+    @ApiResponse(responseCode = "200", description = "Customers streamed")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportCustomers(HttpServletResponse response) throws IOException {
+        log.debug("Exporting all customers");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        customerService.exportCustomers(response.getOutputStream());
+    }
+
+    /**
+     * Export the selected fields of all customers as newline-delimited JSON.
+     *
+     * @param fields   Comma-separated fields to export; the ID is always exported
+     * @param response HTTP response the customers are written to
+     * @throws IOException If writing the response fails
+     */
+    @Operation(summary = "Export selected customer fields as NDJSON")
+    @ApiResponse(responseCode = "200", description = "Customers streamed")
+    @ApiResponse(responseCode = "400", description = "Unknown field")
+    @GetMapping(value = "/export", params = "fields", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportCustomerFields(@RequestParam String fields, HttpServletResponse response) throws IOException {
+        log.debug("Exporting {} of all customers", fields);
+        Set<CustomerField> selected = CustomerField.parse(fields);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        customerService.exportCustomerFields(selected, response.getOutputStream());
+    }
+
+    /**
+     * Stream customer changes as server-sent events.
+     * Every create, update and delete is sent once, in commit order, with the change type as event name
+     * and the customer as data. A client reconnecting with Last-Event-ID resumes after that event.
+     *
+     * @param lastEventId ID of the last event received, omitted to receive only new changes
+     * @return Event stream of customer changes
+     */
+    @Operation(summary = "Stream customer changes")
+    @ApiResponse(responseCode = "200", description = "Change stream opened")
+    @ApiResponse(responseCode = "400", description = "Invalid Last-Event-ID")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.debug("Streaming customer changes after event: {}", lastEventId);
+        return customerChangeFeed.subscribe(lastEventId);
+    }
+
+    /**
+     * Check whether an email is free for a new customer.
+     *
+     * @param email Email to check
+     * @return The email and whether it is available
+     */
+    @Operation(summary = "Check whether an email is available")
+    @ApiResponse(responseCode = "200", description = "Availability returned")
+    @GetMapping("/email-available")
+    public EmailAvailability isEmailAvailable(@RequestParam String email) {
+        return new EmailAvailability(email, customerService.isEmailAvailable(email));
+    }
+
+    /**
+     * Retrieve customer totals by active flag and per-day counts of created customers and updates.
+     * Served from incrementally maintained counters, without scanning the customers.
+     *
+     * @param from First UTC day, by default 30 days before {@code to}
+     * @param to   Last UTC day, by default today
+     * @return Totals and one entry per day
+     */
+    @Operation(summary = "Retrieve customer statistics")
+    @ApiResponse(responseCode = "200", description = "Statistics returned")
+    @ApiResponse(responseCode = "400", description = "Invalid or too long date range")
+    @GetMapping("/stats")
+    public CustomerStats getStats(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.debug("Fetching customer stats from {} to {}", from, to);
+        return customerStatsService.getStats(from, to);
+    }
+
+    /**
+     * Retrieve archived customers page by page using a keyset cursor.
+     *
+     * @param cursor Cursor from the previous page, omitted for the first page
+     * @param limit  Page size
+     * @return Page of archived customers with the cursor for the next page
+     */
+    @Operation(summary = "Retrieve archived customers page by page")
+    @ApiResponse(responseCode = "200", description = "Archived customers page returned")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    @GetMapping("/archive")
+    public ArchivedCustomerPage getArchivedCustomers(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit) {
+        log.debug("Fetching archived customers page after cursor: {}", cursor);
+        return customerArchiveService.getArchivedCustomersPage(cursor, limit);
+    }
+
+    /**
+     * Retrieve an archived customer by ID.
      *
      * @param id Customer ID
-     * @return Customer details
+     * @return Archived customer details
+     */
+    @Operation(summary = "Retrieve an archived customer by ID")
+    @ApiResponse(responseCode = "200", description = "Archived customer found")
+    @ApiResponse(responseCode = "404", description = "Archived customer not found")
+    @GetMapping("/archive/{id}")
+    public ArchivedCustomer getArchivedCustomerById(@PathVariable Long id) {
+        log.debug("Fetching archived customer by ID: {}", id);
+        return customerArchiveService.getArchivedCustomer(id);
+    }
+
+    /**
+     * Retrieve a customer by ID.
+     * Answers 304 without a body when the client's If-None-Match tag is still current.
+     *
+     * @param id      Customer ID
+     * @param request Current request, used for the If-None-Match check
+     * @return Customer details with its ETag
      */
     @Operation(summary = "Retrieve a customer by ID")
     @ApiResponse(responseCode = "200", description = "Customer found")
+    @ApiResponse(responseCode = "304", description = "Customer not modified")
     @ApiResponse(responseCode = "404", description = "Customer not found")
     @GetMapping("/{id}")
-    public Customer getCustomerById(@PathVariable Long id) {
-        log.info("Fetching customer by ID: {}", id);
-        return customerService.getCustomerById(id);
+    public ResponseEntity<Customer> getCustomerById(@PathVariable Long id, WebRequest request) {
+        log.debug("Fetching customer by ID: {}", id);
+        Customer customer = customerService.getCustomerById(id);
+        String eTag = CustomerETag.of(customer);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(customer);
     }
 
     /**
@@ -59,10 +308,73 @@ public class CustomerController {
     @Operation(summary = "Create a new customer")
     @ApiResponse(responseCode = "201", description = "Customer created successfully")
     @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "409", description = "Email already taken")
     @PostMapping
-    public Customer createCustomer(@Valid @RequestBody Customer customer) {
-        log.info("Creating a new customer: {}", customer);
-        return customerService.createCustomer(customer);
+    public ResponseEntity<Customer> createCustomer(@Valid @RequestBody Customer customer) {
+        log.debug("Creating a new customer");
+        return withETag(customerService.createCustomer(customer));
+    }
+
+    /**
+     * Create many customers at once.
+     * Elements are validated individually, so one bad element does not reject the whole request.
+     *
+     * @param customers Customers to create
+     * @return Result for every element, in request order
+     */
+    @Operation(summary = "Create customers in bulk")
+    @ApiResponse(responseCode = "200", description = "Per-item results returned")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @PostMapping("/batch")
+    public List<CustomerBatchResult> createCustomers(@RequestBody List<Customer> customers) {
+        log.debug("Creating {} customers in bulk", customers.size());
+        return customerService.createCustomers(customers);
+    }
+
+    /**
+     * Import customers from a CSV file in the background.
+     * Rows are validated like single creates and upserted on email; poll the returned job for progress.
+     *
+     * @param file CSV file with a header row naming the fullName, email and optional phone columns
+     * @return Queued import job, with its URL in the Location header
+     * @throws IOException If the upload cannot be stored
+     */
+    @Operation(summary = "Import customers from CSV")
+    @ApiResponse(responseCode = "202", description = "Import job queued")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<CustomerImportJob> importCustomers(@RequestPart("file") MultipartFile file) throws IOException {
+        log.debug("Importing customers from {}", file.getOriginalFilename());
+        CustomerImportJob job = customerImportService.startImport(file);
+        return ResponseEntity.accepted().location(URI.create("/api/customers/import/" + job.getId())).body(job);
+    }
+
+    /**
+     * Retrieve the progress of a CSV import.
+     *
+     * @param jobId Import job ID
+     * @return Import job with its row counts
+     */
+    @Operation(summary = "Retrieve a customer import job")
+    @ApiResponse(responseCode = "200", description = "Import job found")
+    @ApiResponse(responseCode = "404", description = "Import job not found")
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<CustomerImportJob> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.of(customerImportService.getJob(jobId));
+    }
+
+    /**
+     * Retrieve the rows a CSV import rejected.
+     *
+     * @param jobId Import job ID
+     * @return Rejected rows with their validation errors
+     */
+    @Operation(summary = "Retrieve the errors of a customer import job")
+    @ApiResponse(responseCode = "200", description = "Rejected rows returned")
+    @ApiResponse(responseCode = "404", description = "Import job not found")
+    @GetMapping("/import/{jobId}/errors")
+    public ResponseEntity<List<CustomerImportError>> getImportErrors(@PathVariable String jobId) {
+        return ResponseEntity.of(customerImportService.getJob(jobId).map(CustomerImportJob::getErrors));
     }
 
     /**
@@ -70,30 +382,62 @@ public class CustomerController {
      *
      * @param id              Customer ID
      * @param customerDetails Updated customer details
-     * @return Updated customer details
+     * @param ifMatch         Optional ETag the customer must still have
+     * @return Updated customer details with its new ETag
      */
     @Operation(summary = "Update an existing customer")
     @ApiResponse(responseCode = "200", description = "Customer updated successfully")
     @ApiResponse(responseCode = "404", description = "Customer not found")
     @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "412", description = "Customer was modified since the given ETag")
     @PutMapping("/{id}")
-    public Customer updateCustomer(@PathVariable Long id, @Valid @RequestBody Customer customerDetails) {
-        log.info("Updating customer with ID: {} and details: {}", id, customerDetails);
-        return customerService.updateCustomer(id, customerDetails);
+    public ResponseEntity<Customer> updateCustomer(@PathVariable Long id,
+                                                   @Valid @RequestBody Customer customerDetails,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Updating customer with ID: {}", id);
+        return withETag(customerService.updateCustomer(id, customerDetails, CustomerETag.expectedUpdated(ifMatch, id)));
+    }
+
+    /**
+     * Partially update an existing customer.
+     *
+     * @param id      Customer ID
+     * @param patch   Fields to change, omitted fields are left as they are
+     * @param ifMatch Optional ETag the customer must still have
+     * @return Updated customer details with its new ETag
+     */
+    @Operation(summary = "Partially update an existing customer")
+    @ApiResponse(responseCode = "200", description = "Customer updated successfully")
+    @ApiResponse(responseCode = "404", description = "Customer not found")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "412", description = "Customer was modified since the given ETag")
+    @PatchMapping("/{id}")
+    public ResponseEntity<Customer> patchCustomer(@PathVariable Long id,
+                                                  @Valid @RequestBody CustomerPatch patch,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Patching customer with ID: {}", id);
+        return withETag(customerService.patchCustomer(id, patch, CustomerETag.expectedUpdated(ifMatch, id)));
     }
 
     /**
      * Delete a customer by ID.
      *
-     * @param id Customer ID
-     * @return Deleted customer details
+     * @param id      Customer ID
+     * @param ifMatch Optional ETag the customer must still have
+     * @return Deleted customer details with its new ETag
      */
     @Operation(summary = "Delete customer by ID")
     @ApiResponse(responseCode = "200", description = "Customer deleted successfully")
     @ApiResponse(responseCode = "404", description = "Customer not found")
+    @ApiResponse(responseCode = "412", description = "Customer was modified since the given ETag")
     @DeleteMapping("/{id}")
-    public Customer deleteCustomer(@PathVariable Long id) {
-        log.info("Deleting customer by ID: {}", id);
-        return customerService.deleteCustomer(id);
+    public ResponseEntity<Customer> deleteCustomer(@PathVariable Long id,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Deleting customer by ID: {}", id);
+        return withETag(customerService.deleteCustomer(id, CustomerETag.expectedUpdated(ifMatch, id)));
+    }
+
+    private static ResponseEntity<Customer> withETag(Customer customer) {
+        return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
     }
 }
@@ -0,0 +1,58 @@
+package com.example.theraven.controller;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.exception.CustomerVersionMismatchException;
+
+/**
+ * Strong entity tags for customers, built from the ID and the {@code updated} timestamp.
+ * Every write moves {@code updated} forward, so the tag changes whenever the row does.
+ */
+final class CustomerETag {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private CustomerETag() {
+    }
+
+    /**
+     * Build the quoted entity tag of a customer, e.g. {@code "42-1706100456024"}.
+     *
+     * @param customer Customer
+     * @return Entity tag
+     */
+    static String of(Customer customer) {
+        return "\"" + customer.getId() + "-" + customer.getUpdated() + "\"";
+    }
+
+    /**
+     * Resolve an If-Match header into the {@code updated} value the row must still have.
+     *
+     * @param ifMatch If-Match header value, may be null
+     * @param id      Customer ID the request targets
+     * @return Expected {@code updated} value, or null when no version check is requested
+     * @throws CustomerVersionMismatchException if no listed tag can match this customer
+     */
+    static Long expectedUpdated(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String prefix = id + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            // If-Match uses strong comparison, weak tags never match
+            if (tag.startsWith(WEAK_PREFIX) || tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+            String value = tag.substring(1, tag.length() - 1);
+            if (value.startsWith(prefix)) {
+                try {
+                    return Long.parseLong(value.substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    // not one of our tags, keep looking
+                }
+            }
+        }
+        throw new CustomerVersionMismatchException(id);
+    }
+}
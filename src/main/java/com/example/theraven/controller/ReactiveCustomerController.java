@@ -0,0 +1,210 @@
+package com.example.theraven.controller;
+
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.service.interfaces.ReactiveCustomerService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking REST Controller for managing customers, serving the same contract as
+ * {@link CustomerController} in the {@code reactive} profile.
+ */
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+public class ReactiveCustomerController {
+
+    private static final int MAX_IDS_PER_REQUEST = 1000;
+
+    private final ReactiveCustomerService customerService;
+
+    /**
+     * Retrieve customers page by page using a keyset cursor.
+     *
+     * @param cursor       Cursor from the previous page, omitted for the first page
+     * @param limit        Page size
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis)
+     * @return Page of customers with the cursor for the next page
+     */
+    @Operation(summary = "Retrieve customers page by page")
+    @ApiResponse(responseCode = "200", description = "Customers page returned")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    @GetMapping
+    public Mono<CustomerPage> getCustomers(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) Boolean isActive,
+                                           @RequestParam(required = false) Long updatedAfter) {
+        log.debug("Fetching customers page after cursor: {}", cursor);
+        return customerService.getCustomersPage(cursor, limit, isActive, updatedAfter);
+    }
+
+    /**
+     * Retrieve several customers by ID in one call.
+     *
+     * @param ids Customer IDs, at most 1000
+     * @return Customers that exist, in request order
+     */
+    @Operation(summary = "Retrieve several customers by ID")
+    @ApiResponse(responseCode = "200", description = "Customers found")
+    @ApiResponse(responseCode = "400", description = "Too many IDs")
+    @GetMapping(params = "ids")
+    public Flux<Customer> getCustomersByIds(@RequestParam @Size(max = MAX_IDS_PER_REQUEST) List<Long> ids) {
+        log.debug("Fetching {} customers by ID", ids.size());
+        return customerService.getCustomersByIds(ids);
+    }
+
+    /**
+     * Export all customers as newline-delimited JSON.
+     * Rows are read only as fast as the client consumes the response.
+     *
+     * @return Every customer, one per line
+     */
+    @Operation(summary = "Export all customers as NDJSON")
+    @ApiResponse(responseCode = "200", description = "Customers streamed")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Customer> exportCustomers() {
+        log.debug("Exporting all customers");
+        return customerService.streamCustomers();
+    }
+
+    /**
+     * Retrieve a customer by ID.
+     * Answers 304 without a body when the client's If-None-Match tag is still current.
+     *
+     * @param id       Customer ID
+     * @param exchange Current exchange, used for the If-None-Match check
+     * @return Customer details with its ETag
+     */
+    @Operation(summary = "Retrieve a customer by ID")
+    @ApiResponse(responseCode = "200", description = "Customer found")
+    @ApiResponse(responseCode = "304", description = "Customer not modified")
+    @ApiResponse(responseCode = "404", description = "Customer not found")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Customer>> getCustomerById(@PathVariable Long id, ServerWebExchange exchange) {
+        log.debug("Fetching customer by ID: {}", id);
+        return customerService.getCustomerById(id)
+                .mapNotNull(customer -> {
+                    String eTag = CustomerETag.of(customer);
+                    return exchange.checkNotModified(eTag) ? null : ResponseEntity.ok().eTag(eTag).body(customer);
+                });
+    }
+
+    /**
+     * Create a new customer.
+     *
+     * @param customer Customer details
+     * @return Created customer details
+     */
+    @Operation(summary = "Create a new customer")
+    @ApiResponse(responseCode = "201", description = "Customer created successfully")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @PostMapping
+    public Mono<ResponseEntity<Customer>> createCustomer(@Valid @RequestBody Customer customer) {
+        log.debug("Creating a new customer");
+        return customerService.createCustomer(customer).map(ReactiveCustomerController::withETag);
+    }
+
+    /**
+     * Create many customers at once.
+     * Elements are validated individually, so one bad element does not reject the whole request.
+     *
+     * @param customers Customers to create
+     * @return Result for every element, in request order
+     */
+    @Operation(summary = "Create customers in bulk")
+    @ApiResponse(responseCode = "200", description = "Per-item results returned")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @PostMapping("/batch")
+    public Mono<List<CustomerBatchResult>> createCustomers(@RequestBody List<Customer> customers) {
+        log.debug("Creating {} customers in bulk", customers.size());
+        return customerService.createCustomers(customers);
+    }
+
+    /**
+     * Update an existing customer.
+     *
+     * @param id              Customer ID
+     * @param customerDetails Updated customer details
+     * @param ifMatch         Optional ETag the customer must still have
+     * @return Updated customer details with its new ETag
+     */
+    @Operation(summary = "Update an existing customer")
+    @ApiResponse(responseCode = "200", description = "Customer updated successfully")
+    @ApiResponse(responseCode = "404", description = "Customer not found")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "412", description = "Customer was modified since the given ETag")
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Customer>> updateCustomer(@PathVariable Long id,
+                                                         @Valid @RequestBody Customer customerDetails,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Updating customer with ID: {}", id);
+        return customerService.updateCustomer(id, customerDetails, CustomerETag.expectedUpdated(ifMatch, id))
+                .map(ReactiveCustomerController::withETag);
+    }
+
+    /**
+     * Partially update an existing customer.
+     *
+     * @param id      Customer ID
+     * @param patch   Fields to change, omitted fields are left as they are
+     * @param ifMatch Optional ETag the customer must still have
+     * @return Updated customer details with its new ETag
+     */
+    @Operation(summary = "Partially update an existing customer")
+    @ApiResponse(responseCode = "200", description = "Customer updated successfully")
+    @ApiResponse(responseCode = "404", description = "Customer not found")
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "412", description = "Customer was modified since the given ETag")
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Customer>> patchCustomer(@PathVariable Long id,
+                                                        @Valid @RequestBody CustomerPatch patch,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Patching customer with ID: {}", id);
+        return customerService.patchCustomer(id, patch, CustomerETag.expectedUpdated(ifMatch, id))
+                .map(ReactiveCustomerController::withETag);
+    }
+
+    /**
+     * Delete a customer by ID.
+     *
+     * @param id      Customer ID
+     * @param ifMatch Optional ETag the customer must still have
+     * @return Deleted customer details with its new ETag
+     */
+    @Operation(summary = "Delete customer by ID")
+    @ApiResponse(responseCode = "200", description = "Customer deleted successfully")
+    @ApiResponse(responseCode = "404", description = "Customer not found")
+    @ApiResponse(responseCode = "412", description = "Customer was modified since the given ETag")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Customer>> deleteCustomer(@PathVariable Long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Deleting customer by ID: {}", id);
+        return customerService.deleteCustomer(id, CustomerETag.expectedUpdated(ifMatch, id))
+                .map(ReactiveCustomerController::withETag);
+    }
+
+    private static ResponseEntity<Customer> withETag(Customer customer) {
+        return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
+    }
+}
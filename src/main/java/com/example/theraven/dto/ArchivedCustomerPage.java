@@ -0,0 +1,23 @@
+package com.example.theraven.dto;
+
+import com.example.theraven.entity.ArchivedCustomer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of archived customers returned by keyset pagination.
+ * {@code next} is an opaque cursor for the following page, or {@code null} on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedCustomerPage {
+
+    private List<ArchivedCustomer> items;
+
+    private String next;
+
+}
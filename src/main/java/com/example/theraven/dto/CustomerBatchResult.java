@@ -0,0 +1,35 @@
+package com.example.theraven.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of one element of a bulk create request, reported at the element's index.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerBatchResult {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE
+    }
+
+    private int index;
+
+    private Status status;
+
+    private Long id;
+
+    private List<String> errors;
+
+    public static CustomerBatchResult duplicate(int index) {
+        return new CustomerBatchResult(index, Status.DUPLICATE, null, List.of("email: already exists"));
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.theraven.dto;
+
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.exception.InvalidLastEventIdException;
+
+/**
+ * Position in the customer change feed, sent to clients as the SSE event ID.
+ * Changes are ordered by the writing transaction first and the outbox row ID second.
+ *
+ * @param txId Transaction ID of the change
+ * @param id   Outbox row ID of the change
+ */
+public record CustomerChangePosition(long txId, long id) implements Comparable<CustomerChangePosition> {
+
+    /**
+     * Position of an outbox row.
+     *
+     * @param change Recorded change
+     * @return Position of the change
+     */
+    public static CustomerChangePosition of(CustomerChange change) {
+        return new CustomerChangePosition(change.getTxId(), change.getId());
+    }
+
+    /**
+     * Position just before every change of transaction {@code txId} and later ones.
+     *
+     * @param txId First transaction to include
+     * @return Position behind the transaction's changes
+     */
+    public static CustomerChangePosition before(long txId) {
+        return new CustomerChangePosition(txId - 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parse an event ID previously sent to the client.
+     *
+     * @param eventId Value of the Last-Event-ID header
+     * @return Position of that event
+     */
+    public static CustomerChangePosition parse(String eventId) {
+        int separator = eventId.indexOf('-');
+        try {
+            return new CustomerChangePosition(Long.parseLong(eventId.substring(0, separator)),
+                    Long.parseLong(eventId.substring(separator + 1)));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new InvalidLastEventIdException(eventId);
+        }
+    }
+
+    @Override
+    public int compareTo(CustomerChangePosition other) {
+        int byTx = Long.compare(txId, other.txId);
+        return byTx != 0 ? byTx : Long.compare(id, other.id);
+    }
+
+    @Override
+    public String toString() {
+        return txId + "-" + id;
+    }
+}
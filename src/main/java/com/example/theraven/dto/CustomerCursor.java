@@ -0,0 +1,46 @@
+package com.example.theraven.dto;
+
+import com.example.theraven.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque keyset cursor used by paginated endpoints.
+ * The cursor carries the last customer ID seen by the client.
+ */
+public final class CustomerCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private CustomerCursor() {
+    }
+
+    /**
+     * Encode the last seen customer ID as a cursor.
+     *
+     * @param lastId Last customer ID of the current page
+     * @return Opaque cursor string
+     */
+    public static String encode(Long lastId) {
+        return ENCODER.encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a cursor back to the last seen customer ID.
+     *
+     * @param cursor Opaque cursor string, may be {@code null} for the first page
+     * @return Last seen customer ID, or 0 for the first page
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(DECODER.decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
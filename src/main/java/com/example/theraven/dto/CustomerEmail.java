@@ -0,0 +1,10 @@
+package com.example.theraven.dto;
+
+/**
+ * ID and email of a customer.
+ *
+ * @param id    Customer ID
+ * @param email Customer email
+ */
+public record CustomerEmail(Long id, String email) {
+}
@@ -0,0 +1,65 @@
+package com.example.theraven.dto;
+
+import com.example.theraven.exception.InvalidFieldsException;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Customer fields a client can select with {@code ?fields=}, named as in the customer JSON.
+ * The ID is always selected, so projected customers can still be paged and matched to requests.
+ */
+public enum CustomerField {
+
+    ID("id", "id"),
+    CREATED("created", "created"),
+    UPDATED("updated", "updated"),
+    FULL_NAME("fullName", "full_name"),
+    EMAIL("email", "email"),
+    PHONE("phone", "phone"),
+    IS_ACTIVE("isActive", "is_active");
+
+    /**
+     * JSON property name.
+     */
+    private final String property;
+
+    /**
+     * Column in the {@code customer} table.
+     */
+    private final String column;
+
+    CustomerField(String property, String column) {
+        this.property = property;
+        this.column = column;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Parse a comma-separated field list.
+     *
+     * @param fields Value of the {@code fields} parameter, e.g. {@code id,email}
+     * @return Selected fields in declaration order, always including {@link #ID}
+     */
+    public static Set<CustomerField> parse(String fields) {
+        Set<CustomerField> selected = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                selected.add(Arrays.stream(values())
+                        .filter(field -> field.property.equals(trimmed))
+                        .findFirst()
+                        .orElseThrow(() -> new InvalidFieldsException(fields)));
+            }
+        }
+        return selected;
+    }
+}
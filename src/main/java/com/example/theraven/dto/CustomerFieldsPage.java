@@ -0,0 +1,23 @@
+package com.example.theraven.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of customers reduced to the fields selected by the client.
+ * {@code next} is an opaque cursor for the following page, or {@code null} on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerFieldsPage {
+
+    private List<Map<String, Object>> items;
+
+    private String next;
+
+}
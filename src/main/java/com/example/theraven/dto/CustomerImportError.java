@@ -0,0 +1,21 @@
+package com.example.theraven.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Validation errors of one rejected row of a CSV import; rows are numbered from 1, after the header.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerImportError {
+
+    private long row;
+
+    private List<String> errors;
+
+}
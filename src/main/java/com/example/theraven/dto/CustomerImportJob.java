@@ -0,0 +1,120 @@
+package com.example.theraven.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a CSV import. Counters are updated by the import while clients poll it.
+ * Rows superseded by a later row with the same email count as updated, as if applied one by one.
+ */
+public class CustomerImportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final int maxErrors;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Long startedAt;
+    private volatile Long finishedAt;
+    private volatile String failure;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsCreated = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final List<CustomerImportError> errors = new ArrayList<>();
+
+    public CustomerImportJob(String id, String fileName, int maxErrors) {
+        this.id = id;
+        this.fileName = fileName;
+        this.maxErrors = maxErrors;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getStartedAt() {
+        return startedAt;
+    }
+
+    public Long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsCreated() {
+        return rowsCreated.get();
+    }
+
+    public long getRowsUpdated() {
+        return rowsUpdated.get();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    /**
+     * Rejected rows with their errors, at most the configured number; {@link #getRowsRejected()} has the total.
+     */
+    @JsonIgnore
+    public synchronized List<CustomerImportError> getErrors() {
+        return List.copyOf(errors);
+    }
+
+    public void start() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    public void read(long rows) {
+        rowsRead.addAndGet(rows);
+    }
+
+    public void loaded(long created, long updated) {
+        rowsCreated.addAndGet(created);
+        rowsUpdated.addAndGet(updated);
+    }
+
+    public synchronized void rejected(List<CustomerImportError> rejectedRows) {
+        rowsRejected.addAndGet(rejectedRows.size());
+        errors.addAll(rejectedRows.subList(0, Math.max(0, Math.min(rejectedRows.size(), maxErrors - errors.size()))));
+    }
+
+    public void complete() {
+        finishedAt = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String reason) {
+        failure = reason;
+        finishedAt = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+}
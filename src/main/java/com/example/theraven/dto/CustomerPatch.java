@@ -0,0 +1,32 @@
+package com.example.theraven.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Partial customer update. Fields left {@code null} keep their current value.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerPatch {
+
+    @Size(min = 2, max = 50)
+    private String fullName;
+
+    @ToString.Exclude
+    @Email
+    @Size(min = 2, max = 100)
+    private String email;
+
+    @ToString.Exclude
+    @Pattern(regexp = "^\\+\\d{6,14}$")
+    @Size(max = 14)
+    private String phone;
+
+}
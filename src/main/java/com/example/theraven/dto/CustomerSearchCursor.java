@@ -0,0 +1,51 @@
+package com.example.theraven.dto;
+
+import com.example.theraven.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor of the customer search, carrying the last customer seen by the client.
+ * Searches ordered by a column other than ID also carry that column's value, the leading sort key.
+ * Without a key the encoding is the same as {@link CustomerCursor}.
+ *
+ * @param key Sort key of the last customer, or {@code null} when results are ordered by ID only
+ * @param id  Last customer ID
+ */
+public record CustomerSearchCursor(String key, long id) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * Encode the cursor.
+     *
+     * @return Opaque cursor string
+     */
+    public String encode() {
+        String value = key == null ? Long.toString(id) : id + ":" + key;
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously returned by a search.
+     *
+     * @param cursor Opaque cursor string, may be {@code null} for the first page
+     * @return Decoded cursor, or {@code null} for the first page
+     */
+    public static CustomerSearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            return separator < 0
+                    ? new CustomerSearchCursor(null, Long.parseLong(value))
+                    : new CustomerSearchCursor(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.theraven.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Customer counts for dashboards. Totals cover the customers table; archived customers are not included.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerStats {
+
+    private long total;
+
+    private long active;
+
+    private long inactive;
+
+    private List<CustomerStatsDay> days;
+
+}
@@ -0,0 +1,23 @@
+package com.example.theraven.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Customers created and updates made on one UTC day.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerStatsDay {
+
+    private LocalDate day;
+
+    private long created;
+
+    private long updated;
+
+}
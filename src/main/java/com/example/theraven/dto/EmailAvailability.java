@@ -0,0 +1,19 @@
+package com.example.theraven.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Whether an email is free for a new customer.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailAvailability {
+
+    private String email;
+
+    private boolean available;
+
+}
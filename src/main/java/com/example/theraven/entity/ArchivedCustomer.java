@@ -0,0 +1,47 @@
+package com.example.theraven.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Inactive customer moved out of the hot {@code customer} table, kept read-only in {@code customer_archive}.
+ */
+@Entity
+@Immutable
+@Table(name = "customer_archive")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedCustomer {
+
+    @Id
+    private Long id;
+
+    @Column(name = "created")
+    private Long created;
+
+    @Column(name = "updated")
+    private Long updated;
+
+    @Column(name = "full_name")
+    private String fullName;
+
+    @ToString.Exclude
+    @Column(name = "email")
+    private String email;
+
+    @ToString.Exclude
+    @Column(name = "phone")
+    private String phone;
+
+    @Column(name = "is_active")
+    private Boolean isActive;
+
+    @Column(name = "archived")
+    private Long archived;
+
+}
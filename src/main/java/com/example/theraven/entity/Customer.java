@@ -2,11 +2,13 @@ package com.example.theraven.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Table(name = "customer")
@@ -16,7 +18,7 @@ import lombok.NoArgsConstructor;
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @CustomerId
     private Long id;
 
     @Column(name = "created")
@@ -25,16 +27,21 @@ public class Customer {
     @Column(name = "updated")
     private Long updated;
 
+    @NotBlank
     @Size(min = 2, max = 50)
     @Column(name = "full_name")
     private String fullName;
 
+    @ToString.Exclude
+    @NotBlank
     @Email
     @Size(min = 2, max = 100)
     @Column(name = "email", unique = true)
     private String email;
 
+    @ToString.Exclude
     @Pattern(regexp = "^\\+\\d{6,14}$")
+    @Size(max = 14)
     @Column(name = "phone")
     private String phone;
 
@@ -0,0 +1,46 @@
+package com.example.theraven.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Outbox row recording one change to a customer, written in the same transaction as the change.
+ * {@code txId} is filled in by the database with the writing transaction's ID and orders the feed.
+ */
+@Entity
+@Table(name = "customer_change")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, ARCHIVED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_change_seq")
+    @SequenceGenerator(name = "customer_change_seq", sequenceName = "customer_change_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "tx_id", insertable = false, updatable = false)
+    private Long txId;
+
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type")
+    private Type type;
+
+    @ToString.Exclude
+    @Column(name = "payload")
+    private String payload;
+
+    @Column(name = "created")
+    private Long created;
+
+}
@@ -0,0 +1,17 @@
+package com.example.theraven.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customer ID generated by {@link CustomerIdentifierGenerator}.
+ */
+@IdGeneratorType(CustomerIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface CustomerId {
+}
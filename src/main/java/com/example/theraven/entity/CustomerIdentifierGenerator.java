@@ -0,0 +1,41 @@
+package com.example.theraven.entity;
+
+import com.example.theraven.service.CustomerIdGenerator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+/**
+ * Assigns {@link CustomerId} IDs on persist from the application's {@link CustomerIdGenerator}, which registers
+ * itself in the Hibernate settings. At most one database round trip per 50 IDs, so inserts still go out in JDBC batches.
+ */
+public class CustomerIdentifierGenerator implements BeforeExecutionGenerator {
+
+    private final transient CustomerIdGenerator ids;
+
+    public CustomerIdentifierGenerator(CustomerId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object generator = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(CustomerIdGenerator.SETTING);
+        if (!(generator instanceof CustomerIdGenerator customerIdGenerator)) {
+            throw new IllegalStateException("Hibernate setting " + CustomerIdGenerator.SETTING + " is not set");
+        }
+        this.ids = customerIdGenerator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return ids.next(((Customer) owner).getEmail());
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
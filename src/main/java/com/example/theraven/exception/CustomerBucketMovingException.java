@@ -0,0 +1,12 @@
+package com.example.theraven.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CustomerBucketMovingException extends RuntimeException {
+
+    public CustomerBucketMovingException(int bucket) {
+        super("Customers of bucket " + bucket + " are being moved to another shard, retry shortly");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.theraven.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class CustomerVersionMismatchException extends RuntimeException {
+
+    public CustomerVersionMismatchException(Long id) {
+        super("Customer with ID " + id + " has been modified");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.theraven.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DuplicateEmailException extends RuntimeException {
+
+    public DuplicateEmailException(String email) {
+        super("A customer with this email already exists: " + email);
+    }
+}
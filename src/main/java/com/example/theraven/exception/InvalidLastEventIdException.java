@@ -0,0 +1,12 @@
+package com.example.theraven.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidLastEventIdException extends RuntimeException {
+
+    public InvalidLastEventIdException(String eventId) {
+        super("Invalid Last-Event-ID: " + eventId);
+    }
+}
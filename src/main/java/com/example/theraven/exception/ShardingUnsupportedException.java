@@ -0,0 +1,12 @@
+package com.example.theraven.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class ShardingUnsupportedException extends RuntimeException {
+
+    public ShardingUnsupportedException(String feature) {
+        super(feature + " is not available while customers are sharded");
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.theraven.logging;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.regex.Pattern;
+
+/**
+ * Logback {@code %maskedMsg} converter: the formatted message with email addresses and phone numbers masked,
+ * so customer PII never reaches the log sink even if a caller logs it by mistake.
+ */
+public class MaskingMessageConverter extends MessageConverter {
+
+    // The domain must end in a letter TLD, so object identities such as "PgConnection@6722e622" are left alone
+    private static final Pattern EMAIL = Pattern.compile(
+            "([A-Za-z0-9])[A-Za-z0-9._%+-]*@((?:[A-Za-z0-9-]+\\.)+[A-Za-z]{2,})");
+    private static final Pattern PHONE = Pattern.compile("\\+\\d{4,12}(\\d{2})");
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return mask(super.convert(event));
+    }
+
+    public static String mask(String message) {
+        if (message == null) {
+            return null;
+        }
+        String masked = message;
+        if (masked.indexOf('@') >= 0) {
+            masked = EMAIL.matcher(masked).replaceAll("$1***@$2");
+        }
+        if (masked.indexOf('+') >= 0) {
+            masked = PHONE.matcher(masked).replaceAll("+***$1");
+        }
+        return masked;
+    }
+}
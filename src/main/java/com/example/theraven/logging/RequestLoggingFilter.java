@@ -0,0 +1,69 @@
+package com.example.theraven.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one compact, structured line per sampled request: method, URI pattern, path ID, status and duration.
+ * Server errors are always logged; other requests are sampled at their endpoint's configured rate.
+ */
+@RequiredArgsConstructor
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger("theraven.requests");
+
+    private final RequestLoggingProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            // An exception escaping the chain becomes a 500 only after this filter returns
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            if (status >= 500 || sampled(request.getMethod(), uri)) {
+                LoggingEventBuilder event = log.atInfo()
+                        .addKeyValue("method", request.getMethod())
+                        .addKeyValue("uri", uri);
+                String id = pathId(request);
+                if (id != null) {
+                    event = event.addKeyValue("id", id);
+                }
+                event.addKeyValue("status", status)
+                        .addKeyValue("durationMs", (System.nanoTime() - start) / 1_000_000)
+                        .log("request");
+            }
+        }
+    }
+
+    private boolean sampled(String method, String uri) {
+        double rate = properties.rateFor(method, uri);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String pathId(HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables instanceof Map<?, ?> map ? ((Map<String, String>) map).get("id") : null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.theraven.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint sampling of request log lines.
+ * Keys of {@code rates} are {@code "<METHOD> <uri pattern>"}; in a properties file the space is escaped,
+ * e.g. {@code theraven.logging.requests.rates.[GET\ /api/customers/{id}]=0.001}.
+ */
+@Data
+@ConfigurationProperties(prefix = "theraven.logging.requests")
+public class RequestLoggingProperties {
+
+    private boolean enabled = true;
+
+    private double defaultRate = 1.0;
+
+    private Map<String, Double> rates = new HashMap<>();
+
+    public double rateFor(String method, String uri) {
+        return rates.getOrDefault(method + " " + uri, defaultRate);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.theraven.repository;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Moves customers into {@code customer_archive} and creates its monthly partitions.
+ */
+public interface CustomerArchiveMoveRepository {
+
+    /**
+     * Create the partition holding customers last updated in the given UTC month, unless it exists.
+     *
+     * @param month Month of the partition
+     */
+    void createPartition(YearMonth month);
+
+    /**
+     * Move up to {@code limit} archivable customers updated no later than {@code last} into the archive in one
+     * statement, recording an ARCHIVED change for each. Rows locked by a concurrent write are skipped.
+     *
+     * @param cutoff Customers must have been updated before this time (epoch millis)
+     * @param last   Latest update time of the chunk, whose partitions already exist
+     * @param limit  Maximum number of customers to move
+     * @param now    Archive time
+     * @return IDs of the archived customers
+     */
+    List<Long> archiveChunk(long cutoff, long last, int limit, long now);
+}
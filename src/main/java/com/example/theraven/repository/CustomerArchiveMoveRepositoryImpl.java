@@ -0,0 +1,57 @@
+package com.example.theraven.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CustomerArchiveMoveRepositoryImpl implements CustomerArchiveMoveRepository {
+
+    // Spring Data's query parser rejects data-modifying CTEs in @Query, so the move is issued from here
+    private static final String ARCHIVE_CHUNK = "WITH moved AS ("
+            + " DELETE FROM customer WHERE id IN ("
+            + " SELECT id" + CustomerArchiveRepository.ARCHIVABLE + " AND updated <= :last"
+            + " ORDER BY updated LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING *"
+            + "), archived AS ("
+            + " INSERT INTO customer_archive (id, created, updated, full_name, email, phone, is_active, archived)"
+            + " SELECT id, created, updated, full_name, email, phone, is_active, :now FROM moved"
+            + "), recorded AS ("
+            + " INSERT INTO customer_change (customer_id, change_type, payload, created)"
+            + " SELECT id, 'ARCHIVED', CAST(json_build_object('id', id, 'created', created, 'updated', updated,"
+            + " 'fullName', full_name, 'email', email, 'phone', phone, 'isActive', is_active) AS text), :now"
+            + " FROM moved"
+            + ")"
+            + " SELECT id FROM moved";
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void createPartition(YearMonth month) {
+        long from = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        long to = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        // DDL takes no bind parameters; the name and bounds are generated from the month, never from input
+        entityManager.createNativeQuery(String.format(
+                        "CREATE TABLE IF NOT EXISTS customer_archive_%d_%02d PARTITION OF customer_archive"
+                                + " FOR VALUES FROM (%d) TO (%d)",
+                        month.getYear(), month.getMonthValue(), from, to))
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Long> archiveChunk(long cutoff, long last, int limit, long now) {
+        List<Number> ids = entityManager.createNativeQuery(ARCHIVE_CHUNK)
+                .setParameter("cutoff", cutoff)
+                .setParameter("last", last)
+                .setParameter("limit", limit)
+                .setParameter("now", now)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.entity.ArchivedCustomer;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface CustomerArchiveRepository extends JpaRepository<ArchivedCustomer, Long>, CustomerArchiveMoveRepository {
+
+    /**
+     * Inactive customers last updated before the cutoff; served by the partial index on inactive rows.
+     */
+    String ARCHIVABLE = " FROM customer WHERE NOT is_active AND updated < :cutoff";
+
+    /**
+     * Update time range of the next chunk to archive.
+     */
+    interface ChunkRange {
+        Long getFirst();
+
+        Long getLast();
+    }
+
+    /**
+     * Range of {@code updated} covered by the next {@code limit} customers to archive, so their partitions
+     * can be created before the move. Both ends are null when there is nothing to archive.
+     */
+    @Query(value = "SELECT min(updated) AS first, max(updated) AS last FROM ("
+            + "SELECT updated" + ARCHIVABLE + " ORDER BY updated LIMIT :limit) chunk",
+            nativeQuery = true)
+    @Transactional(readOnly = true)
+    ChunkRange findNextChunkRange(@Param("cutoff") long cutoff, @Param("limit") int limit);
+
+    /**
+     * Keyset page of archived customers ordered by ID.
+     */
+    @Query("SELECT a FROM ArchivedCustomer a WHERE a.id > :afterId ORDER BY a.id")
+    @Transactional(readOnly = true)
+    List<ArchivedCustomer> findPageAfter(@Param("afterId") Long afterId, Limit limit);
+}
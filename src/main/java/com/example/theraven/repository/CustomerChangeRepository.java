@@ -0,0 +1,43 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.entity.CustomerChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface CustomerChangeRepository extends JpaRepository<CustomerChange, Long> {
+
+    /**
+     * Oldest transaction that may still be running. Every transaction below it has finished, so no
+     * change with a smaller {@code tx_id} can appear any more.
+     */
+    String SNAPSHOT_XMIN = "CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS TEXT) AS BIGINT)";
+
+    /**
+     * Changes after a feed position, ordered by (transaction, ID).
+     * Only changes of finished transactions are returned: sequence values are handed out before commit,
+     * so ordering by ID alone would let a slow transaction's changes show up behind a position a reader
+     * has already passed. Not read-only on purpose, so the feed follows the primary without replica lag.
+     */
+    @Query(value = "SELECT * FROM customer_change WHERE (tx_id, id) > (:txId, :id)"
+            + " AND tx_id < " + SNAPSHOT_XMIN
+            + " ORDER BY tx_id, id LIMIT :limit", nativeQuery = true)
+    List<CustomerChange> findAfter(@Param("txId") long txId, @Param("id") long id, @Param("limit") int limit);
+
+    /**
+     * Current snapshot xmin; a feed starting just below it skips the history and sees every later change.
+     */
+    @Query(value = "SELECT " + SNAPSHOT_XMIN, nativeQuery = true)
+    long currentSnapshotXmin();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CustomerChange c WHERE c.created < :before")
+    int deleteCreatedBefore(@Param("before") long before);
+}
@@ -0,0 +1,170 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.service.CustomerIdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bulk upsert of imported customers through PostgreSQL COPY.
+ * Each chunk is copied into a session-local staging table and merged into {@code customer} with one
+ * INSERT ... ON CONFLICT (email) statement, which also records the changes in the outbox.
+ */
+@Repository
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class CustomerImportRepository {
+
+    private static final String CREATE_STAGING = "CREATE TEMP TABLE IF NOT EXISTS customer_import"
+            + " (line BIGINT, id BIGINT, full_name TEXT, email TEXT, phone TEXT) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGING = "COPY customer_import (line, id, full_name, email, phone)"
+            + " FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Merge the staged chunk. A row repeating an email later in the chunk wins, as if rows were applied in order.
+     * Existing customers keep their ID and active flag; {@code updated} moves forward like any other write.
+     */
+    private static final String MERGE_STAGING = "WITH upserted AS ("
+            + " INSERT INTO customer AS c (id, created, updated, full_name, email, phone, is_active)"
+            + " SELECT DISTINCT ON (email) id, ?, ?, full_name, email, phone, true"
+            + " FROM customer_import ORDER BY email, line DESC"
+            + " ON CONFLICT (email) DO UPDATE SET full_name = EXCLUDED.full_name, phone = EXCLUDED.phone,"
+            + " updated = GREATEST(EXCLUDED.updated, c.updated + 1)"
+            + " RETURNING c.*, xmax = 0 AS inserted"
+            + "), recorded AS ("
+            + " INSERT INTO customer_change (customer_id, change_type, payload, created)"
+            + " SELECT id, CASE WHEN inserted THEN 'CREATED' ELSE 'UPDATED' END,"
+            + " json_build_object('id', id, 'created', created, 'updated', updated, 'fullName', full_name,"
+            + " 'email', email, 'phone', phone, 'isActive', is_active)::text, ?"
+            + " FROM upserted"
+            + ")"
+            + " SELECT count(*) FILTER (WHERE inserted), array_agg(id) FILTER (WHERE NOT inserted) FROM upserted";
+
+    private final DataSource dataSource;
+    private final CustomerIdGenerator customerIdGenerator;
+
+    /**
+     * Open a session holding one connection and the staging table for the duration of an import.
+     */
+    public Session openSession() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+            connection.commit();
+            return new Session(connection, connection.unwrap(PGConnection.class).getCopyAPI(), customerIdGenerator);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Customer to import with its row number in the file.
+     */
+    public record Row(long row, Customer customer) {
+    }
+
+    /**
+     * Outcome of loading one chunk.
+     *
+     * @param created    Customers inserted
+     * @param updated    Rows applied to existing customers, including rows superseded within the chunk
+     * @param updatedIds IDs of existing customers that changed
+     */
+    public record LoadResult(long created, long updated, List<Long> updatedIds) {
+    }
+
+    public static final class Session implements AutoCloseable {
+
+        private final Connection connection;
+        private final CopyManager copyManager;
+        private final CustomerIdGenerator customerIdGenerator;
+
+        private Session(Connection connection, CopyManager copyManager, CustomerIdGenerator customerIdGenerator) {
+            this.connection = connection;
+            this.copyManager = copyManager;
+            this.customerIdGenerator = customerIdGenerator;
+        }
+
+        /**
+         * Upsert one chunk of valid rows in its own transaction.
+         *
+         * @param rows Rows to load
+         * @param now  Creation and update time of the written customers
+         * @return Created and updated counts
+         */
+        public LoadResult load(List<Row> rows, long now) throws SQLException, IOException {
+            try {
+                StringBuilder csv = new StringBuilder(rows.size() * 80);
+                for (Row row : rows) {
+                    Customer customer = row.customer();
+                    // Rows that turn out to update an existing customer leave their ID unused
+                    csv.append(row.row()).append(',').append(customerIdGenerator.next(customer.getEmail())).append(',');
+                    appendCsv(csv, customer.getFullName());
+                    csv.append(',');
+                    appendCsv(csv, customer.getEmail());
+                    csv.append(',');
+                    appendCsv(csv, customer.getPhone());
+                    csv.append('\n');
+                }
+                copyManager.copyIn(COPY_STAGING, new StringReader(csv.toString()));
+                LoadResult result;
+                try (PreparedStatement merge = connection.prepareStatement(MERGE_STAGING)) {
+                    merge.setLong(1, now);
+                    merge.setLong(2, now);
+                    merge.setLong(3, now);
+                    try (ResultSet resultSet = merge.executeQuery()) {
+                        resultSet.next();
+                        long created = resultSet.getLong(1);
+                        Array updatedIds = resultSet.getArray(2);
+                        List<Long> updated = updatedIds == null ? List.of()
+                                : Arrays.stream((Number[]) updatedIds.getArray()).map(Number::longValue).toList();
+                        result = new LoadResult(created, rows.size() - created, updated);
+                    }
+                }
+                connection.commit();
+                return result;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+
+        private static void appendCsv(StringBuilder csv, String value) {
+            // An unquoted empty field is NULL in COPY's CSV format
+            if (value != null) {
+                csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                // The staging table would otherwise outlive the import on the pooled connection
+                statement.execute("DROP TABLE IF EXISTS customer_import");
+                connection.commit();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
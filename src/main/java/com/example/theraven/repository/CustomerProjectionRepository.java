@@ -0,0 +1,46 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.dto.CustomerField;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Reads of selected customer columns only. Rows come back as maps keyed by the JSON field name,
+ * never as managed entities, so nothing is tracked by the persistence context.
+ */
+public interface CustomerProjectionRepository {
+
+    /**
+     * Keyset page of customers ordered by ID, like {@link CustomerRepository#findPageAfter}.
+     *
+     * @param fields       Fields to read, including {@link CustomerField#ID}
+     * @param afterId      Last customer ID of the previous page, 0 for the first page
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis, exclusive)
+     * @param limit        Maximum number of customers to return
+     * @return Selected fields of each customer
+     */
+    List<Map<String, Object>> findFieldsPageAfter(Set<CustomerField> fields, long afterId, Boolean isActive,
+                                                  Long updatedAfter, int limit);
+
+    /**
+     * Fetch selected fields of several customers with one statement.
+     *
+     * @param fields Fields to read, including {@link CustomerField#ID}
+     * @param ids    Customer IDs
+     * @return Selected fields of each customer found, in no particular order
+     */
+    List<Map<String, Object>> findFieldsByIdIn(Set<CustomerField> fields, Long[] ids);
+
+    /**
+     * Stream selected fields of every customer ordered by ID through a server-side cursor.
+     * Must be consumed inside a transaction and closed by the caller.
+     *
+     * @param fields Fields to read
+     * @return Selected fields of each customer
+     */
+    Stream<Map<String, Object>> streamFields(Set<CustomerField> fields);
+}
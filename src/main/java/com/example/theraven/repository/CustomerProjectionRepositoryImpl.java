@@ -0,0 +1,79 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.dto.CustomerField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * Builds the select list from the requested fields and turns each result tuple into a map.
+ */
+@RequiredArgsConstructor
+public class CustomerProjectionRepositoryImpl implements CustomerProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFieldsPageAfter(Set<CustomerField> fields, long afterId, Boolean isActive,
+                                                         Long updatedAfter, int limit) {
+        StringBuilder sql = new StringBuilder(select(fields)).append(" WHERE id > :afterId");
+        if (isActive != null) {
+            // A literal rather than a parameter, so active-only pages can use the partial index
+            sql.append(isActive ? " AND is_active" : " AND NOT is_active");
+        }
+        if (updatedAfter != null) {
+            sql.append(" AND updated > :updatedAfter");
+        }
+        Query query = entityManager.createNativeQuery(sql.append(" ORDER BY id LIMIT :limit").toString(), Tuple.class)
+                .setParameter("afterId", afterId)
+                .setParameter("limit", limit);
+        if (updatedAfter != null) {
+            query.setParameter("updatedAfter", updatedAfter);
+        }
+        return toMaps(fields, query).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFieldsByIdIn(Set<CustomerField> fields, Long[] ids) {
+        Query query = entityManager.createNativeQuery(select(fields) + " WHERE id = ANY(:ids)", Tuple.class)
+                .setParameter("ids", ids);
+        return toMaps(fields, query).toList();
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamFields(Set<CustomerField> fields) {
+        Query query = entityManager.createNativeQuery(select(fields) + " ORDER BY id", Tuple.class)
+                .setHint(HINT_FETCH_SIZE, Integer.parseInt(CustomerRepository.STREAM_FETCH_SIZE));
+        return toMaps(fields, query);
+    }
+
+    private static String select(Set<CustomerField> fields) {
+        return fields.stream()
+                .map(field -> field.column() + " AS \"" + field.property() + "\"")
+                .collect(Collectors.joining(", ", "SELECT ", " FROM customer"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Stream<Map<String, Object>> toMaps(Set<CustomerField> fields, Query query) {
+        return ((Stream<Tuple>) query.getResultStream()).map(tuple -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (CustomerField field : fields) {
+                row.put(field.property(), tuple.get(field.property()));
+            }
+            return row;
+        });
+    }
+}
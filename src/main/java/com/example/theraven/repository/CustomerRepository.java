@@ -1,9 +1,139 @@
 package com.example.theraven.repository;
 
+import com.example.theraven.dto.CustomerEmail;
 import com.example.theraven.entity.Customer;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerSearchRepository,
+        CustomerProjectionRepository {
+
+    /**
+     * Rows fetched per JDBC round trip when streaming the whole table.
+     */
+    String STREAM_FETCH_SIZE = "1000";
+
+    /**
+     * Keyset page of customers ordered by ID. Seeks the primary key index past {@code afterId}
+     * instead of skipping rows with OFFSET, so every page costs the same.
+     */
+    @Query("SELECT c FROM Customer c WHERE c.id > :afterId"
+            + " AND (:isActive IS NULL OR c.isActive = :isActive)"
+            + " AND (:updatedAfter IS NULL OR c.updated > :updatedAfter)"
+            + " ORDER BY c.id")
+    @Transactional(readOnly = true)
+    List<Customer> findPageAfter(@Param("afterId") Long afterId,
+                                 @Param("isActive") Boolean isActive,
+                                 @Param("updatedAfter") Long updatedAfter,
+                                 Limit limit);
+
+    /**
+     * Keyset page of active customers ordered by ID. The literal condition lets the planner use the
+     * partial index on active customers, which a bound {@code isActive} parameter would not.
+     */
+    @Query("SELECT c FROM Customer c WHERE c.id > :afterId AND c.isActive = true"
+            + " AND (:updatedAfter IS NULL OR c.updated > :updatedAfter)"
+            + " ORDER BY c.id")
+    @Transactional(readOnly = true)
+    List<Customer> findActivePageAfter(@Param("afterId") Long afterId,
+                                       @Param("updatedAfter") Long updatedAfter,
+                                       Limit limit);
+
+    /**
+     * Stream every customer ordered by ID through a server-side cursor.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT c FROM Customer c ORDER BY c.id")
+    Stream<Customer> streamAll();
+
+    /**
+     * Keyset page of customer emails ordered by ID, read without loading entities.
+     */
+    @Query("SELECT new com.example.theraven.dto.CustomerEmail(c.id, c.email) FROM Customer c"
+            + " WHERE c.id > :afterId ORDER BY c.id")
+    @Transactional(readOnly = true)
+    List<CustomerEmail> findEmailsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    boolean existsByEmail(String email);
+
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Condition appended to every write so an optimistic-concurrency check costs no extra SELECT:
+     * a null {@code expectedUpdated} skips the check, otherwise the row must still carry that version.
+     */
+    String VERSION_MATCHES = " AND (CAST(:expectedUpdated AS BIGINT) IS NULL OR updated = :expectedUpdated)";
+
+    /**
+     * New {@code updated} value of a written row. Never equal to the previous one, so two writes
+     * within the same millisecond still produce different versions.
+     */
+    String NEXT_VERSION = "GREATEST(:updated, updated + 1)";
+
+    /**
+     * Replace the editable fields of a customer in one statement and return the new row.
+     * Returns empty if the customer does not exist or no longer has the expected version.
+     */
+    @Query(value = "UPDATE customer SET full_name = :fullName, email = :email, phone = :phone,"
+            + " updated = " + NEXT_VERSION
+            + " WHERE id = :id" + VERSION_MATCHES + " RETURNING *", nativeQuery = true)
+    Optional<Customer> updateDetails(@Param("id") Long id,
+                                     @Param("fullName") String fullName,
+                                     @Param("email") String email,
+                                     @Param("phone") String phone,
+                                     @Param("updated") Long updated,
+                                     @Param("expectedUpdated") Long expectedUpdated);
+
+    /**
+     * Update only the supplied (non-null) fields of a customer in one statement and return the new row.
+     * Returns empty if the customer does not exist or no longer has the expected version.
+     */
+    @Query(value = "UPDATE customer SET full_name = COALESCE(:fullName, full_name), email = COALESCE(:email, email),"
+            + " phone = COALESCE(:phone, phone), updated = " + NEXT_VERSION
+            + " WHERE id = :id" + VERSION_MATCHES + " RETURNING *", nativeQuery = true)
+    Optional<Customer> patchDetails(@Param("id") Long id,
+                                    @Param("fullName") String fullName,
+                                    @Param("email") String email,
+                                    @Param("phone") String phone,
+                                    @Param("updated") Long updated,
+                                    @Param("expectedUpdated") Long expectedUpdated);
+
+    /**
+     * Soft-delete an active customer in one statement and return the new row.
+     * Returns empty if the customer does not exist, is already inactive or no longer has the expected version.
+     */
+    @Query(value = "UPDATE customer SET is_active = false, updated = " + NEXT_VERSION
+            + " WHERE id = :id AND is_active" + VERSION_MATCHES + " RETURNING *", nativeQuery = true)
+    Optional<Customer> deactivate(@Param("id") Long id,
+                                  @Param("updated") Long updated,
+                                  @Param("expectedUpdated") Long expectedUpdated);
+
+    /**
+     * Fetch several customers with one array-bound statement, whatever the number of IDs.
+     */
+    @Query(value = "SELECT * FROM customer WHERE id = ANY(:ids)", nativeQuery = true)
+    @Transactional(readOnly = true)
+    List<Customer> findAllByIdIn(@Param("ids") Long[] ids);
 }
@@ -0,0 +1,42 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.dto.CustomerSearchCursor;
+import com.example.theraven.entity.Customer;
+
+import java.util.List;
+
+/**
+ * Customer search by email, phone and name, combined into one indexed query.
+ * Results are ordered by the prefix being searched, so a page is one range scan of that column's index:
+ * by email for an email prefix, otherwise by phone for a phone prefix, and by ID for the other searches.
+ * Ties are broken by ID.
+ */
+public interface CustomerSearchRepository {
+
+    /**
+     * Keyset page of customers matching every supplied (non-null) criterion.
+     *
+     * @param email       Exact email
+     * @param emailPrefix Start of the email
+     * @param phonePrefix Start of the phone number
+     * @param name        Case-insensitive part of the full name
+     * @param after       Last customer of the previous page, {@code null} for the first page
+     * @param limit       Maximum number of customers to return
+     * @return Matching customers following {@code after}
+     */
+    List<Customer> search(String email, String emailPrefix, String phonePrefix, String name,
+                          CustomerSearchCursor after, int limit);
+
+    /**
+     * Cursor positioned on a customer returned by {@link #search}.
+     *
+     * @param customer    Last customer of the page
+     * @param emailPrefix Email prefix of the search
+     * @param phonePrefix Phone prefix of the search
+     * @return Cursor for the following page
+     */
+    static CustomerSearchCursor cursorOf(Customer customer, String emailPrefix, String phonePrefix) {
+        String key = emailPrefix != null ? customer.getEmail() : phonePrefix != null ? customer.getPhone() : null;
+        return new CustomerSearchCursor(key, customer.getId());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.dto.CustomerSearchCursor;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.exception.InvalidCursorException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the search statement from the supplied criteria only, so each one maps onto its own index:
+ * the unique email index for the exact match, the {@code (column text_pattern_ops, id)} indexes for prefixes
+ * and the trigram index for names. Prefixes are sent as a range of the byte-wise {@code text_pattern_ops}
+ * operators rather than {@code LIKE 'x%'}, which the planner only turns into an index range for a literal
+ * pattern, not in a generic prepared plan.
+ */
+@RequiredArgsConstructor
+public class CustomerSearchRepositoryImpl implements CustomerSearchRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Customer> search(String email, String emailPrefix, String phonePrefix, String name,
+                                 CustomerSearchCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM customer WHERE true");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        // The first prefix decides the order; its column is walked from the cursor onwards
+        String orderBy = emailPrefix != null ? "email" : phonePrefix != null ? "phone" : null;
+        if (email != null) {
+            sql.append(" AND email = :email");
+            parameters.put("email", email);
+        }
+        if (emailPrefix != null) {
+            appendPrefix(sql, parameters, "email", emailPrefix, "email".equals(orderBy) ? after : null);
+        }
+        if (phonePrefix != null) {
+            appendPrefix(sql, parameters, "phone", phonePrefix, "phone".equals(orderBy) ? after : null);
+        }
+        if (name != null) {
+            sql.append(" AND full_name ILIKE :name");
+            parameters.put("name", "%" + escapeLike(name) + "%");
+        }
+        if (orderBy == null) {
+            if (after != null && after.key() != null) {
+                throw new InvalidCursorException(after.encode());
+            }
+            sql.append(" AND id > :afterId ORDER BY id");
+            parameters.put("afterId", after == null ? 0L : after.id());
+        } else {
+            sql.append(" ORDER BY ").append(orderBy).append(" USING ~<~, id");
+        }
+        sql.append(" LIMIT :limit");
+        parameters.put("limit", limit);
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Customer.class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    /**
+     * Match values starting with {@code prefix} as the range [prefix, prefix with its last character
+     * incremented). When the results are ordered by this column, the range starts at the cursor instead.
+     */
+    private static void appendPrefix(StringBuilder sql, Map<String, Object> parameters, String column,
+                                     String prefix, CustomerSearchCursor after) {
+        if (after == null) {
+            sql.append(" AND ").append(column).append(" ~>=~ :").append(column).append("From");
+            parameters.put(column + "From", prefix);
+        } else {
+            // A cursor from another search would move the range outside the prefix
+            if (after.key() == null || !after.key().startsWith(prefix)) {
+                throw new InvalidCursorException(after.encode());
+            }
+            sql.append(" AND ").append(column).append(" ~>=~ :").append(column).append("From")
+                    .append(" AND (").append(column).append(" ~>~ :").append(column).append("From")
+                    .append(" OR id > :afterId)");
+            parameters.put(column + "From", after.key());
+            parameters.put("afterId", after.id());
+        }
+        int last = prefix.codePointBefore(prefix.length());
+        if (last < Character.MAX_CODE_POINT) {
+            sql.append(" AND ").append(column).append(" ~<~ :").append(column).append("To");
+            parameters.put(column + "To", prefix.substring(0, prefix.length() - Character.charCount(last))
+                    + Character.toString(last + 1));
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
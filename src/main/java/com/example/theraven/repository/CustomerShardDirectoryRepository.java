@@ -0,0 +1,167 @@
+package com.example.theraven.repository;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Directory of a sharded deployment on shard 0: the shard of every hash bucket, the bucket of every email and
+ * the customer ID node numbers leased by running instances.
+ * Statements run on their own connections in auto-commit mode, outside the transaction of the shard being
+ * written, so a claimed email is visible to other instances before that transaction commits.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "theraven.sharding", name = "enabled", havingValue = "true")
+public class CustomerShardDirectoryRepository {
+
+    private static final String CLAIM_EMAILS = "INSERT INTO customer_email_index (email, bucket, claimed)"
+            + " SELECT email, bucket, CAST(? AS BIGINT)"
+            + " FROM unnest(CAST(? AS VARCHAR[]), CAST(? AS INTEGER[])) AS t(email, bucket)"
+            + " ON CONFLICT (email) DO NOTHING RETURNING email";
+
+    /**
+     * Index emails that are already stored on a shard, replacing entries that point elsewhere.
+     */
+    private static final String INDEX_EMAILS = "INSERT INTO customer_email_index AS e (email, bucket, claimed)"
+            + " SELECT email, bucket, CAST(? AS BIGINT)"
+            + " FROM unnest(CAST(? AS VARCHAR[]), CAST(? AS INTEGER[])) AS t(email, bucket)"
+            + " ON CONFLICT (email) DO UPDATE SET bucket = EXCLUDED.bucket, claimed = EXCLUDED.claimed"
+            + " WHERE e.bucket <> EXCLUDED.bucket";
+
+    /**
+     * Lease the free node number that has been free the longest, so a released number is not reused right away.
+     */
+    private static final String LEASE_ANY_NODE = "UPDATE customer_id_node"
+            + " SET holder = ?, expires = now() + CAST(? AS BIGINT) * interval '1 millisecond'"
+            + " WHERE node = (SELECT node FROM customer_id_node WHERE expires < now()"
+            + " ORDER BY expires, node LIMIT 1 FOR UPDATE SKIP LOCKED)"
+            + " RETURNING node";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerShardDirectoryRepository(@Qualifier("directoryDataSource") DataSource directoryDataSource) {
+        this.jdbcTemplate = new JdbcTemplate(directoryDataSource);
+    }
+
+    /**
+     * Assignment of one bucket.
+     */
+    public record Bucket(int bucket, int shard, boolean moving) {
+    }
+
+    /**
+     * Email index entry.
+     *
+     * @param claimed When the email was claimed for the customer
+     */
+    public record EmailEntry(String email, int bucket, long claimed) {
+    }
+
+    public List<Bucket> findBuckets() {
+        return jdbcTemplate.query("SELECT bucket, shard, moving FROM customer_shard_bucket ORDER BY bucket",
+                (rs, row) -> new Bucket(rs.getInt("bucket"), rs.getInt("shard"), rs.getBoolean("moving")));
+    }
+
+    public void markMoving(Collection<Integer> buckets, boolean moving) {
+        jdbcTemplate.update("UPDATE customer_shard_bucket SET moving = ? WHERE bucket = ANY(CAST(? AS INTEGER[]))",
+                moving, buckets.toArray(Integer[]::new));
+    }
+
+    /**
+     * Point buckets at their new shard and open them for writes again.
+     */
+    public void assign(Collection<Integer> buckets, int shard) {
+        jdbcTemplate.update("UPDATE customer_shard_bucket SET shard = ?, moving = false"
+                + " WHERE bucket = ANY(CAST(? AS INTEGER[]))", shard, buckets.toArray(Integer[]::new));
+    }
+
+    public Optional<EmailEntry> findEmail(String email) {
+        return jdbcTemplate.query("SELECT email, bucket, claimed FROM customer_email_index WHERE email = ?",
+                (rs, row) -> new EmailEntry(rs.getString("email"), rs.getInt("bucket"), rs.getLong("claimed")),
+                email).stream().findFirst();
+    }
+
+    /**
+     * Claim emails for customers in the given buckets. Emails that already have an entry are left unchanged.
+     *
+     * @return Emails claimed by this call
+     */
+    public Set<String> claimEmails(Map<String, Integer> buckets, long now) {
+        return new HashSet<>(jdbcTemplate.queryForList(CLAIM_EMAILS, String.class, now,
+                buckets.keySet().toArray(String[]::new), buckets.values().toArray(Integer[]::new)));
+    }
+
+    /**
+     * Move a stale claim to another bucket, unless the entry changed since it was read.
+     *
+     * @return Whether the entry now belongs to {@code bucket}
+     */
+    public boolean takeOverEmail(EmailEntry stale, int bucket, long now) {
+        return jdbcTemplate.update("UPDATE customer_email_index SET bucket = ?, claimed = ?"
+                        + " WHERE email = ? AND bucket = ? AND claimed = ?",
+                bucket, now, stale.email(), stale.bucket(), stale.claimed()) == 1;
+    }
+
+    /**
+     * Drop claims that did not lead to a customer, as long as they still belong to the bucket they were made for.
+     */
+    public void releaseEmails(Map<String, Integer> buckets) {
+        jdbcTemplate.update("DELETE FROM customer_email_index e"
+                        + " USING unnest(CAST(? AS VARCHAR[]), CAST(? AS INTEGER[])) AS t(email, bucket)"
+                        + " WHERE e.email = t.email AND e.bucket = t.bucket",
+                buckets.keySet().toArray(String[]::new), buckets.values().toArray(Integer[]::new));
+    }
+
+    /**
+     * Record where stored customers' emails are, e.g. for customers written before sharding was enabled.
+     *
+     * @return Entries added or corrected
+     */
+    public int indexEmails(Map<String, Integer> buckets, long now) {
+        return jdbcTemplate.update(INDEX_EMAILS, now,
+                buckets.keySet().toArray(String[]::new), buckets.values().toArray(Integer[]::new));
+    }
+
+    /**
+     * Lease a free customer ID node number.
+     *
+     * @return Leased node number, empty if every number is leased
+     */
+    public Optional<Integer> leaseAnyNode(String holder, long leaseMillis) {
+        return jdbcTemplate.queryForList(LEASE_ANY_NODE, Integer.class, holder, leaseMillis).stream().findFirst();
+    }
+
+    /**
+     * Lease a given customer ID node number, unless another holder's lease on it is still running.
+     */
+    public boolean leaseNode(int node, String holder, long leaseMillis) {
+        return jdbcTemplate.update("UPDATE customer_id_node"
+                        + " SET holder = ?, expires = now() + CAST(? AS BIGINT) * interval '1 millisecond'"
+                        + " WHERE node = ? AND (expires < now() OR holder = ?)",
+                holder, leaseMillis, node, holder) == 1;
+    }
+
+    /**
+     * Extend a running lease.
+     *
+     * @return Whether the holder still had the lease
+     */
+    public boolean renewNode(int node, String holder, long leaseMillis) {
+        return jdbcTemplate.update("UPDATE customer_id_node SET expires = now() + CAST(? AS BIGINT) * interval '1 millisecond'"
+                + " WHERE node = ? AND holder = ? AND expires >= now()", leaseMillis, node, holder) == 1;
+    }
+
+    public void releaseNode(int node, String holder) {
+        jdbcTemplate.update("UPDATE customer_id_node SET holder = NULL, expires = now() WHERE node = ? AND holder = ?",
+                node, holder);
+    }
+}
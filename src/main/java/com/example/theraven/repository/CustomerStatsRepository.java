@@ -0,0 +1,165 @@
+package com.example.theraven.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Summary tables holding customer counts: totals by active flag, and created and updated counts per UTC day.
+ * Writers add deltas; a periodic reconciliation recounts the tables from the base tables.
+ */
+@Repository
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class CustomerStatsRepository {
+
+    public static final long DAY_MILLIS = 86_400_000L;
+
+    // Arbitrary key of the advisory lock held by the running reconciliation
+    private static final long RECONCILE_LOCK_KEY = 0x73746174;
+
+    private static final String ADD_TOTALS = "INSERT INTO customer_stats_total AS t (is_active, customers)"
+            + " VALUES (true, :active), (false, :inactive)"
+            + " ON CONFLICT (is_active) DO UPDATE SET customers = t.customers + EXCLUDED.customers";
+
+    private static final String ADD_DAYS = "INSERT INTO customer_stats_daily AS d (day, created, updated)"
+            + " SELECT * FROM unnest(CAST(:days AS BIGINT[]), CAST(:created AS BIGINT[]), CAST(:updated AS BIGINT[]))"
+            + " ON CONFLICT (day) DO UPDATE SET created = d.created + EXCLUDED.created,"
+            + " updated = d.updated + EXCLUDED.updated";
+
+    private static final String RECOUNT_TOTALS = "INSERT INTO customer_stats_total AS t (is_active, customers)"
+            + " SELECT flag, count(c.id) FROM (VALUES (true), (false)) flags (flag)"
+            + " LEFT JOIN customer c ON (c.is_active IS TRUE) = flag GROUP BY flag"
+            + " ON CONFLICT (is_active) DO UPDATE SET customers = EXCLUDED.customers";
+
+    /**
+     * Signups per day, archived customers included so archival does not rewrite history.
+     */
+    private static final String RECOUNT_CREATED = "WITH counted AS ("
+            + " SELECT created / " + DAY_MILLIS + " AS day, count(*) AS created"
+            + " FROM (SELECT created FROM customer UNION ALL SELECT created FROM customer_archive) customers"
+            + " WHERE created IS NOT NULL GROUP BY 1"
+            + ")"
+            + " INSERT INTO customer_stats_daily AS d (day, created)"
+            + " SELECT day, created FROM counted"
+            + " UNION ALL SELECT day, 0 FROM customer_stats_daily WHERE created <> 0"
+            + " AND day NOT IN (SELECT day FROM counted)"
+            + " ON CONFLICT (day) DO UPDATE SET created = EXCLUDED.created";
+
+    /**
+     * Updates per day from the outbox, for the days it still fully covers.
+     */
+    private static final String RECOUNT_UPDATED = "WITH counted AS ("
+            + " SELECT created / " + DAY_MILLIS + " AS day, count(*) AS updated FROM customer_change"
+            + " WHERE change_type IN ('UPDATED', 'DELETED') AND created >= :fromDay * " + DAY_MILLIS + " GROUP BY 1"
+            + ")"
+            + " INSERT INTO customer_stats_daily AS d (day, updated)"
+            + " SELECT day, updated FROM counted"
+            + " UNION ALL SELECT day, 0 FROM customer_stats_daily WHERE day >= :fromDay AND updated <> 0"
+            + " AND day NOT IN (SELECT day FROM counted)"
+            + " ON CONFLICT (day) DO UPDATE SET updated = EXCLUDED.updated";
+
+    private final EntityManager entityManager;
+
+    /**
+     * Counts read from the summary tables.
+     *
+     * @param active   Active customers
+     * @param inactive Inactive customers
+     * @param days     Counts per day since the epoch
+     */
+    public record Snapshot(long active, long inactive, NavigableMap<Long, DayCounts> days) {
+    }
+
+    /**
+     * Customers created and updates made on one day.
+     */
+    public record DayCounts(long created, long updated) {
+    }
+
+    /**
+     * Add deltas to the summary tables.
+     *
+     * @param active   Change of the active count
+     * @param inactive Change of the inactive count
+     * @param days     Created and updated deltas per day since the epoch
+     */
+    @Transactional
+    public void add(long active, long inactive, NavigableMap<Long, DayCounts> days) {
+        if (active != 0 || inactive != 0) {
+            entityManager.createNativeQuery(ADD_TOTALS)
+                    .setParameter("active", active)
+                    .setParameter("inactive", inactive)
+                    .executeUpdate();
+        }
+        if (!days.isEmpty()) {
+            entityManager.createNativeQuery(ADD_DAYS)
+                    .setParameter("days", days.keySet().toArray(Long[]::new))
+                    .setParameter("created", days.values().stream().map(DayCounts::created).toArray(Long[]::new))
+                    .setParameter("updated", days.values().stream().map(DayCounts::updated).toArray(Long[]::new))
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Read the summary tables. Not read-only on purpose: a replica may not have the deltas just added yet.
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Snapshot load() {
+        long active = 0;
+        long inactive = 0;
+        for (Tuple total : (List<Tuple>) entityManager
+                .createNativeQuery("SELECT is_active, customers FROM customer_stats_total", Tuple.class)
+                .getResultList()) {
+            if ((Boolean) total.get(0)) {
+                active = ((Number) total.get(1)).longValue();
+            } else {
+                inactive = ((Number) total.get(1)).longValue();
+            }
+        }
+        NavigableMap<Long, DayCounts> days = new TreeMap<>();
+        for (Tuple day : (List<Tuple>) entityManager
+                .createNativeQuery("SELECT day, created, updated FROM customer_stats_daily", Tuple.class)
+                .getResultList()) {
+            days.put(((Number) day.get(0)).longValue(),
+                    new DayCounts(((Number) day.get(1)).longValue(), ((Number) day.get(2)).longValue()));
+        }
+        return new Snapshot(active, inactive, days);
+    }
+
+    /**
+     * Recount the summary tables from the base tables, unless another instance is recounting them.
+     * The tables stay locked against concurrent deltas until the transaction ends.
+     *
+     * @param updatedFromDay First day the outbox fully covers; update counts of earlier days are kept
+     * @param onLocked       Run once the tables are locked and before they are recounted
+     * @return Whether this call recounted the tables
+     */
+    @Transactional
+    public boolean reconcile(long updatedFromDay, Runnable onLocked) {
+        // Released with the transaction, so instances take turns rather than recounting on top of each other
+        boolean acquired = (Boolean) entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                .setParameter("key", RECONCILE_LOCK_KEY)
+                .getSingleResult();
+        if (!acquired) {
+            return false;
+        }
+        entityManager.createNativeQuery("LOCK TABLE customer_stats_total, customer_stats_daily IN EXCLUSIVE MODE")
+                .executeUpdate();
+        onLocked.run();
+        entityManager.createNativeQuery(RECOUNT_TOTALS).executeUpdate();
+        entityManager.createNativeQuery(RECOUNT_CREATED).executeUpdate();
+        entityManager.createNativeQuery(RECOUNT_UPDATED)
+                .setParameter("fromDay", updatedFromDay)
+                .executeUpdate();
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.theraven.repository;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.service.CustomerIdGenerator;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.example.theraven.repository.CustomerRepository.NEXT_VERSION;
+import static com.example.theraven.repository.CustomerRepository.VERSION_MATCHES;
+
+/**
+ * Non-blocking counterpart of {@link CustomerRepository} for the {@code reactive} profile.
+ * Runs the same statements over R2DBC, so both stacks can share one schema and one database.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCustomerRepository {
+
+    /**
+     * Rows fetched per round trip when streaming; the next batch is only requested once downstream asks for it.
+     */
+    private static final int STREAM_FETCH_SIZE = Integer.parseInt(CustomerRepository.STREAM_FETCH_SIZE);
+
+    private final DatabaseClient databaseClient;
+    private final CustomerIdGenerator customerIdGenerator;
+
+    /**
+     * Keyset page of customers ordered by ID, see {@link CustomerRepository#findPageAfter}.
+     */
+    public Flux<Customer> findPageAfter(long afterId, Boolean isActive, Long updatedAfter, int limit) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT * FROM customer WHERE id > :afterId"
+                        + " AND (CAST(:isActive AS BOOLEAN) IS NULL OR is_active = :isActive)"
+                        + " AND (CAST(:updatedAfter AS BIGINT) IS NULL OR updated > :updatedAfter)"
+                        + " ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit);
+        spec = bindNullable(spec, "isActive", isActive, Boolean.class);
+        spec = bindNullable(spec, "updatedAfter", updatedAfter, Long.class);
+        return spec.map(ReactiveCustomerRepository::toCustomer).all();
+    }
+
+    /**
+     * Stream every customer ordered by ID through a cursor, honouring downstream demand.
+     */
+    public Flux<Customer> streamAll() {
+        return databaseClient.sql("SELECT * FROM customer ORDER BY id")
+                .filter((statement, next) -> next.execute(statement.fetchSize(STREAM_FETCH_SIZE)))
+                .map(ReactiveCustomerRepository::toCustomer)
+                .all();
+    }
+
+    public Mono<Customer> findById(Long id) {
+        return databaseClient.sql("SELECT * FROM customer WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveCustomerRepository::toCustomer)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM customer WHERE id = :id)")
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Fetch several customers with one array-bound statement.
+     */
+    public Flux<Customer> findAllByIdIn(Long[] ids) {
+        return databaseClient.sql("SELECT * FROM customer WHERE id = ANY(:ids)")
+                .bind("ids", ids)
+                .map(ReactiveCustomerRepository::toCustomer)
+                .all();
+    }
+
+    public Flux<String> findExistingEmails(String[] emails) {
+        return databaseClient.sql("SELECT email FROM customer WHERE email = ANY(:emails)")
+                .bind("emails", emails)
+                .map(row -> row.get("email", String.class))
+                .all();
+    }
+
+    /**
+     * Insert one customer and return the stored row.
+     */
+    public Mono<Customer> insert(Customer customer) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "INSERT INTO customer (id, created, updated, full_name, email, phone, is_active)"
+                                + " VALUES (:id, :created, :updated, :fullName, :email, :phone, :isActive) RETURNING *")
+                .bind("id", customerIdGenerator.next(customer.getEmail()))
+                .bind("created", customer.getCreated())
+                .bind("updated", customer.getUpdated())
+                .bind("fullName", customer.getFullName())
+                .bind("email", customer.getEmail())
+                .bind("isActive", customer.getIsActive());
+        return bindNullable(spec, "phone", customer.getPhone(), String.class)
+                .map(ReactiveCustomerRepository::toCustomer)
+                .one();
+    }
+
+    /**
+     * Insert many active customers with a single statement, unnesting one array per column.
+     */
+    public Flux<Customer> insertAll(List<Customer> customers, long now) {
+        return databaseClient.sql("INSERT INTO customer (id, created, updated, full_name, email, phone, is_active)"
+                        + " SELECT id, :now, :now, full_name, email, phone, true"
+                        + " FROM unnest(CAST(:ids AS BIGINT[]), CAST(:fullNames AS VARCHAR[]), CAST(:emails AS VARCHAR[]),"
+                        + " CAST(:phones AS VARCHAR[])) AS t(id, full_name, email, phone) RETURNING *")
+                .bind("now", now)
+                .bind("ids", customers.stream()
+                        .map(customer -> customerIdGenerator.next(customer.getEmail()))
+                        .toArray(Long[]::new))
+                .bind("fullNames", customers.stream().map(Customer::getFullName).toArray(String[]::new))
+                .bind("emails", customers.stream().map(Customer::getEmail).toArray(String[]::new))
+                .bind("phones", customers.stream().map(Customer::getPhone).toArray(String[]::new))
+                .map(ReactiveCustomerRepository::toCustomer)
+                .all();
+    }
+
+    /**
+     * See {@link CustomerRepository#updateDetails}.
+     */
+    public Mono<Customer> updateDetails(Long id, String fullName, String email, String phone, Long updated,
+                                        Long expectedUpdated) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "UPDATE customer SET full_name = :fullName, email = :email, phone = :phone,"
+                                + " updated = " + NEXT_VERSION
+                                + " WHERE id = :id" + VERSION_MATCHES + " RETURNING *")
+                .bind("id", id)
+                .bind("fullName", fullName)
+                .bind("email", email)
+                .bind("updated", updated);
+        spec = bindNullable(spec, "phone", phone, String.class);
+        return bindNullable(spec, "expectedUpdated", expectedUpdated, Long.class)
+                .map(ReactiveCustomerRepository::toCustomer)
+                .one();
+    }
+
+    /**
+     * See {@link CustomerRepository#patchDetails}.
+     */
+    public Mono<Customer> patchDetails(Long id, String fullName, String email, String phone, Long updated,
+                                       Long expectedUpdated) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "UPDATE customer SET full_name = COALESCE(:fullName, full_name), email = COALESCE(:email, email),"
+                                + " phone = COALESCE(:phone, phone), updated = " + NEXT_VERSION
+                                + " WHERE id = :id" + VERSION_MATCHES + " RETURNING *")
+                .bind("id", id)
+                .bind("updated", updated);
+        spec = bindNullable(spec, "fullName", fullName, String.class);
+        spec = bindNullable(spec, "email", email, String.class);
+        spec = bindNullable(spec, "phone", phone, String.class);
+        return bindNullable(spec, "expectedUpdated", expectedUpdated, Long.class)
+                .map(ReactiveCustomerRepository::toCustomer)
+                .one();
+    }
+
+    /**
+     * See {@link CustomerRepository#deactivate}.
+     */
+    public Mono<Customer> deactivate(Long id, Long updated, Long expectedUpdated) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "UPDATE customer SET is_active = false, updated = " + NEXT_VERSION
+                                + " WHERE id = :id AND is_active" + VERSION_MATCHES + " RETURNING *")
+                .bind("id", id)
+                .bind("updated", updated);
+        return bindNullable(spec, "expectedUpdated", expectedUpdated, Long.class)
+                .map(ReactiveCustomerRepository::toCustomer)
+                .one();
+    }
+
+    /**
+     * Record changes to customers in the outbox, see {@link CustomerChangeRepository}. Must run in the transaction
+     * that made the changes; the database fills in the change IDs and the transaction ID ordering the feed.
+     *
+     * @param customerIds IDs of the changed customers
+     * @param payloads    JSON of every customer after the change, in the order of the IDs
+     */
+    public Mono<Void> insertChanges(CustomerChange.Type type, Long[] customerIds, String[] payloads, long created) {
+        return databaseClient.sql("INSERT INTO customer_change (customer_id, change_type, payload, created)"
+                        + " SELECT customer_id, :type, payload, :created"
+                        + " FROM unnest(CAST(:customerIds AS BIGINT[]), CAST(:payloads AS TEXT[])) AS t(customer_id, payload)")
+                .bind("type", type.name())
+                .bind("created", created)
+                .bind("customerIds", customerIds)
+                .bind("payloads", payloads)
+                .then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                                  Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static Customer toCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("created", Long.class),
+                row.get("updated", Long.class),
+                row.get("full_name", String.class),
+                row.get("email", String.class),
+                row.get("phone", String.class),
+                row.get("is_active", Boolean.class));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.theraven.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings. Answers "definitely absent" or "possibly present";
+ * values can be added concurrently with lookups but never removed.
+ * Bit positions come from two 64-bit hashes combined as {@code h1 + i * h2} (Kirsch-Mitzenmacher).
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong approximateSize = new AtomicLong();
+
+    /**
+     * @param capacity          Number of distinct values the filter is sized for
+     * @param falsePositiveRate Target probability of "possibly present" for an absent value at capacity
+     */
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray(Math.toIntExact(Math.max(1, (bits + 63) / 64)));
+        this.bitCount = words.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a value.
+     *
+     * @return Whether any bit changed, i.e. the value was certainly not present before
+     */
+    public boolean put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            if ((current & mask) == 0) {
+                changed |= (words.getAndAccumulate(word, mask, (existing, set) -> existing | set) & mask) == 0;
+            }
+        }
+        if (changed) {
+            approximateSize.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * Check a value.
+     *
+     * @return {@code false} if the value was never added, {@code true} if it may have been
+     */
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distinct values added so far, counting each add that changed a bit.
+     */
+    public long approximateSize() {
+        return approximateSize.get();
+    }
+
+    /**
+     * Whether more values were added than the filter was sized for, so the false positive rate exceeds its target.
+     */
+    public boolean isSaturated() {
+        return approximateSize.get() > capacity;
+    }
+
+    /**
+     * Size of the bit array in bytes.
+     */
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with a bit mixer.
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
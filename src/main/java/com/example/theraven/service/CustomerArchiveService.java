@@ -0,0 +1,196 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.CacheConfig;
+import com.example.theraven.dto.ArchivedCustomerPage;
+import com.example.theraven.dto.CustomerCursor;
+import com.example.theraven.entity.ArchivedCustomer;
+import com.example.theraven.repository.CustomerArchiveRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves inactive customers out of the hot {@code customer} table into the partitioned {@code customer_archive}
+ * table once they have been inactive for the retention period, and serves reads of archived customers.
+ * Each chunk moves in its own short transaction and skips rows locked by other writers, so the job never
+ * holds locks for long; the pause between chunks keeps it from competing with production traffic.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+public class CustomerArchiveService implements MeterBinder {
+
+    private final CustomerArchiveRepository customerArchiveRepository;
+    private final CustomerStatsService customerStatsService;
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+    private final long retentionMillis;
+    private final int chunkSize;
+    private final long chunkDelayMillis;
+    private final long intervalMinutes;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-archiver").daemon().factory());
+    private final LongAdder archived = new LongAdder();
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+
+    public CustomerArchiveService(CustomerArchiveRepository customerArchiveRepository,
+                                  CustomerStatsService customerStatsService,
+                                  CacheManager cacheManager,
+                                  @Value("${theraven.customers.archive.enabled:true}") boolean enabled,
+                                  @Value("${theraven.customers.archive.retention-days:90}") long retentionDays,
+                                  @Value("${theraven.customers.archive.chunk-size:500}") int chunkSize,
+                                  @Value("${theraven.customers.archive.chunk-delay-ms:200}") long chunkDelayMillis,
+                                  @Value("${theraven.customers.archive.interval-minutes:60}") long intervalMinutes,
+                                  @Value("${theraven.customers.page.default-size:50}") int defaultPageSize,
+                                  @Value("${theraven.customers.page.max-size:1000}") int maxPageSize) {
+        this.customerArchiveRepository = customerArchiveRepository;
+        this.customerStatsService = customerStatsService;
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.retentionMillis = Duration.ofDays(retentionDays).toMillis();
+        this.chunkSize = chunkSize;
+        this.chunkDelayMillis = chunkDelayMillis;
+        this.intervalMinutes = intervalMinutes;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Schedule the archival runs once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::archive, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Archive every customer inactive for longer than the retention period, one chunk at a time.
+     *
+     * @return Number of customers archived
+     */
+    public long archive() {
+        long startedAt = System.currentTimeMillis();
+        long cutoff = startedAt - retentionMillis;
+        long total = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                CustomerArchiveRepository.ChunkRange range = customerArchiveRepository.findNextChunkRange(cutoff, chunkSize);
+                if (range.getFirst() == null) {
+                    break;
+                }
+                createPartitions(range.getFirst(), range.getLast());
+                List<Long> ids = customerArchiveRepository.archiveChunk(cutoff, range.getLast(), chunkSize,
+                        System.currentTimeMillis());
+                evict(ids);
+                customerStatsService.recordArchived(ids.size());
+                archived.add(ids.size());
+                total += ids.size();
+                if (ids.isEmpty()) {
+                    // Every candidate is locked by a concurrent write; try again on the next run
+                    break;
+                }
+                Thread.sleep(chunkDelayMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Customer archival failed after {} customers", total, e);
+        }
+        if (total > 0) {
+            log.info("Archived {} customers inactive since before {} in {} ms", total, cutoff,
+                    System.currentTimeMillis() - startedAt);
+        }
+        return total;
+    }
+
+    /**
+     * Retrieve an archived customer.
+     *
+     * @param id Customer ID
+     * @return Archived customer details
+     */
+    public ArchivedCustomer getArchivedCustomer(Long id) {
+        log.debug("Fetching archived customer by ID: {}", id);
+        return customerArchiveRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Archived customer not found with ID: " + id));
+    }
+
+    /**
+     * Retrieve one page of archived customers using keyset pagination on ID.
+     *
+     * @param cursor Cursor returned by the previous page, {@code null} for the first page
+     * @param limit  Requested page size, capped at the configured maximum
+     * @return Page of archived customers with the cursor for the next page
+     */
+    public ArchivedCustomerPage getArchivedCustomersPage(String cursor, Integer limit) {
+        long afterId = CustomerCursor.decode(cursor);
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        List<ArchivedCustomer> rows = customerArchiveRepository.findPageAfter(afterId, Limit.of(size + 1));
+        if (rows.size() <= size) {
+            return new ArchivedCustomerPage(rows, null);
+        }
+        List<ArchivedCustomer> items = rows.subList(0, size);
+        return new ArchivedCustomerPage(items, CustomerCursor.encode(items.get(size - 1).getId()));
+    }
+
+    private void createPartitions(long first, long last) {
+        // Chunks are taken oldest first, so one usually spans a single month
+        for (YearMonth month = monthOf(first); !month.isAfter(monthOf(last)); month = month.plusMonths(1)) {
+            if (!partitions.contains(month)) {
+                customerArchiveRepository.createPartition(month);
+                partitions.add(month);
+            }
+        }
+    }
+
+    private static YearMonth monthOf(long epochMillis) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC));
+    }
+
+    private void evict(List<Long> ids) {
+        Cache customers = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        if (customers != null) {
+            ids.forEach(customers::evict);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("customer.archive.archived", archived, LongAdder::sum)
+                .description("Inactive customers moved to the archive")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
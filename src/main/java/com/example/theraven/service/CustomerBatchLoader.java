@@ -0,0 +1,206 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces customer lookups by ID.
+ * Concurrent loads of the same ID share one in-flight future (single-flight). A lookup that finds no other
+ * query running is sent at once; while one runs, distinct IDs requested within a short window are fetched
+ * together with one {@code id = ANY(?)} query.
+ * When customers are sharded, IDs are batched per shard the caller is bound to.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class CustomerBatchLoader {
+
+    private final CustomerRepository customerRepository;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Map<Long, CompletableFuture<Optional<Customer>>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-loader-timer").daemon().factory());
+    // Platform threads on purpose: a virtual caller waiting inside the synchronized cache loader pins its
+    // carrier, and with every carrier pinned a virtual dispatcher would never run to complete the futures
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("customer-loader-", 0).daemon().factory());
+
+    private final Object lock = new Object();
+    private final Map<Integer, List<Long>> pending = new HashMap<>();
+    private final Map<Integer, Integer> running = new HashMap<>();
+
+    public CustomerBatchLoader(CustomerRepository customerRepository,
+                               @Value("${theraven.customers.loader.window-ms:2}") long windowMillis,
+                               @Value("${theraven.customers.loader.max-batch-size:100}") int maxBatchSize) {
+        this.customerRepository = customerRepository;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Load one customer, joining an in-flight load of the same ID if there is one.
+     *
+     * @param id Customer ID
+     * @return Future completed with the customer, or empty if it does not exist
+     */
+    public CompletableFuture<Optional<Customer>> load(Long id) {
+        return loadAll(List.of(id)).get(0);
+    }
+
+    private List<CompletableFuture<Optional<Customer>>> loadAll(List<Long> ids) {
+        List<CompletableFuture<Optional<Customer>>> futures = new ArrayList<>(ids.size());
+        List<Long> started = new ArrayList<>();
+        for (Long id : ids) {
+            CompletableFuture<Optional<Customer>> future = new CompletableFuture<>();
+            CompletableFuture<Optional<Customer>> existing = inFlight.putIfAbsent(id, future);
+            if (existing != null) {
+                futures.add(existing);
+            } else {
+                futures.add(future);
+                started.add(id);
+            }
+        }
+        if (!started.isEmpty()) {
+            enqueue(started);
+        }
+        return futures;
+    }
+
+    /**
+     * Load one customer and wait for the result.
+     *
+     * @param id Customer ID
+     * @return The customer, or empty if it does not exist
+     */
+    public Optional<Customer> get(Long id) {
+        return await(load(id));
+    }
+
+    /**
+     * Load several customers, coalescing with in-flight loads.
+     *
+     * @param ids Customer IDs
+     * @return Customers that exist, in the order of the first occurrence of their ID
+     */
+    public List<Customer> getAll(List<Long> ids) {
+        return loadAll(ids.stream().distinct().toList()).stream()
+                .map(CustomerBatchLoader::await)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    private static Optional<Customer> await(CompletableFuture<Optional<Customer>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void enqueue(List<Long> ids) {
+        int shard = ShardRoutingDataSource.currentShard();
+        List<List<Long>> ready = List.of();
+        synchronized (lock) {
+            List<Long> batch = pending.computeIfAbsent(shard, key -> new ArrayList<>());
+            boolean first = batch.isEmpty();
+            batch.addAll(ids);
+            // With no query running on the shard there is nothing to coalesce with, so waiting would only add latency
+            if (windowMillis <= 0 || batch.size() >= maxBatchSize || running.getOrDefault(shard, 0) == 0) {
+                ready = takePending(shard);
+            } else if (first) {
+                timer.schedule(() -> dispatchPending(shard), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        ready.forEach(batch -> dispatcher.execute(() -> ShardRoutingDataSource.runOn(shard, () -> dispatch(shard, batch))));
+    }
+
+    private void dispatchPending(int shard) {
+        List<List<Long>> ready;
+        synchronized (lock) {
+            ready = takePending(shard);
+        }
+        ready.forEach(batch -> dispatcher.execute(() -> ShardRoutingDataSource.runOn(shard, () -> dispatch(shard, batch))));
+    }
+
+    /**
+     * Remove the shard's pending IDs in batches of at most the maximum size and count them as running.
+     * Must hold the lock.
+     */
+    private List<List<Long>> takePending(int shard) {
+        List<Long> ids = pending.remove(shard);
+        if (ids == null) {
+            return List.of();
+        }
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += maxBatchSize) {
+            batches.add(ids.subList(from, Math.min(from + maxBatchSize, ids.size())));
+        }
+        running.merge(shard, batches.size(), Integer::sum);
+        return batches;
+    }
+
+    private void dispatch(int shard, List<Long> ids) {
+        try {
+            dispatch(ids);
+        } finally {
+            synchronized (lock) {
+                running.merge(shard, -1, Integer::sum);
+            }
+        }
+    }
+
+    private void dispatch(List<Long> ids) {
+        Map<Long, Customer> found = new HashMap<>();
+        try {
+            log.debug("Loading {} customers in one query", ids.size());
+            for (Customer customer : customerRepository.findAllByIdIn(ids.toArray(Long[]::new))) {
+                found.put(customer.getId(), customer);
+            }
+        } catch (RuntimeException e) {
+            for (Long id : ids) {
+                CompletableFuture<Optional<Customer>> future = inFlight.remove(id);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        for (Long id : ids) {
+            // Remove before completing so callers arriving afterwards start a fresh load
+            CompletableFuture<Optional<Customer>> future = inFlight.remove(id);
+            if (future != null) {
+                future.complete(Optional.ofNullable(found.get(id)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        dispatcher.shutdown();
+    }
+}
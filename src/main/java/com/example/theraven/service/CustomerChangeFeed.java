@@ -0,0 +1,207 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.dto.CustomerChangePosition;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.exception.ShardingUnsupportedException;
+import com.example.theraven.repository.CustomerChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox of customer changes and the server-sent event feed tailing it.
+ * Writers record a change in their own transaction. One poller reads the outbox for all subscribers,
+ * starting from the subscriber furthest behind, so the query rate does not grow with the number of clients.
+ * A subscriber that is still busy sending is skipped and catches up from the outbox on a later poll.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class CustomerChangeFeed {
+
+    private final CustomerChangeRepository customerChangeRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long heartbeatMillis;
+    private final long timeoutMillis;
+    private final int shardCount;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-changes-poller").daemon().factory());
+    // Platform threads: a send to a slow client blocks inside the emitter's synchronized methods
+    private final ExecutorService sender = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("customer-changes-", 0).daemon().factory());
+
+    public CustomerChangeFeed(CustomerChangeRepository customerChangeRepository,
+                              ObjectMapper objectMapper,
+                              ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource,
+                              @Value("${theraven.customers.changes.poll-interval-ms:500}") long pollIntervalMillis,
+                              @Value("${theraven.customers.changes.batch-size:500}") int batchSize,
+                              @Value("${theraven.customers.changes.heartbeat-ms:15000}") long heartbeatMillis,
+                              @Value("${theraven.customers.changes.timeout-ms:1800000}") long timeoutMillis,
+                              @Value("${theraven.customers.changes.retention-hours:168}") long retentionHours) {
+        this.customerChangeRepository = customerChangeRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.heartbeatMillis = heartbeatMillis;
+        this.timeoutMillis = timeoutMillis;
+        ShardRoutingDataSource shards = shardRoutingDataSource.getIfAvailable();
+        this.shardCount = shards == null ? 1 : shards.getShardCount();
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(() -> prune(TimeUnit.HOURS.toMillis(retentionHours)), 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Record a change to a customer in the outbox.
+     * Must run inside the transaction that made the change, so both commit or roll back together.
+     *
+     * @param type     Kind of change
+     * @param customer Customer state after the change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(CustomerChange.Type type, Customer customer) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(customer);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        customerChangeRepository.save(
+                new CustomerChange(null, null, customer.getId(), type, payload, System.currentTimeMillis()));
+    }
+
+    /**
+     * Subscribe to customer changes.
+     *
+     * @param lastEventId ID of the last event the client received, or null to receive only new changes
+     * @return Emitter sending one event per change, with the change type as event name
+     * @throws ShardingUnsupportedException If customers are sharded; the feed tails the outbox of one database
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        if (shardCount > 1) {
+            throw new ShardingUnsupportedException("The customer change feed");
+        }
+        CustomerChangePosition position = lastEventId == null || lastEventId.isBlank()
+                ? CustomerChangePosition.before(customerChangeRepository.currentSnapshotXmin())
+                : CustomerChangePosition.parse(lastEventId);
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, position);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.debug("Subscribed to customer changes after {}, {} subscribers", position, subscribers.size());
+        // Send a resuming client its backlog without waiting for the next poll
+        poller.execute(this::poll);
+        return emitter;
+    }
+
+    private void poll() {
+        try {
+            List<Subscriber> idle = subscribers.stream().filter(subscriber -> !subscriber.sending.get()).toList();
+            if (idle.isEmpty()) {
+                return;
+            }
+            CustomerChangePosition from = idle.stream()
+                    .map(subscriber -> subscriber.position)
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow();
+            List<CustomerChange> changes = customerChangeRepository.findAfter(from.txId(), from.id(), batchSize);
+            boolean more = changes.size() == batchSize;
+            long now = System.currentTimeMillis();
+            for (Subscriber subscriber : idle) {
+                List<CustomerChange> pending = changes.stream()
+                        .filter(change -> CustomerChangePosition.of(change).compareTo(subscriber.position) > 0)
+                        .toList();
+                boolean heartbeat = pending.isEmpty() && now - subscriber.lastSentMillis >= heartbeatMillis;
+                if ((!pending.isEmpty() || heartbeat) && subscriber.sending.compareAndSet(false, true)) {
+                    sender.execute(() -> send(subscriber, pending, more && !pending.isEmpty()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to poll customer changes", e);
+        }
+    }
+
+    private void send(Subscriber subscriber, List<CustomerChange> changes, boolean more) {
+        try {
+            if (changes.isEmpty()) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+            for (CustomerChange change : changes) {
+                CustomerChangePosition position = CustomerChangePosition.of(change);
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(position.toString())
+                        .name(change.getType().name())
+                        .data(change.getPayload()));
+                subscriber.position = position;
+            }
+            subscriber.lastSentMillis = System.currentTimeMillis();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter timed out; the container completes the request
+            log.debug("Dropping customer change subscriber at {}: {}", subscriber.position, e.toString());
+            subscribers.remove(subscriber);
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (more) {
+            poller.execute(this::poll);
+        }
+    }
+
+    private void prune(long retentionMillis) {
+        // Every shard has an outbox of its own customers' changes
+        for (int shard = 0; shard < shardCount; shard++) {
+            try {
+                int deleted = ShardRoutingDataSource.callOn(shard,
+                        () -> customerChangeRepository.deleteCreatedBefore(System.currentTimeMillis() - retentionMillis));
+                log.info("Pruned {} customer changes older than {} ms", deleted, retentionMillis);
+            } catch (RuntimeException e) {
+                log.warn("Failed to prune customer changes", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile CustomerChangePosition position;
+        private volatile long lastSentMillis = System.currentTimeMillis();
+
+        private Subscriber(SseEmitter emitter, CustomerChangePosition position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.theraven.service;
+
+import com.example.theraven.dto.CustomerChangePosition;
+import com.example.theraven.dto.CustomerEmail;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.repository.CustomerChangeRepository;
+import com.example.theraven.repository.CustomerRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory Bloom filter of every customer email, so most checks for a free email never reach the database.
+ * Built in the background once the application is ready by paging through the emails, then kept current from the outbox, which
+ * also carries imports and writes made by other instances. Writes on this instance are added right away.
+ * Emails are never removed, so a changed email only costs a false positive until the next rebuild.
+ * Until the first build completes every email is reported as possibly taken.
+ * <p>
+ * While customers are sharded the filter is never built: it would only see the emails of the first shard,
+ * so every email is reported as possibly taken and checked where it is stored.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class CustomerEmailFilter implements MeterBinder {
+
+    private final CustomerRepository customerRepository;
+    private final CustomerChangeRepository customerChangeRepository;
+    private final ObjectMapper objectMapper;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final boolean sharded;
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-email-filter").daemon().factory());
+    private final LongAdder absent = new LongAdder();
+    private final LongAdder possiblyPresent = new LongAdder();
+
+    private volatile BloomFilter filter;
+    private CustomerChangePosition position;
+
+    public CustomerEmailFilter(CustomerRepository customerRepository,
+                               CustomerChangeRepository customerChangeRepository,
+                               ObjectMapper objectMapper,
+                               @Value("${theraven.customers.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${theraven.customers.email-filter.min-capacity:1000000}") long minCapacity,
+                               @Value("${theraven.customers.email-filter.batch-size:10000}") int batchSize,
+                               @Value("${theraven.customers.email-filter.poll-interval-ms:1000}") long pollIntervalMillis,
+                               @Value("${theraven.sharding.enabled:false}") boolean sharded) {
+        this.customerRepository = customerRepository;
+        this.customerChangeRepository = customerChangeRepository;
+        this.objectMapper = objectMapper;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.sharded = sharded;
+    }
+
+    /**
+     * Build the filter and start following the outbox. Runs once the application is ready, so the build
+     * does not compete with startup; lookups fall through to the database until it completes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (sharded) {
+            log.info("Customers are sharded, checking every email in the database instead of a filter");
+            return;
+        }
+        poller.execute(this::rebuild);
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check whether an email may belong to a customer.
+     *
+     * @param email Email to check
+     * @return {@code false} only if no customer has the email
+     */
+    public boolean mightExist(String email) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(email)) {
+            absent.increment();
+            return false;
+        }
+        possiblyPresent.increment();
+        return true;
+    }
+
+    /**
+     * Record an email written on this instance, before the outbox poll would pick it up.
+     *
+     * @param email Email of a created or updated customer
+     */
+    public void add(String email) {
+        BloomFilter current = filter;
+        if (current != null && email != null) {
+            current.put(email);
+        }
+    }
+
+    /**
+     * Whether the filter has been built and answers lookups.
+     */
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    private void rebuild() {
+        try {
+            long startedAt = System.currentTimeMillis();
+            // Changes committed from here on are replayed from the outbox, so none are missed while paging
+            CustomerChangePosition from = CustomerChangePosition.before(customerChangeRepository.currentSnapshotXmin());
+            BloomFilter next = new BloomFilter(Math.max(minCapacity, 2 * customerRepository.count()), falsePositiveRate);
+            long afterId = 0;
+            List<CustomerEmail> page;
+            do {
+                page = customerRepository.findEmailsAfter(afterId, Limit.of(batchSize));
+                page.forEach(customer -> next.put(customer.email()));
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).id();
+                }
+            } while (page.size() == batchSize);
+            position = from;
+            filter = next;
+            log.info("Built customer email filter of {} emails ({} KB) in {} ms", next.approximateSize(),
+                    next.sizeInBytes() / 1024, System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            log.warn("Failed to build customer email filter", e);
+        }
+    }
+
+    private void poll() {
+        try {
+            BloomFilter current = filter;
+            if (current == null) {
+                rebuild();
+                return;
+            }
+            List<CustomerChange> changes;
+            do {
+                changes = customerChangeRepository.findAfter(position.txId(), position.id(), batchSize);
+                for (CustomerChange change : changes) {
+                    if (change.getType() != CustomerChange.Type.DELETED) {
+                        JsonNode email = objectMapper.readTree(change.getPayload()).get("email");
+                        if (email != null && email.isTextual()) {
+                            current.put(email.asText());
+                        }
+                    }
+                    position = CustomerChangePosition.of(change);
+                }
+            } while (changes.size() == batchSize);
+            if (current.isSaturated()) {
+                log.info("Customer email filter holds {} emails, rebuilding it larger", current.approximateSize());
+                rebuild();
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.warn("Failed to update customer email filter", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("customer.email.filter.checks", absent, LongAdder::sum)
+                .description("Email checks by filter answer; absent ones need no database lookup")
+                .tag("result", "absent")
+                .register(registry);
+        FunctionCounter.builder("customer.email.filter.checks", possiblyPresent, LongAdder::sum)
+                .description("Email checks by filter answer; absent ones need no database lookup")
+                .tag("result", "possibly_present")
+                .register(registry);
+        Gauge.builder("customer.email.filter.size", this, emailFilter -> {
+                    BloomFilter current = emailFilter.filter;
+                    return current == null ? 0 : current.approximateSize();
+                })
+                .description("Emails added to the filter")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.theraven.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Customer IDs. On a single database they come from {@code customer_id_seq} in blocks of 50 and fit its
+ * INTEGER column.
+ * <p>
+ * While customers are sharded they are unique across databases without asking one: 31 bits of seconds since 2024,
+ * the 10-bit hash bucket of the customer, a 5-bit node number leased by the application instance (see
+ * {@link CustomerIdNodeLease}) and a 7-bit sequence. That is 53 bits, so IDs stay exact as JSON numbers in
+ * JavaScript clients. They grow with time within a bucket of one instance only: IDs issued in the same second in
+ * different buckets or by different instances are ordered by bucket and node, not by creation.
+ * <p>
+ * The bucket decides which shard stores the customer and is read back from the ID to route it.
+ * New customers get the bucket of their email. IDs from before this scheme fit the old INTEGER column,
+ * far below any ID issued since, and take their bucket from their low bits instead. A bucket that has issued
+ * 128 IDs in the current second waits for the next one, so an ID never runs ahead of the clock.
+ */
+@Component
+public class CustomerIdGenerator implements HibernatePropertiesCustomizer {
+
+    /**
+     * Hibernate setting through which {@link com.example.theraven.entity.CustomerIdentifierGenerator} finds this bean.
+     */
+    public static final String SETTING = "theraven.customer-id-generator";
+
+    public static final int BUCKETS = 1024;
+
+    /**
+     * Longest wait for the clock to reach the second of the last ID, as after the clock was set back.
+     */
+    private static final long MAX_CLOCK_WAIT_MILLIS = 2000;
+
+    private static final long EPOCH_SECONDS = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    private static final int BUCKET_BITS = 10;
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    public static final int NODES = 1 << NODE_BITS;
+
+    /**
+     * IDs handed out per {@code customer_id_seq} value; matches the sequence increment.
+     */
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private final DataSource dataSource;
+    private final CustomerIdNodeLease nodeLease;
+
+    // Last issued (seconds << SEQUENCE_BITS | sequence) per bucket
+    private final AtomicLongArray issued = new AtomicLongArray(BUCKETS);
+
+    // A lock rather than synchronized: refilling the block queries the database and would pin a virtual thread
+    private final Lock blockLock = new ReentrantLock();
+    private long blockNext = 1;
+    private long blockLast = 0;
+
+    /**
+     * @param nodeLease Available while customers are sharded
+     */
+    public CustomerIdGenerator(DataSource dataSource, ObjectProvider<CustomerIdNodeLease> nodeLease) {
+        this.dataSource = dataSource;
+        this.nodeLease = nodeLease.getIfAvailable();
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(SETTING, this);
+    }
+
+    /**
+     * Next ID for a customer with the given email.
+     *
+     * @param email Email of the new customer
+     * @return Unique customer ID, in the email's bucket while customers are sharded
+     */
+    public long next(String email) {
+        return nodeLease != null ? next(bucketOf(email)) : nextInBlock();
+    }
+
+    /**
+     * Next ID in a bucket.
+     *
+     * @param bucket Hash bucket, below {@link #BUCKETS}
+     * @return Unique customer ID
+     */
+    public long next(int bucket) {
+        int node = nodeLease.node();
+        while (true) {
+            long nowMillis = System.currentTimeMillis();
+            long now = (nowMillis / 1000 - EPOCH_SECONDS) << SEQUENCE_BITS;
+            long last = issued.get(bucket);
+            long next;
+            if (now > last) {
+                next = now;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // Within the second of the last ID, or with the clock set back, count on in that second
+                next = last + 1;
+            } else {
+                awaitSecondAfter(last >>> SEQUENCE_BITS, nowMillis);
+                continue;
+            }
+            if (issued.compareAndSet(bucket, last, next)) {
+                long seconds = next >>> SEQUENCE_BITS;
+                return (seconds << (BUCKET_BITS + NODE_BITS + SEQUENCE_BITS))
+                        | ((long) bucket << (NODE_BITS + SEQUENCE_BITS))
+                        | ((long) node << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Wait until the clock has passed a second whose sequence is used up.
+     */
+    private static void awaitSecondAfter(long seconds, long nowMillis) {
+        long waitMillis = (EPOCH_SECONDS + seconds + 1) * 1000 - nowMillis;
+        if (waitMillis > MAX_CLOCK_WAIT_MILLIS) {
+            throw new IllegalStateException("Clock is " + waitMillis + " ms behind the last customer ID issued");
+        }
+        try {
+            Thread.sleep(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next customer ID", e);
+        }
+    }
+
+    /**
+     * Next ID of a single database. Each {@code customer_id_seq} value is the upper end of a block of IDs.
+     */
+    private long nextInBlock() {
+        blockLock.lock();
+        try {
+            if (blockNext > blockLast) {
+                long upper = new JdbcTemplate(dataSource).queryForObject("SELECT nextval('customer_id_seq')", Long.class);
+                blockNext = Math.max(1, upper - ID_BLOCK_SIZE + 1);
+                blockLast = upper;
+            }
+            return blockNext++;
+        } finally {
+            blockLock.unlock();
+        }
+    }
+
+    /**
+     * Bucket a customer ID belongs to. Matches the expression of the {@code customer_bucket_idx} index.
+     */
+    public static int bucketOf(long id) {
+        if (id <= Integer.MAX_VALUE) {
+            return (int) id & (BUCKETS - 1);
+        }
+        return (int) (id >>> (NODE_BITS + SEQUENCE_BITS)) & (BUCKETS - 1);
+    }
+
+    /**
+     * Bucket of a new customer with the given email.
+     */
+    public static int bucketOf(String email) {
+        int hash = email.hashCode();
+        return (hash ^ (hash >>> 16)) & (BUCKETS - 1);
+    }
+}
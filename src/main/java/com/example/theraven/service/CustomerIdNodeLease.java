@@ -0,0 +1,126 @@
+package com.example.theraven.service;
+
+import com.example.theraven.repository.CustomerShardDirectoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node number of this instance in the customer IDs it issues while customers are sharded, leased in the shard
+ * directory so no two running instances share one. Taken at startup, which fails if no number is free or the
+ * configured one is held by another instance, renewed in the background and given back on shutdown.
+ * An instance that cannot renew its lease stops issuing IDs once it runs out, as another instance may then
+ * take the number over.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "theraven.sharding", name = "enabled", havingValue = "true")
+public class CustomerIdNodeLease {
+
+    private final CustomerShardDirectoryRepository customerShardDirectoryRepository;
+    private final int configuredNode;
+    private final long leaseMillis;
+    private final String holder = UUID.randomUUID().toString();
+
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-id-node-lease").daemon().factory());
+
+    private volatile int node = -1;
+    // System.nanoTime() at which the lease runs out, counted from before the statement that took or renewed it
+    private volatile long validUntil;
+
+    public CustomerIdNodeLease(CustomerShardDirectoryRepository customerShardDirectoryRepository,
+                               @Value("${theraven.customers.ids.node:-1}") int configuredNode,
+                               @Value("${theraven.customers.ids.node-lease-ms:30000}") long leaseMillis) {
+        if (configuredNode >= CustomerIdGenerator.NODES) {
+            throw new IllegalArgumentException("theraven.customers.ids.node must be below " + CustomerIdGenerator.NODES);
+        }
+        this.customerShardDirectoryRepository = customerShardDirectoryRepository;
+        this.configuredNode = configuredNode;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Take the lease at startup rather than on the first insert, and keep renewing it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        node();
+        renewer.scheduleWithFixedDelay(this::renew, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This instance's node number.
+     *
+     * @throws IllegalStateException If the lease has run out without being renewed
+     */
+    public int node() {
+        int current = node;
+        if (current < 0) {
+            synchronized (this) {
+                if (node < 0) {
+                    lease();
+                }
+                current = node;
+            }
+        }
+        if (System.nanoTime() - validUntil > 0) {
+            throw new IllegalStateException("Lease of customer ID node " + current + " has run out");
+        }
+        return current;
+    }
+
+    private void lease() {
+        long startedAt = System.nanoTime();
+        int leased;
+        if (configuredNode >= 0) {
+            if (!customerShardDirectoryRepository.leaseNode(configuredNode, holder, leaseMillis)) {
+                throw new IllegalStateException("Customer ID node " + configuredNode + " is leased by another instance");
+            }
+            leased = configuredNode;
+        } else {
+            leased = customerShardDirectoryRepository.leaseAnyNode(holder, leaseMillis).orElseThrow(() ->
+                    new IllegalStateException("All " + CustomerIdGenerator.NODES + " customer ID nodes are leased"));
+        }
+        validUntil = startedAt + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        node = leased;
+        log.info("Issuing customer IDs as node {}", leased);
+    }
+
+    private void renew() {
+        try {
+            long startedAt = System.nanoTime();
+            if (customerShardDirectoryRepository.renewNode(node, holder, leaseMillis)) {
+                validUntil = startedAt + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+                return;
+            }
+            log.warn("Lease of customer ID node {} ran out, leasing a node again", node);
+            synchronized (this) {
+                lease();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to renew the lease of customer ID node {}", node, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+        if (node >= 0) {
+            try {
+                customerShardDirectoryRepository.releaseNode(node, holder);
+            } catch (RuntimeException e) {
+                log.warn("Failed to release customer ID node {}", node, e);
+            }
+        }
+    }
+}
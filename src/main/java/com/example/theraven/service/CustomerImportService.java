@@ -0,0 +1,244 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.CacheConfig;
+import com.example.theraven.dto.CustomerImportError;
+import com.example.theraven.dto.CustomerImportJob;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.exception.ShardingUnsupportedException;
+import com.example.theraven.repository.CustomerImportRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports customers from CSV uploads in the background.
+ * The file is read as a stream in chunks. Chunks are validated in parallel on a worker pool while the
+ * import thread loads the previous ones in order, so at most {@code parallelism + 1} chunks are in memory.
+ * Every chunk is upserted on email in its own transaction: a failed import keeps the chunks loaded before
+ * the failure, and running the same file again is safe.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+public class CustomerImportService {
+
+    private static final ObjectReader CSV_ROWS = new CsvMapper()
+            .enable(CsvParser.Feature.WRAP_AS_ARRAY)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .readerFor(String[].class);
+
+    private final CustomerImportRepository customerImportRepository;
+    private final CustomerStatsService customerStatsService;
+    private final CustomerValidator customerValidator;
+    private final CacheManager cacheManager;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final int parallelism;
+    private final boolean sharded;
+
+    private final Cache<String, CustomerImportJob> jobs;
+    private final ExecutorService runner;
+    private final ExecutorService validators;
+
+    public CustomerImportService(CustomerImportRepository customerImportRepository,
+                                 CustomerStatsService customerStatsService,
+                                 CustomerValidator customerValidator,
+                                 CacheManager cacheManager,
+                                 @Value("${theraven.customers.import.chunk-size:10000}") int chunkSize,
+                                 @Value("${theraven.customers.import.max-errors:10000}") int maxErrors,
+                                 @Value("${theraven.customers.import.parallelism:0}") int parallelism,
+                                 @Value("${theraven.customers.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                 @Value("${theraven.customers.import.job-retention-minutes:60}") long jobRetentionMinutes,
+                                 @Value("${theraven.sharding.enabled:false}") boolean sharded) {
+        this.customerImportRepository = customerImportRepository;
+        this.customerStatsService = customerStatsService;
+        this.customerValidator = customerValidator;
+        this.cacheManager = cacheManager;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.sharded = sharded;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(jobRetentionMinutes))
+                .build();
+        this.runner = Executors.newFixedThreadPool(maxConcurrentJobs,
+                Thread.ofPlatform().name("customer-import-", 0).daemon().factory());
+        this.validators = Executors.newFixedThreadPool(this.parallelism,
+                Thread.ofPlatform().name("customer-import-validator-", 0).daemon().factory());
+    }
+
+    /**
+     * Start importing a CSV file of customers.
+     * The header row names the columns: {@code fullName} (or {@code full_name}), {@code email} and
+     * optionally {@code phone}; other columns are ignored. Each row creates a customer or, if the email
+     * exists, updates its name and phone.
+     *
+     * @param file Uploaded CSV file
+     * @return Queued import job
+     * @throws IOException If the upload cannot be stored for the import
+     * @throws ShardingUnsupportedException If customers are sharded; imports upsert into a single database
+     */
+    public CustomerImportJob startImport(MultipartFile file) throws IOException {
+        if (sharded) {
+            throw new ShardingUnsupportedException("Customer import");
+        }
+        // The container deletes the upload when the request ends, so keep a copy for the background job
+        Path upload = Files.createTempFile("customer-import-", ".csv");
+        file.transferTo(upload);
+        CustomerImportJob job = new CustomerImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(), maxErrors);
+        jobs.put(job.getId(), job);
+        log.info("Queued customer import {} of {} ({} bytes)", job.getId(), job.getFileName(), file.getSize());
+        runner.execute(() -> run(job, upload));
+        return job;
+    }
+
+    /**
+     * Retrieve an import job.
+     *
+     * @param id Import job ID
+     * @return The job, or empty if it is unknown or expired
+     */
+    public Optional<CustomerImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id));
+    }
+
+    private void run(CustomerImportJob job, Path upload) {
+        job.start();
+        try (Reader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8);
+             MappingIterator<String[]> rows = CSV_ROWS.readValues(reader);
+             CustomerImportRepository.Session session = customerImportRepository.openSession()) {
+            Columns columns = Columns.of(rows.hasNextValue() ? rows.nextValue() : new String[0]);
+            Deque<CompletableFuture<ValidatedChunk>> inFlight = new ArrayDeque<>();
+            List<CustomerImportRepository.Row> chunk = new ArrayList<>(chunkSize);
+            long row = 0;
+            while (rows.hasNextValue()) {
+                chunk.add(new CustomerImportRepository.Row(++row, columns.toCustomer(rows.nextValue())));
+                if (chunk.size() == chunkSize) {
+                    inFlight.add(validateAsync(chunk));
+                    job.read(chunk.size());
+                    chunk = new ArrayList<>(chunkSize);
+                    if (inFlight.size() > parallelism) {
+                        load(job, session, inFlight.poll().join());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(validateAsync(chunk));
+                job.read(chunk.size());
+            }
+            while (!inFlight.isEmpty()) {
+                load(job, session, inFlight.poll().join());
+            }
+            job.complete();
+            log.info("Customer import {} completed: {} rows, {} created, {} updated, {} rejected in {} ms",
+                    job.getId(), job.getRowsRead(), job.getRowsCreated(), job.getRowsUpdated(),
+                    job.getRowsRejected(), job.getFinishedAt() - job.getStartedAt());
+        } catch (Exception e) {
+            log.warn("Customer import {} failed after {} rows", job.getId(), job.getRowsRead(), e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                log.warn("Failed to delete import upload {}", upload, e);
+            }
+        }
+    }
+
+    private CompletableFuture<ValidatedChunk> validateAsync(List<CustomerImportRepository.Row> chunk) {
+        return CompletableFuture.supplyAsync(() -> validate(chunk), validators);
+    }
+
+    private ValidatedChunk validate(List<CustomerImportRepository.Row> chunk) {
+        List<CustomerImportRepository.Row> valid = new ArrayList<>(chunk.size());
+        List<CustomerImportError> errors = new ArrayList<>();
+        for (CustomerImportRepository.Row row : chunk) {
+            List<String> violations = customerValidator.validate(row.customer());
+            if (violations.isEmpty()) {
+                valid.add(row);
+            } else {
+                errors.add(new CustomerImportError(row.row(), violations));
+            }
+        }
+        return new ValidatedChunk(valid, errors);
+    }
+
+    private void load(CustomerImportJob job, CustomerImportRepository.Session session, ValidatedChunk chunk)
+            throws Exception {
+        job.rejected(chunk.errors());
+        if (chunk.valid().isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        CustomerImportRepository.LoadResult result = session.load(chunk.valid(), now);
+        job.loaded(result.created(), result.updated());
+        customerStatsService.recordCreated(now, result.created());
+        customerStatsService.recordUpdated(now, result.updatedIds().size());
+        org.springframework.cache.Cache customers = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        if (customers != null) {
+            result.updatedIds().forEach(customers::evict);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        validators.shutdownNow();
+    }
+
+    private record ValidatedChunk(List<CustomerImportRepository.Row> valid, List<CustomerImportError> errors) {
+    }
+
+    /**
+     * Positions of the customer fields in the CSV rows, taken from the header.
+     */
+    private record Columns(int fullName, int email, int phone) {
+
+        static Columns of(String[] header) {
+            List<String> names = Arrays.stream(header)
+                    .map(name -> name.replace("\uFEFF", "").replace("_", "").toLowerCase(Locale.ROOT))
+                    .toList();
+            Columns columns = new Columns(names.indexOf("fullname"), names.indexOf("email"), names.indexOf("phone"));
+            if (columns.fullName < 0 || columns.email < 0) {
+                throw new IllegalArgumentException("CSV header must name the fullName and email columns");
+            }
+            return columns;
+        }
+
+        Customer toCustomer(String[] values) {
+            return new Customer(null, null, null, value(values, fullName), value(values, email), value(values, phone), null);
+        }
+
+        private static String value(String[] values, int index) {
+            return index >= 0 && index < values.length && !values[index].isEmpty() ? values[index] : null;
+        }
+    }
+}
@@ -1,21 +1,95 @@
 package com.example.theraven.service;
 
+import com.example.theraven.config.CacheConfig;
+import com.example.theraven.config.ReplicaRoutingDataSource;
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerCursor;
+import com.example.theraven.dto.CustomerField;
+import com.example.theraven.dto.CustomerFieldsPage;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.dto.CustomerSearchCursor;
 import com.example.theraven.entity.Customer;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.exception.CustomerVersionMismatchException;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.exception.InvalidSearchException;
 import com.example.theraven.repository.CustomerRepository;
+import com.example.theraven.repository.CustomerSearchRepository;
 import com.example.theraven.service.interfaces.CustomerService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@Profile("!reactive")
 @RequiredArgsConstructor
+@Timed(value = "customer.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class CustomerServiceImpl implements CustomerService {
 
+    private static final int MIN_SEARCH_NAME_LENGTH = 3;
+    static final String EMAIL_CONSTRAINT = "customer_email_key";
+    /**
+     * Attempts of a bulk create that keeps losing emails to concurrent writers.
+     */
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final CustomerValidator customerValidator;
+    private final CustomerBatchLoader customerBatchLoader;
+    private final CustomerChangeFeed customerChangeFeed;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerStatsService customerStatsService;
+    private final CacheManager cacheManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${theraven.customers.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${theraven.customers.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
 
     /**
      * Retrieve all customers.
@@ -23,22 +97,260 @@ public class CustomerServiceImpl implements CustomerService {
      * @return List of customers
      */
     @Override
+    @Transactional(readOnly = true)
     public List<Customer> getAllCustomers() {
-        log.info("Fetching all customers");
+        log.debug("Fetching all customers");
         return customerRepository.findAll();
     }
 
+    /**
+     * Retrieve one page of customers using keyset pagination on ID.
+     *
+     * @param cursor       Cursor returned by the previous page, {@code null} for the first page
+     * @param limit        Requested page size, capped at the configured maximum
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis, exclusive)
+     * @return Page of customers with the cursor for the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerPage getCustomersPage(String cursor, Integer limit, Boolean isActive, Long updatedAfter) {
+        long afterId = CustomerCursor.decode(cursor);
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        log.debug("Fetching customers page after ID: {} with size: {}", afterId, size);
+        // Fetch one extra row to learn whether a next page exists without a count query
+        List<Customer> rows = Boolean.TRUE.equals(isActive)
+                ? customerRepository.findActivePageAfter(afterId, updatedAfter, Limit.of(size + 1))
+                : customerRepository.findPageAfter(afterId, isActive, updatedAfter, Limit.of(size + 1));
+        if (rows.size() <= size) {
+            return new CustomerPage(rows, null);
+        }
+        List<Customer> items = rows.subList(0, size);
+        return new CustomerPage(items, CustomerCursor.encode(items.get(size - 1).getId()));
+    }
+
+    /**
+     * Retrieve one page of customers reduced to the selected fields.
+     * Only the selected columns are read and no entities are loaded.
+     *
+     * @param fields       Fields to return
+     * @param cursor       Cursor returned by the previous page, {@code null} for the first page
+     * @param limit        Requested page size, capped at the configured maximum
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis, exclusive)
+     * @return Page of projected customers with the cursor for the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerFieldsPage getCustomerFieldsPage(Set<CustomerField> fields, String cursor, Integer limit,
+                                                    Boolean isActive, Long updatedAfter) {
+        long afterId = CustomerCursor.decode(cursor);
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        log.debug("Fetching {} of customers page after ID: {} with size: {}", fields, afterId, size);
+        List<Map<String, Object>> rows = customerRepository.findFieldsPageAfter(fields, afterId, isActive,
+                updatedAfter, size + 1);
+        if (rows.size() <= size) {
+            return new CustomerFieldsPage(rows, null);
+        }
+        List<Map<String, Object>> items = rows.subList(0, size);
+        return new CustomerFieldsPage(items,
+                CustomerCursor.encode((Long) items.get(size - 1).get(CustomerField.ID.property())));
+    }
+
+    /**
+     * Search customers by email, phone or name using keyset pagination.
+     * Criteria that are supplied must all match; at least one is required. Results are ordered by email
+     * for an email prefix, by phone for a phone prefix and by ID otherwise.
+     *
+     * @param email       Exact email
+     * @param emailPrefix Start of the email
+     * @param phonePrefix Start of the phone number
+     * @param name        Case-insensitive part of the full name, at least 3 characters
+     * @param cursor      Cursor returned by the previous page, {@code null} for the first page
+     * @param limit       Requested page size, capped at the configured maximum
+     * @return Page of matching customers with the cursor for the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerPage searchCustomers(String email, String emailPrefix, String phonePrefix, String name,
+                                        String cursor, Integer limit) {
+        email = blankToNull(email);
+        emailPrefix = blankToNull(emailPrefix);
+        phonePrefix = blankToNull(phonePrefix);
+        name = blankToNull(name);
+        if (email == null && emailPrefix == null && phonePrefix == null && name == null) {
+            throw new InvalidSearchException("At least one of email, emailPrefix, phonePrefix or name is required");
+        }
+        // Shorter names have no trigram to look up, so the index could not narrow the scan
+        if (name != null && name.length() < MIN_SEARCH_NAME_LENGTH) {
+            throw new InvalidSearchException("name must be at least " + MIN_SEARCH_NAME_LENGTH + " characters");
+        }
+        CustomerSearchCursor after = CustomerSearchCursor.decode(cursor);
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        log.debug("Searching customers after: {} with size: {}", after, size);
+        List<Customer> rows = customerRepository.search(email, emailPrefix, phonePrefix, name, after, size + 1);
+        if (rows.size() <= size) {
+            return new CustomerPage(rows, null);
+        }
+        List<Customer> items = rows.subList(0, size);
+        return new CustomerPage(items,
+                CustomerSearchRepository.cursorOf(items.get(size - 1), emailPrefix, phonePrefix).encode());
+    }
+
+    static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Write every customer to the stream as newline-delimited JSON.
+     * Rows are read through a database cursor and detached as soon as they are written,
+     * so memory use does not grow with the table size.
+     *
+     * @param out Destination stream, left open for the caller
+     * @throws IOException If writing to the stream fails
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCustomers(OutputStream out) throws IOException {
+        log.info("Exporting all customers");
+        long written;
+        try (Stream<Customer> customers = customerRepository.streamAll()) {
+            written = writeNdjson(objectMapper, customers.iterator(), entityManager::detach, out);
+        }
+        log.info("Exported {} customers", written);
+    }
+
+    /**
+     * Write the selected fields of every customer to the stream as newline-delimited JSON.
+     * Only the selected columns are read and no entities are loaded.
+     *
+     * @param fields Fields to write
+     * @param out    Destination stream, left open for the caller
+     * @throws IOException If writing to the stream fails
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCustomerFields(Set<CustomerField> fields, OutputStream out) throws IOException {
+        log.info("Exporting {} of all customers", fields);
+        long written;
+        try (Stream<Map<String, Object>> rows = customerRepository.streamFields(fields)) {
+            written = writeNdjson(objectMapper, rows.iterator(), row -> {
+            }, out);
+        }
+        log.info("Exported {} customers", written);
+    }
+
+    static <T> long writeNdjson(ObjectMapper objectMapper, Iterator<T> rows, Consumer<T> afterWrite, OutputStream out)
+            throws IOException {
+        int flushEvery = Integer.parseInt(CustomerRepository.STREAM_FETCH_SIZE);
+        // Without the per-value flush Jackson does by default, so only the batched flushes below reach the stream
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long written = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                T row = rows.next();
+                writer.writeValue(generator, row);
+                generator.writeRaw('\n');
+                afterWrite.accept(row);
+                // Flush the first row immediately so clients see bytes before the whole batch is read
+                if (++written == 1 || written % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return written;
+    }
+
     /**
      * Retrieve a customer by ID.
+     * Served from the customer cache when present; writes below keep the cached entry current.
+     * Cache misses go through the batch loader, so concurrent lookups share a query.
+     * Callers pinned to the primary read directly, since the loader's shared reads may use the replica.
+     * The cache holds a detached copy, never an entity a persistence context may still change or flush.
      *
      * @param id Customer ID
      * @return Customer details
      */
     @Override
+    @Cacheable(cacheNames = CacheConfig.CUSTOMERS_CACHE, key = "#id", sync = true)
     public Customer getCustomerById(Long id) {
-        log.info("Fetching customer by ID: {}", id);
-        return customerRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Customer not found with ID: " + id));
+        log.debug("Fetching customer by ID: {}", id);
+        Optional<Customer> customer = ReplicaRoutingDataSource.isPinnedToPrimary()
+                ? customerRepository.findById(id)
+                : customerBatchLoader.get(id);
+        return detached(customer.orElseThrow(notFound(id)));
+    }
+
+    /**
+     * Retrieve several customers by ID.
+     * Cached customers are served from the customer cache; the rest are read with a single query
+     * through the batch loader, or directly for callers pinned to the primary, and added to the cache.
+     *
+     * @param ids Customer IDs
+     * @return Customers that exist, in request order; unknown IDs are skipped
+     */
+    @Override
+    public List<Customer> getCustomersByIds(List<Long> ids) {
+        log.debug("Fetching {} customers by ID", ids.size());
+        List<Long> distinct = ids.stream().distinct().toList();
+        Cache cache = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        Map<Long, Customer> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinct) {
+            Customer cached = cache == null ? null : cache.get(id, Customer.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Customer> loaded = ReplicaRoutingDataSource.isPinnedToPrimary()
+                    ? customerRepository.findAllByIdIn(missing.toArray(Long[]::new))
+                    : customerBatchLoader.getAll(missing);
+            for (Customer customer : loaded) {
+                Customer copy = detached(customer);
+                found.put(copy.getId(), copy);
+                // A write committed meanwhile has put a newer row, keep that one
+                if (cache != null) {
+                    cache.putIfAbsent(copy.getId(), copy);
+                }
+            }
+        }
+        return distinct.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Retrieve selected fields of several customers with a single query.
+     * Reads the database directly, without the customer cache.
+     *
+     * @param fields Fields to return
+     * @param ids    Customer IDs
+     * @return Projected customers that exist, in request order; unknown IDs are skipped
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getCustomerFieldsByIds(Set<CustomerField> fields, List<Long> ids) {
+        log.debug("Fetching {} of {} customers by ID", fields, ids.size());
+        Map<Object, Map<String, Object>> found = customerRepository.findFieldsByIdIn(fields, ids.toArray(Long[]::new))
+                .stream()
+                .collect(Collectors.toMap(row -> row.get(CustomerField.ID.property()), Function.identity()));
+        return ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Check whether an email is free for a new customer.
+     * Emails the filter has never seen are answered from memory; the rest are looked up in the email index.
+     *
+     * @param email Email to check
+     * @return Whether no customer has the email
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isEmailAvailable(String email) {
+        return !customerEmailFilter.mightExist(email) || !customerRepository.existsByEmail(email);
     }
 
     /**
@@ -46,45 +358,230 @@ public class CustomerServiceImpl implements CustomerService {
      *
      * @param customer Customer details
      * @return Created customer details
+     * @throws DuplicateEmailException If a customer already has the email
      */
     @Override
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.CUSTOMERS_CACHE, key = "#result.id")
     public Customer createCustomer(Customer customer) {
-        log.info("Creating a new customer: {}", customer);
+        // Fail a known duplicate before the insert instead of through a constraint violation and rollback
+        if (customerEmailFilter.mightExist(customer.getEmail()) && customerRepository.existsByEmail(customer.getEmail())) {
+            throw new DuplicateEmailException(customer.getEmail());
+        }
         customer.setCreated(System.currentTimeMillis());
         customer.setUpdated(System.currentTimeMillis());
         customer.setIsActive(true);
-        return customerRepository.save(customer);
+        Customer created;
+        try {
+            // Flushed here, so an email the filter has not seen yet fails in this method rather than at commit
+            created = customerRepository.saveAndFlush(customer);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw new DuplicateEmailException(customer.getEmail());
+            }
+            throw e;
+        }
+        customerChangeFeed.record(CustomerChange.Type.CREATED, created);
+        customerEmailFilter.add(created.getEmail());
+        customerStatsService.recordCreated(created.getCreated(), 1);
+        log.debug("Created customer with ID: {}", created.getId());
+        return detached(created);
+    }
+
+    /**
+     * Create many customers in one transaction.
+     * Every element is validated and checked for duplicate emails first; the valid ones are
+     * persisted together with their outbox rows and flushed in JDBC batches, clearing the
+     * persistence context after each batch.
+     * The email filter lags behind writes of other instances, so an email it has not seen yet can still
+     * fail the insert; the transaction is then rolled back and run again with every email checked in the table.
+     *
+     * @param customers Customers to create
+     * @return Result for every element, in request order
+     */
+    @Override
+    public List<CustomerBatchResult> createCustomers(List<Customer> customers) {
+        log.info("Creating {} customers in batches of {}", customers.size(), batchSize);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            boolean checkAllEmails = attempt > 1;
+            try {
+                return transaction.execute(status -> insertCustomers(customers, checkAllEmails));
+            } catch (RuntimeException e) {
+                if (!isDuplicateEmail(e) || attempt == MAX_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Bulk create hit an existing email the filter did not know, retrying with every email checked");
+            }
+        }
+    }
+
+    private List<CustomerBatchResult> insertCustomers(List<Customer> customers, boolean checkAllEmails) {
+        List<CustomerBatchResult> results = new ArrayList<>(customers.size());
+        Set<String> seenEmails = new HashSet<>();
+        List<Customer> accepted = new ArrayList<>(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            List<String> errors = customerValidator.validate(customer);
+            if (!errors.isEmpty()) {
+                results.add(new CustomerBatchResult(i, CustomerBatchResult.Status.INVALID, null, errors));
+            } else if (!seenEmails.add(customer.getEmail())) {
+                results.add(CustomerBatchResult.duplicate(i));
+            } else {
+                results.add(null);
+                accepted.add(customer);
+            }
+        }
+        Set<String> existingEmails = findExistingEmails(accepted, checkAllEmails);
+
+        long now = System.currentTimeMillis();
+        int pending = 0;
+        for (int i = 0; i < customers.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            Customer customer = customers.get(i);
+            if (existingEmails.contains(customer.getEmail())) {
+                results.set(i, CustomerBatchResult.duplicate(i));
+                continue;
+            }
+            customer.setId(null);
+            customer.setCreated(now);
+            customer.setUpdated(now);
+            customer.setIsActive(true);
+            entityManager.persist(customer);
+            customerChangeFeed.record(CustomerChange.Type.CREATED, customer);
+            customerEmailFilter.add(customer.getEmail());
+            results.set(i, new CustomerBatchResult(i, CustomerBatchResult.Status.CREATED, customer.getId(), List.of()));
+            if (++pending % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        customerStatsService.recordCreated(now, pending);
+        return results;
+    }
+
+    private Set<String> findExistingEmails(List<Customer> customers, boolean checkAllEmails) {
+        // Only emails the filter cannot rule out need a lookup
+        List<String> candidates = customers.stream()
+                .map(Customer::getEmail)
+                .filter(email -> checkAllEmails || customerEmailFilter.mightExist(email))
+                .toList();
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            List<String> emails = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+            existing.addAll(customerRepository.findExistingEmails(emails));
+        }
+        return existing;
+    }
+
+    /**
+     * Whether a failed write violated the unique email constraint.
+     */
+    static boolean isDuplicateEmail(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return EMAIL_CONSTRAINT.equals(violation.getConstraintName());
+            }
+        }
+        return false;
     }
 
     /**
      * Update an existing customer.
+     * Runs as a single UPDATE ... RETURNING statement, without reading the row first.
      *
      * @param id              Customer ID
      * @param customerDetails Updated customer details
+     * @param expectedUpdated Version the customer must still have, or null to skip the check
      * @return Updated customer details
      */
     @Override
-    public Customer updateCustomer(Long id, Customer customerDetails) {
-        log.info("Updating customer with ID: {} and details: {}", id, customerDetails);
-        Customer customer = getCustomerById(id);
-        customer.setFullName(customerDetails.getFullName());
-        customer.setEmail(customerDetails.getEmail());
-        customer.setPhone(customerDetails.getPhone());
-        customer.setUpdated(System.currentTimeMillis());
-        return customerRepository.save(customer);
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.CUSTOMERS_CACHE, key = "#id")
+    public Customer updateCustomer(Long id, Customer customerDetails, Long expectedUpdated) {
+        log.debug("Updating customer with ID: {}", id);
+        Customer updated = customerRepository.updateDetails(id, customerDetails.getFullName(),
+                        customerDetails.getEmail(), customerDetails.getPhone(), System.currentTimeMillis(), expectedUpdated)
+                .orElseThrow(notUpdated(id, expectedUpdated));
+        customerChangeFeed.record(CustomerChange.Type.UPDATED, updated);
+        customerEmailFilter.add(updated.getEmail());
+        customerStatsService.recordUpdated(updated.getUpdated(), 1);
+        return detached(updated);
+    }
+
+    /**
+     * Partially update an existing customer.
+     * Only the supplied fields are written, in a single UPDATE ... RETURNING statement.
+     *
+     * @param id              Customer ID
+     * @param patch           Fields to change
+     * @param expectedUpdated Version the customer must still have, or null to skip the check
+     * @return Updated customer details
+     */
+    @Override
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.CUSTOMERS_CACHE, key = "#id")
+    public Customer patchCustomer(Long id, CustomerPatch patch, Long expectedUpdated) {
+        log.debug("Patching customer with ID: {}", id);
+        Customer patched = customerRepository.patchDetails(id, patch.getFullName(), patch.getEmail(),
+                        patch.getPhone(), System.currentTimeMillis(), expectedUpdated)
+                .orElseThrow(notUpdated(id, expectedUpdated));
+        customerChangeFeed.record(CustomerChange.Type.UPDATED, patched);
+        customerEmailFilter.add(patched.getEmail());
+        customerStatsService.recordUpdated(patched.getUpdated(), 1);
+        return detached(patched);
     }
 
     /**
      * Delete a customer by ID.
+     * The customer is deactivated in a single UPDATE ... RETURNING statement. Deleting an inactive customer
+     * again returns it unchanged and records no change.
      *
-     * @param id Customer ID
+     * @param id              Customer ID
+     * @param expectedUpdated Version the customer must still have, or null to skip the check
      * @return Deleted customer details
      */
     @Override
-    public Customer deleteCustomer(Long id) {
-        log.info("Deleting customer by ID: {}", id);
-        Customer customer = getCustomerById(id);
-        customer.setIsActive(false);
-        return customerRepository.save(customer);
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.CUSTOMERS_CACHE, key = "#id")
+    public Customer deleteCustomer(Long id, Long expectedUpdated) {
+        log.debug("Deleting customer by ID: {}", id);
+        Optional<Customer> deactivated = customerRepository.deactivate(id, System.currentTimeMillis(), expectedUpdated);
+        if (deactivated.isEmpty()) {
+            return customerRepository.findById(id)
+                    .filter(customer -> !Boolean.TRUE.equals(customer.getIsActive()))
+                    .filter(customer -> expectedUpdated == null || expectedUpdated.equals(customer.getUpdated()))
+                    .map(CustomerServiceImpl::detached)
+                    .orElseThrow(notUpdated(id, expectedUpdated));
+        }
+        Customer deleted = deactivated.get();
+        customerChangeFeed.record(CustomerChange.Type.DELETED, deleted);
+        customerStatsService.recordDeleted(deleted.getUpdated());
+        return detached(deleted);
+    }
+
+    /**
+     * Copy of a customer that no persistence context tracks, for the cache and the caller.
+     */
+    private static Customer detached(Customer customer) {
+        return new Customer(customer.getId(), customer.getCreated(), customer.getUpdated(), customer.getFullName(),
+                customer.getEmail(), customer.getPhone(), customer.getIsActive());
+    }
+
+    /**
+     * Explain why a conditional write matched no row. Only this failure path pays for the extra lookup.
+     */
+    private Supplier<RuntimeException> notUpdated(Long id, Long expectedUpdated) {
+        return () -> expectedUpdated != null && customerRepository.existsById(id)
+                ? new CustomerVersionMismatchException(id)
+                : notFound(id).get();
+    }
+
+    private static Supplier<NoSuchElementException> notFound(Long id) {
+        return () -> new NoSuchElementException("Customer not found with ID: " + id);
     }
 }
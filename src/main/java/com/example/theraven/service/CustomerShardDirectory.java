@@ -0,0 +1,237 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.config.ShardingProperties;
+import com.example.theraven.exception.CustomerBucketMovingException;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.repository.CustomerRepository;
+import com.example.theraven.repository.CustomerShardDirectoryRepository;
+import com.example.theraven.repository.CustomerShardDirectoryRepository.Bucket;
+import com.example.theraven.repository.CustomerShardDirectoryRepository.EmailEntry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Where customers are stored when sharding is enabled.
+ * Holds the bucket-to-shard assignment in memory, re-read periodically so a rebalance reaches every instance,
+ * and claims emails in the email index so they stay unique across shards. The index is only trusted to say
+ * which shard to ask: an entry whose customer is not on that shard, e.g. after the customer changed their email,
+ * is stale and is taken over by the next customer claiming the email.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "theraven.sharding", name = "enabled", havingValue = "true")
+public class CustomerShardDirectory {
+
+    private final CustomerShardDirectoryRepository customerShardDirectoryRepository;
+    private final CustomerRepository customerRepository;
+    private final int shardCount;
+    private final long emailClaimTimeoutMillis;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-shard-directory").daemon().factory());
+
+    private volatile Assignment assignment;
+
+    public CustomerShardDirectory(CustomerShardDirectoryRepository customerShardDirectoryRepository,
+                                  CustomerRepository customerRepository,
+                                  ShardRoutingDataSource shardRoutingDataSource,
+                                  ShardingProperties properties) {
+        this.customerShardDirectoryRepository = customerShardDirectoryRepository;
+        this.customerRepository = customerRepository;
+        this.shardCount = shardRoutingDataSource.getShardCount();
+        this.emailClaimTimeoutMillis = properties.getEmailClaimTimeoutMs();
+        refresh();
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh the customer shard directory, routing with the last one", e);
+            }
+        }, properties.getDirectoryRefreshMs(), properties.getDirectoryRefreshMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Bucket assignment at one point in time.
+     */
+    private record Assignment(int[] shards, BitSet moving) {
+    }
+
+    /**
+     * Outcome of claiming emails.
+     *
+     * @param claimed    Emails claimed by this call, to release if their customers are not stored after all
+     * @param duplicates Emails held by other customers
+     */
+    public record EmailClaims(Set<String> claimed, Set<String> duplicates) {
+    }
+
+    /**
+     * Re-read the bucket assignment.
+     */
+    public void refresh() {
+        List<Bucket> buckets = customerShardDirectoryRepository.findBuckets();
+        if (buckets.size() != CustomerIdGenerator.BUCKETS) {
+            throw new IllegalStateException("Expected " + CustomerIdGenerator.BUCKETS + " buckets in the shard directory, found "
+                    + buckets.size());
+        }
+        int[] shards = new int[CustomerIdGenerator.BUCKETS];
+        BitSet moving = new BitSet(CustomerIdGenerator.BUCKETS);
+        for (Bucket bucket : buckets) {
+            if (bucket.shard() >= shardCount) {
+                throw new IllegalStateException("Bucket " + bucket.bucket() + " is on shard " + bucket.shard()
+                        + ", but only " + shardCount + " shards are configured");
+            }
+            shards[bucket.bucket()] = bucket.shard();
+            moving.set(bucket.bucket(), bucket.moving());
+        }
+        assignment = new Assignment(shards, moving);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Shard storing a customer.
+     */
+    public int shardOf(long customerId) {
+        return shardOfBucket(CustomerIdGenerator.bucketOf(customerId));
+    }
+
+    public int shardOfBucket(int bucket) {
+        return assignment.shards()[bucket];
+    }
+
+    /**
+     * Shard to write customers of a bucket to.
+     *
+     * @throws CustomerBucketMovingException If the bucket is being moved to another shard
+     */
+    public int shardForWrite(int bucket) {
+        Assignment current = assignment;
+        if (current.moving().get(bucket)) {
+            throw new CustomerBucketMovingException(bucket);
+        }
+        return current.shards()[bucket];
+    }
+
+    /**
+     * Group customer IDs by the shard storing them.
+     */
+    public Map<Integer, List<Long>> partition(Collection<Long> customerIds) {
+        return customerIds.stream().collect(Collectors.groupingBy(this::shardOf, TreeMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Shard of the customer holding an email, if the index knows one.
+     */
+    public OptionalInt findEmailShard(String email) {
+        return customerShardDirectoryRepository.findEmail(email)
+                .map(entry -> OptionalInt.of(shardOfBucket(entry.bucket())))
+                .orElseGet(OptionalInt::empty);
+    }
+
+    /**
+     * Whether a stored customer has the email.
+     */
+    public boolean isEmailTaken(String email) {
+        Optional<EmailEntry> entry = customerShardDirectoryRepository.findEmail(email);
+        return entry.isPresent() && isStored(entry.get());
+    }
+
+    /**
+     * Claim an email for a customer about to be stored in a bucket.
+     *
+     * @return Whether this call claimed it; false if the bucket already held it, in which case the shard's
+     * unique index decides
+     * @throws DuplicateEmailException If another customer holds the email
+     */
+    public boolean claimEmail(String email, int bucket) {
+        EmailClaims claims = claimEmails(Map.of(email, bucket));
+        if (!claims.duplicates().isEmpty()) {
+            throw new DuplicateEmailException(email);
+        }
+        return !claims.claimed().isEmpty();
+    }
+
+    /**
+     * Claim emails for customers about to be stored, each in the given bucket. Emails the bucket already holds
+     * are neither claimed nor duplicates: the shard's unique index decides about them.
+     */
+    public EmailClaims claimEmails(Map<String, Integer> buckets) {
+        long now = System.currentTimeMillis();
+        Set<String> claimed = customerShardDirectoryRepository.claimEmails(buckets, now);
+        Set<String> duplicates = new HashSet<>();
+        buckets.forEach((email, bucket) -> {
+            if (claimed.contains(email)) {
+                return;
+            }
+            Optional<EmailEntry> entry = customerShardDirectoryRepository.findEmail(email);
+            if (entry.isEmpty()) {
+                // Released since the first attempt
+                if (customerShardDirectoryRepository.claimEmails(Map.of(email, bucket), now).isEmpty()) {
+                    duplicates.add(email);
+                } else {
+                    claimed.add(email);
+                }
+            } else if (entry.get().bucket() != bucket) {
+                if (isStale(entry.get(), now) && customerShardDirectoryRepository.takeOverEmail(entry.get(), bucket, now)) {
+                    claimed.add(email);
+                } else {
+                    duplicates.add(email);
+                }
+            }
+        });
+        return new EmailClaims(claimed, duplicates);
+    }
+
+    /**
+     * Give up claims whose customers were not stored. Best effort: a claim left behind becomes stale.
+     */
+    public void releaseEmails(Map<String, Integer> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        try {
+            customerShardDirectoryRepository.releaseEmails(buckets);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release {} claimed emails", buckets.size(), e);
+        }
+    }
+
+    /**
+     * A claim is stale once it is older than any customer transaction and its customer is not on the shard.
+     */
+    private boolean isStale(EmailEntry entry, long now) {
+        return now - entry.claimed() >= emailClaimTimeoutMillis && !isStored(entry);
+    }
+
+    private boolean isStored(EmailEntry entry) {
+        return ShardRoutingDataSource.callOn(shardOfBucket(entry.bucket()),
+                () -> customerRepository.existsByEmail(entry.email()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
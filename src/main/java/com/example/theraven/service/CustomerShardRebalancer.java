@@ -0,0 +1,241 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.config.ShardingProperties;
+import com.example.theraven.repository.CustomerShardDirectoryRepository;
+import com.example.theraven.repository.CustomerShardDirectoryRepository.Bucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the hash buckets evenly over the configured shards, e.g. after shards were added.
+ * Buckets are moved a few at a time while the application keeps serving: writes to a moving bucket are refused,
+ * its rows are copied to the new shard, the directory is switched, and once every instance has seen the switch
+ * the rows are deleted from the old shard. An interrupted run is finished by running it again.
+ */
+@Slf4j
+public class CustomerShardRebalancer {
+
+    // Same expression as customer_bucket_idx, so moves read and delete through the index
+    private static final String BUCKET = "(CASE WHEN id <= 2147483647 THEN id & 1023 ELSE (id >> 12) & 1023 END)";
+    // Arbitrary key of the advisory lock held by the running rebalance
+    private static final long LOCK_KEY = 0x7261766e;
+
+    private final CustomerShardDirectoryRepository customerShardDirectoryRepository;
+    private final ShardRoutingDataSource shards;
+    private final ShardingProperties.Rebalance settings;
+
+    public CustomerShardRebalancer(CustomerShardDirectoryRepository customerShardDirectoryRepository,
+                                   ShardRoutingDataSource shards,
+                                   ShardingProperties properties) {
+        this.customerShardDirectoryRepository = customerShardDirectoryRepository;
+        this.shards = shards;
+        this.settings = properties.getRebalance();
+    }
+
+    /**
+     * Index every stored email and move buckets until every shard holds the same number, give or take one.
+     *
+     * @return Number of buckets moved
+     */
+    public int rebalance() {
+        // A dedicated connection, since a session lock is released on the connection that took it
+        try (Connection lock = shards.getShard(0).getConnection()) {
+            if (!advisoryLock(lock, "pg_try_advisory_lock")) {
+                throw new IllegalStateException("Another rebalance is running");
+            }
+            try {
+                return rebalanceLocked();
+            } finally {
+                advisoryLock(lock, "pg_advisory_unlock");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to lock the shard directory", e);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private int rebalanceLocked() {
+        removeStrays();
+        indexEmails();
+        Map<Integer, Map<Integer, List<Integer>>> moves = plan(customerShardDirectoryRepository.findBuckets());
+        int moved = 0;
+        for (Map.Entry<Integer, Map<Integer, List<Integer>>> from : moves.entrySet()) {
+            for (Map.Entry<Integer, List<Integer>> to : from.getValue().entrySet()) {
+                List<Integer> buckets = to.getValue();
+                for (int start = 0; start < buckets.size(); start += settings.getBucketsPerStep()) {
+                    List<Integer> step = buckets.subList(start, Math.min(start + settings.getBucketsPerStep(), buckets.size()));
+                    move(step, from.getKey(), to.getKey());
+                    moved += step.size();
+                }
+            }
+        }
+        log.info("Rebalanced customers over {} shards, moved {} buckets", shards.getShardCount(), moved);
+        return moved;
+    }
+
+    /**
+     * Delete rows from shards their bucket is not assigned to, left by an interrupted move or by the seed data
+     * of a new shard's migrations, and reopen buckets an interrupted move left closed.
+     */
+    private void removeStrays() {
+        List<Bucket> buckets = customerShardDirectoryRepository.findBuckets();
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            int owner = shard;
+            Integer[] owned = buckets.stream().filter(bucket -> bucket.shard() == owner).map(Bucket::bucket)
+                    .toArray(Integer[]::new);
+            int deleted = jdbc(shard).update("DELETE FROM customer WHERE " + BUCKET + " <> ALL(CAST(? AS INTEGER[]))",
+                    (Object) owned);
+            if (deleted > 0) {
+                log.info("Deleted {} customers from shard {} that belong to other shards", deleted, shard);
+            }
+        }
+        List<Integer> moving = buckets.stream().filter(Bucket::moving).map(Bucket::bucket).toList();
+        if (!moving.isEmpty()) {
+            log.info("Reopening {} buckets left moving by an earlier run", moving.size());
+            customerShardDirectoryRepository.markMoving(moving, false);
+        }
+    }
+
+    /**
+     * Point the email index at every stored customer, e.g. customers written before sharding was enabled.
+     */
+    private void indexEmails() {
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            long afterId = 0;
+            int indexed = 0;
+            while (true) {
+                List<Map<String, Object>> rows = jdbc(shard).queryForList(
+                        "SELECT id, email FROM customer WHERE id > ? ORDER BY id LIMIT ?", afterId, settings.getBatchSize());
+                if (rows.isEmpty()) {
+                    break;
+                }
+                Map<String, Integer> buckets = new HashMap<>();
+                for (Map<String, Object> row : rows) {
+                    afterId = ((Number) row.get("id")).longValue();
+                    buckets.put((String) row.get("email"), CustomerIdGenerator.bucketOf(afterId));
+                }
+                indexed += customerShardDirectoryRepository.indexEmails(buckets, System.currentTimeMillis());
+            }
+            log.info("Indexed {} emails of shard {}", indexed, shard);
+        }
+    }
+
+    /**
+     * Buckets to move, by source and target shard. Shards holding more than their share give up their
+     * highest buckets to the shards holding the fewest.
+     */
+    static Map<Integer, Map<Integer, List<Integer>>> plan(List<Bucket> assignment, int shardCount) {
+        Map<Integer, List<Integer>> held = new TreeMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            held.put(shard, new ArrayList<>());
+        }
+        assignment.forEach(bucket -> held.get(bucket.shard()).add(bucket.bucket()));
+        int share = assignment.size() / shardCount;
+        int extra = assignment.size() % shardCount;
+        // The first shards keep the remainder
+        Map<Integer, Integer> target = new HashMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            target.put(shard, share + (shard < extra ? 1 : 0));
+        }
+        List<Integer> surplus = new ArrayList<>();
+        Map<Integer, Integer> sourceOf = new HashMap<>();
+        held.forEach((shard, buckets) -> {
+            Collections.sort(buckets);
+            for (int bucket : buckets.subList(Math.min(target.get(shard), buckets.size()), buckets.size())) {
+                surplus.add(bucket);
+                sourceOf.put(bucket, shard);
+            }
+        });
+        Map<Integer, Map<Integer, List<Integer>>> moves = new TreeMap<>();
+        int next = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int missing = target.get(shard) - held.get(shard).size(); missing > 0; missing--) {
+                int bucket = surplus.get(next++);
+                moves.computeIfAbsent(sourceOf.get(bucket), source -> new TreeMap<>())
+                        .computeIfAbsent(shard, to -> new ArrayList<>())
+                        .add(bucket);
+            }
+        }
+        return moves;
+    }
+
+    private Map<Integer, Map<Integer, List<Integer>>> plan(List<Bucket> assignment) {
+        Map<Integer, Map<Integer, List<Integer>>> moves = plan(assignment, shards.getShardCount());
+        Map<Integer, Long> counts = assignment.stream()
+                .collect(Collectors.groupingBy(Bucket::shard, TreeMap::new, Collectors.counting()));
+        log.info("Buckets per shard {}, moving {}", counts, moves.values().stream()
+                .flatMap(to -> to.entrySet().stream())
+                .collect(Collectors.toMap(Map.Entry::getKey, to -> to.getValue().size(), Integer::sum, LinkedHashMap::new)));
+        return moves;
+    }
+
+    private void move(List<Integer> buckets, int from, int to) {
+        log.info("Moving buckets {} from shard {} to shard {}", buckets, from, to);
+        Integer[] ids = buckets.toArray(Integer[]::new);
+        customerShardDirectoryRepository.markMoving(buckets, true);
+        pause();
+        // Leftovers of an earlier attempt would make the copy fail
+        jdbc(to).update("DELETE FROM customer WHERE " + BUCKET + " = ANY(CAST(? AS INTEGER[]))", (Object) ids);
+        long copied = copy(ids, from, to);
+        customerShardDirectoryRepository.assign(buckets, to);
+        pause();
+        int deleted = jdbc(from).update("DELETE FROM customer WHERE " + BUCKET + " = ANY(CAST(? AS INTEGER[]))",
+                (Object) ids);
+        log.info("Moved {} customers to shard {}, deleted {} from shard {}", copied, to, deleted, from);
+    }
+
+    private long copy(Integer[] buckets, int from, int to) {
+        long afterId = 0;
+        long copied = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbc(from).queryForList("SELECT * FROM customer WHERE " + BUCKET
+                    + " = ANY(CAST(? AS INTEGER[])) AND id > ? ORDER BY id LIMIT ?", buckets, afterId, settings.getBatchSize());
+            if (rows.isEmpty()) {
+                return copied;
+            }
+            List<String> columns = List.copyOf(rows.get(0).keySet());
+            String insert = "INSERT INTO customer (" + String.join(", ", columns) + ") VALUES ("
+                    + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+            jdbc(to).batchUpdate(insert, rows.stream()
+                    .map(row -> columns.stream().map(row::get).toArray())
+                    .toList());
+            afterId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+            copied += rows.size();
+        }
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return new JdbcTemplate(shards.getShard(shard));
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(settings.getGraceMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while moving buckets, run the rebalance again to finish", e);
+        }
+    }
+}
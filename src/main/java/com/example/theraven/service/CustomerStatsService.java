@@ -0,0 +1,315 @@
+package com.example.theraven.service;
+
+import com.example.theraven.dto.CustomerStats;
+import com.example.theraven.dto.CustomerStatsDay;
+import com.example.theraven.exception.InvalidStatsRangeException;
+import com.example.theraven.repository.CustomerStatsRepository;
+import com.example.theraven.repository.CustomerStatsRepository.DayCounts;
+import com.example.theraven.repository.CustomerStatsRepository.Snapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.example.theraven.repository.CustomerStatsRepository.DAY_MILLIS;
+
+/**
+ * Customer counts maintained incrementally, so reading them costs the same whatever the number of customers.
+ * Writes add to striped in-memory counters once their transaction commits. The counters are flushed to the
+ * summary tables every {@code flush-interval-ms}, and reads combine the last loaded summary with the counters
+ * not flushed yet. A periodic reconciliation recounts the summary from the base tables, correcting any drift,
+ * e.g. from deltas lost in a crash or a customer deleted twice. It sets the counts rather than adding to them,
+ * and an advisory lock lets only one instance recount at a time.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+public class CustomerStatsService {
+
+    private final CustomerStatsRepository customerStatsRepository;
+    private final long flushIntervalMillis;
+    private final long reconcileIntervalMinutes;
+    private final long changeRetentionMillis;
+    private final int defaultDays;
+    private final int maxDays;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("customer-stats").daemon().factory());
+    private final LongAdder active = new LongAdder();
+    private final LongAdder inactive = new LongAdder();
+    private final Map<Long, DayCounters> days = new ConcurrentHashMap<>();
+    // Swapping in a loaded summary and taking the flushed deltas out of the counters happen together
+    private final ReadWriteLock publishLock = new ReentrantReadWriteLock();
+
+    private Snapshot summary;
+
+    public CustomerStatsService(CustomerStatsRepository customerStatsRepository,
+                                @Value("${theraven.customers.stats.flush-interval-ms:1000}") long flushIntervalMillis,
+                                @Value("${theraven.customers.stats.reconcile-interval-minutes:60}") long reconcileIntervalMinutes,
+                                @Value("${theraven.customers.changes.retention-hours:168}") long changeRetentionHours,
+                                @Value("${theraven.customers.stats.default-days:30}") int defaultDays,
+                                @Value("${theraven.customers.stats.max-days:366}") int maxDays) {
+        this.customerStatsRepository = customerStatsRepository;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.reconcileIntervalMinutes = reconcileIntervalMinutes;
+        this.changeRetentionMillis = TimeUnit.HOURS.toMillis(changeRetentionHours);
+        this.defaultDays = defaultDays;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * Load the summary and start flushing and reconciling once the application is ready.
+     * A reconcile interval of 0 turns reconciliation off, e.g. when customers are sharded and the base
+     * tables of one database no longer hold every customer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, 0, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (reconcileIntervalMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMinutes, reconcileIntervalMinutes,
+                    TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Count created customers once the current transaction commits.
+     *
+     * @param at    Creation time
+     * @param count Number of customers created
+     */
+    public void recordCreated(long at, long count) {
+        afterCommit(() -> {
+            active.add(count);
+            counters(at).created.add(count);
+        });
+    }
+
+    /**
+     * Count updates once the current transaction commits.
+     *
+     * @param at    Update time
+     * @param count Number of customers updated
+     */
+    public void recordUpdated(long at, long count) {
+        afterCommit(() -> counters(at).updated.add(count));
+    }
+
+    /**
+     * Count a customer that turned inactive once the current transaction commits.
+     *
+     * @param at Deletion time
+     */
+    public void recordDeleted(long at) {
+        afterCommit(() -> {
+            active.decrement();
+            inactive.increment();
+            counters(at).updated.increment();
+        });
+    }
+
+    /**
+     * Remove archived customers from the totals once the current transaction commits.
+     *
+     * @param count Number of inactive customers moved to the archive
+     */
+    public void recordArchived(long count) {
+        afterCommit(() -> inactive.add(-count));
+    }
+
+    /**
+     * Retrieve customer totals and per-day counts.
+     *
+     * @param from First day, by default {@code default-days} before {@code to}
+     * @param to   Last day, by default today (UTC)
+     * @return Totals and one entry per day of the range
+     * @throws InvalidStatsRangeException If the range is reversed or longer than {@code max-days}
+     */
+    public CustomerStats getStats(LocalDate from, LocalDate to) {
+        LocalDate last = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate first = from != null ? from : last.minusDays(defaultDays - 1);
+        if (first.isAfter(last)) {
+            throw new InvalidStatsRangeException("from must not be after to");
+        }
+        if (last.toEpochDay() - first.toEpochDay() >= maxDays) {
+            throw new InvalidStatsRangeException("Range must not exceed " + maxDays + " days");
+        }
+        ensureLoaded();
+        publishLock.readLock().lock();
+        try {
+            Snapshot current = summary;
+            long activeCount = current.active() + active.sum();
+            long inactiveCount = current.inactive() + inactive.sum();
+            List<CustomerStatsDay> counts = new ArrayList<>((int) (last.toEpochDay() - first.toEpochDay() + 1));
+            for (long day = first.toEpochDay(); day <= last.toEpochDay(); day++) {
+                DayCounts flushed = current.days().getOrDefault(day, new DayCounts(0, 0));
+                DayCounters pending = days.get(day);
+                counts.add(new CustomerStatsDay(LocalDate.ofEpochDay(day),
+                        flushed.created() + (pending == null ? 0 : pending.created.sum()),
+                        flushed.updated() + (pending == null ? 0 : pending.updated.sum())));
+            }
+            return new CustomerStats(activeCount + inactiveCount, activeCount, inactiveCount, counts);
+        } finally {
+            publishLock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        publishLock.readLock().lock();
+        try {
+            if (summary != null) {
+                return;
+            }
+        } finally {
+            publishLock.readLock().unlock();
+        }
+        // Read before the first flush has loaded it
+        Snapshot loaded = customerStatsRepository.load();
+        publishLock.writeLock().lock();
+        try {
+            if (summary == null) {
+                summary = loaded;
+            }
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+    }
+
+    private void flush() {
+        try {
+            Snapshot deltas = pending();
+            if (deltas.active() != 0 || deltas.inactive() != 0 || !deltas.days().isEmpty()) {
+                customerStatsRepository.add(deltas.active(), deltas.inactive(), deltas.days());
+            }
+            Snapshot loaded = null;
+            try {
+                loaded = customerStatsRepository.load();
+            } finally {
+                // The deltas are in the summary tables now, even if reloading them failed
+                publish(deltas, loaded);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush customer stats", e);
+        }
+    }
+
+    private void reconcile() {
+        try {
+            long startedAt = System.currentTimeMillis();
+            // The first outbox day is partly pruned already
+            long updatedFromDay = Math.floorDiv(startedAt - changeRetentionMillis, DAY_MILLIS) + 1;
+            AtomicReference<Snapshot> counted = new AtomicReference<>();
+            // Deltas of writes committed before the recount are part of it and must not be flushed again
+            if (!customerStatsRepository.reconcile(updatedFromDay, () -> counted.set(pending()))) {
+                log.debug("Customer stats are being reconciled by another instance");
+                return;
+            }
+            publish(counted.get(), customerStatsRepository.load());
+            log.info("Reconciled customer stats in {} ms", System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile customer stats", e);
+        }
+    }
+
+    /**
+     * Current values of the in-memory counters.
+     */
+    private Snapshot pending() {
+        NavigableMap<Long, DayCounts> pendingDays = new TreeMap<>();
+        days.forEach((day, counters) -> {
+            long created = counters.created.sum();
+            long updated = counters.updated.sum();
+            if (created != 0 || updated != 0) {
+                pendingDays.put(day, new DayCounts(created, updated));
+            }
+        });
+        return new Snapshot(active.sum(), inactive.sum(), pendingDays);
+    }
+
+    /**
+     * Take deltas written to the summary tables out of the counters and swap in the summary loaded since.
+     * Subtracting rather than resetting keeps increments made in the meantime.
+     *
+     * @param deltas Deltas now part of the summary tables
+     * @param loaded Summary loaded after writing them, or null to apply the deltas to the current one
+     */
+    private void publish(Snapshot deltas, Snapshot loaded) {
+        publishLock.writeLock().lock();
+        try {
+            active.add(-deltas.active());
+            inactive.add(-deltas.inactive());
+            deltas.days().forEach((day, counts) -> {
+                DayCounters counters = days.get(day);
+                counters.created.add(-counts.created());
+                counters.updated.add(-counts.updated());
+            });
+            summary = loaded != null ? loaded : plus(summary, deltas);
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+        // Only today's counters still change; drop the drained ones of earlier days
+        long yesterday = Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS) - 1;
+        days.entrySet().removeIf(entry -> entry.getKey() < yesterday
+                && entry.getValue().created.sum() == 0 && entry.getValue().updated.sum() == 0);
+    }
+
+    private static Snapshot plus(Snapshot summary, Snapshot deltas) {
+        if (summary == null) {
+            return null;
+        }
+        NavigableMap<Long, DayCounts> merged = new TreeMap<>(summary.days());
+        deltas.days().forEach((day, counts) -> merged.merge(day, counts, (a, b) ->
+                new DayCounts(a.created() + b.created(), a.updated() + b.updated())));
+        return new Snapshot(summary.active() + deltas.active(), summary.inactive() + deltas.inactive(), merged);
+    }
+
+    private DayCounters counters(long at) {
+        return days.computeIfAbsent(Math.floorDiv(at, DAY_MILLIS), day -> new DayCounters());
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        // Keep the deltas counted since the last flush
+        flush();
+    }
+
+    private static final class DayCounters {
+
+        private final LongAdder created = new LongAdder();
+        private final LongAdder updated = new LongAdder();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.theraven.service;
+
+import com.example.theraven.entity.Customer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks customers against the constraints declared on {@link Customer}, for the paths that accept customers
+ * outside a validated request body: bulk creates and imports, blocking and reactive alike.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerValidator {
+
+    private final Validator validator;
+
+    /**
+     * Validate a customer.
+     *
+     * @param customer Customer to check, may be null
+     * @return One "property: message" entry per violation, sorted; empty if the customer is valid
+     */
+    public List<String> validate(Customer customer) {
+        if (customer == null) {
+            return List.of("customer: must not be null");
+        }
+        Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.theraven.service;
+
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerCursor;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.exception.CustomerVersionMismatchException;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.repository.ReactiveCustomerRepository;
+import com.example.theraven.service.interfaces.ReactiveCustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Non-blocking implementation of the customer API for the {@code reactive} profile.
+ * Mirrors {@link CustomerServiceImpl} statement for statement, without the cache and the batch loader.
+ * Writes record their changes in the outbox in the same transaction, so the change feed and the email filter
+ * of blocking instances sharing the database see them too.
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCustomerServiceImpl implements ReactiveCustomerService {
+
+    private final ReactiveCustomerRepository customerRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final CustomerValidator customerValidator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${theraven.customers.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${theraven.customers.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    /**
+     * Retrieve one page of customers using keyset pagination on ID.
+     *
+     * @param cursor       Cursor returned by the previous page, {@code null} for the first page
+     * @param limit        Requested page size, capped at the configured maximum
+     * @param isActive     Optional filter on the active flag
+     * @param updatedAfter Optional filter on the last update time (epoch millis, exclusive)
+     * @return Page of customers with the cursor for the next page
+     */
+    @Override
+    public Mono<CustomerPage> getCustomersPage(String cursor, Integer limit, Boolean isActive, Long updatedAfter) {
+        return Mono.defer(() -> {
+            long afterId = CustomerCursor.decode(cursor);
+            int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+            log.debug("Fetching customers page after ID: {} with size: {}", afterId, size);
+            // Fetch one extra row to learn whether a next page exists without a count query
+            return customerRepository.findPageAfter(afterId, isActive, updatedAfter, size + 1)
+                    .collectList()
+                    .map(rows -> {
+                        if (rows.size() <= size) {
+                            return new CustomerPage(rows, null);
+                        }
+                        List<Customer> items = rows.subList(0, size);
+                        return new CustomerPage(items, CustomerCursor.encode(items.get(size - 1).getId()));
+                    });
+        });
+    }
+
+    /**
+     * Stream all customers ordered by ID.
+     * Rows are read from the database only as fast as the subscriber consumes them.
+     *
+     * @return Every customer
+     */
+    @Override
+    public Flux<Customer> streamCustomers() {
+        log.debug("Streaming all customers");
+        return customerRepository.streamAll();
+    }
+
+    /**
+     * Retrieve a customer by ID.
+     *
+     * @param id Customer ID
+     * @return Customer details
+     */
+    @Override
+    public Mono<Customer> getCustomerById(Long id) {
+        log.debug("Fetching customer by ID: {}", id);
+        return customerRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    /**
+     * Retrieve several customers by ID with a single query.
+     *
+     * @param ids Customer IDs
+     * @return Customers that exist, in request order; unknown IDs are skipped
+     */
+    @Override
+    public Flux<Customer> getCustomersByIds(List<Long> ids) {
+        log.debug("Fetching {} customers by ID", ids.size());
+        return customerRepository.findAllByIdIn(ids.toArray(Long[]::new))
+                .collectMap(Customer::getId, Function.identity())
+                .flatMapMany(found -> Flux.fromStream(ids.stream().distinct().map(found::get).filter(Objects::nonNull)));
+    }
+
+    /**
+     * Create a new customer.
+     *
+     * @param customer Customer details
+     * @return Created customer details, or {@link DuplicateEmailException} if a customer already has the email
+     */
+    @Override
+    public Mono<Customer> createCustomer(Customer customer) {
+        long now = System.currentTimeMillis();
+        customer.setCreated(now);
+        customer.setUpdated(now);
+        customer.setIsActive(true);
+        return customerRepository.insert(customer)
+                .flatMap(created -> recordChanges(CustomerChange.Type.CREATED, List.of(created)).thenReturn(created))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(ReactiveCustomerServiceImpl::isDuplicateEmail,
+                        e -> new DuplicateEmailException(customer.getEmail()))
+                .doOnNext(created -> log.debug("Created customer with ID: {}", created.getId()));
+    }
+
+    /**
+     * Create many customers in one transaction.
+     * Every element is validated and checked for duplicate emails first; the valid ones are
+     * inserted with one multi-row statement per batch.
+     *
+     * @param customers Customers to create
+     * @return Result for every element, in request order
+     */
+    @Override
+    public Mono<List<CustomerBatchResult>> createCustomers(List<Customer> customers) {
+        log.info("Creating {} customers in batches of {}", customers.size(), batchSize);
+        List<CustomerBatchResult> results = new ArrayList<>(customers.size());
+        Set<String> seenEmails = new HashSet<>();
+        List<Customer> accepted = new ArrayList<>(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            List<String> errors = customerValidator.validate(customer);
+            if (!errors.isEmpty()) {
+                results.add(new CustomerBatchResult(i, CustomerBatchResult.Status.INVALID, null, errors));
+            } else if (!seenEmails.add(customer.getEmail())) {
+                results.add(CustomerBatchResult.duplicate(i));
+            } else {
+                results.add(null);
+                accepted.add(customer);
+            }
+        }
+        long now = System.currentTimeMillis();
+        Mono<Map<String, Long>> createdIds = customerRepository
+                .findExistingEmails(accepted.stream().map(Customer::getEmail).toArray(String[]::new))
+                .collect(HashSet<String>::new, Set::add)
+                .flatMapMany(existing -> Flux.fromIterable(accepted)
+                        .filter(customer -> !existing.contains(customer.getEmail()))
+                        .buffer(batchSize)
+                        .concatMap(batch -> customerRepository.insertAll(batch, now).collectList()
+                                .flatMapMany(created -> recordChanges(CustomerChange.Type.CREATED, created)
+                                        .thenMany(Flux.fromIterable(created)))))
+                .collectMap(Customer::getEmail, Customer::getId)
+                .as(transactionalOperator::transactional);
+        return createdIds.map(ids -> {
+            for (int i = 0; i < customers.size(); i++) {
+                if (results.get(i) == null) {
+                    Long id = ids.get(customers.get(i).getEmail());
+                    results.set(i, id == null
+                            ? CustomerBatchResult.duplicate(i)
+                            : new CustomerBatchResult(i, CustomerBatchResult.Status.CREATED, id, List.of()));
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Update an existing customer in a single UPDATE ... RETURNING statement.
+     *
+     * @param id              Customer ID
+     * @param customerDetails Updated customer details
+     * @param expectedUpdated Version the customer must still have, or null to skip the check
+     * @return Updated customer details
+     */
+    @Override
+    public Mono<Customer> updateCustomer(Long id, Customer customerDetails, Long expectedUpdated) {
+        log.debug("Updating customer with ID: {}", id);
+        return customerRepository.updateDetails(id, customerDetails.getFullName(), customerDetails.getEmail(),
+                        customerDetails.getPhone(), System.currentTimeMillis(), expectedUpdated)
+                .flatMap(updated -> recordChanges(CustomerChange.Type.UPDATED, List.of(updated)).thenReturn(updated))
+                .as(transactionalOperator::transactional)
+                .switchIfEmpty(notUpdated(id, expectedUpdated));
+    }
+
+    /**
+     * Partially update an existing customer in a single UPDATE ... RETURNING statement.
+     *
+     * @param id              Customer ID
+     * @param patch           Fields to change
+     * @param expectedUpdated Version the customer must still have, or null to skip the check
+     * @return Updated customer details
+     */
+    @Override
+    public Mono<Customer> patchCustomer(Long id, CustomerPatch patch, Long expectedUpdated) {
+        log.debug("Patching customer with ID: {}", id);
+        return customerRepository.patchDetails(id, patch.getFullName(), patch.getEmail(), patch.getPhone(),
+                        System.currentTimeMillis(), expectedUpdated)
+                .flatMap(patched -> recordChanges(CustomerChange.Type.UPDATED, List.of(patched)).thenReturn(patched))
+                .as(transactionalOperator::transactional)
+                .switchIfEmpty(notUpdated(id, expectedUpdated));
+    }
+
+    /**
+     * Delete (deactivate) a customer in a single UPDATE ... RETURNING statement.
+     * Deleting an inactive customer again returns it unchanged.
+     *
+     * @param id              Customer ID
+     * @param expectedUpdated Version the customer must still have, or null to skip the check
+     * @return Deleted customer details
+     */
+    @Override
+    public Mono<Customer> deleteCustomer(Long id, Long expectedUpdated) {
+        log.debug("Deleting customer by ID: {}", id);
+        return customerRepository.deactivate(id, System.currentTimeMillis(), expectedUpdated)
+                .flatMap(deleted -> recordChanges(CustomerChange.Type.DELETED, List.of(deleted)).thenReturn(deleted))
+                .as(transactionalOperator::transactional)
+                .switchIfEmpty(Mono.defer(() -> customerRepository.findById(id)
+                        .filter(customer -> !Boolean.TRUE.equals(customer.getIsActive()))
+                        .filter(customer -> expectedUpdated == null || expectedUpdated.equals(customer.getUpdated()))))
+                .switchIfEmpty(Mono.defer(() -> notUpdated(id, expectedUpdated)));
+    }
+
+    /**
+     * Record changes to customers in the outbox, as {@link CustomerChangeFeed#record} does for the blocking API.
+     * Must be part of the transaction that made the changes.
+     */
+    private Mono<Void> recordChanges(CustomerChange.Type type, List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+            String[] payloads = new String[customers.size()];
+            for (int i = 0; i < payloads.length; i++) {
+                payloads[i] = objectMapper.writeValueAsString(customers.get(i));
+            }
+            return payloads;
+        }).flatMap(payloads -> customerRepository.insertChanges(type,
+                customers.stream().map(Customer::getId).toArray(Long[]::new), payloads, System.currentTimeMillis()));
+    }
+
+    /**
+     * Explain why a conditional write matched no row. Only this failure path pays for the extra lookup.
+     */
+    private Mono<Customer> notUpdated(Long id, Long expectedUpdated) {
+        if (expectedUpdated == null) {
+            return Mono.error(() -> notFound(id));
+        }
+        return customerRepository.existsById(id)
+                .flatMap(exists -> Mono.error(exists ? new CustomerVersionMismatchException(id) : notFound(id)));
+    }
+
+    /**
+     * Whether a failed write violated the unique email constraint. The R2DBC exceptions carry no constraint name,
+     * but Postgres quotes it in the message whatever the server's language.
+     */
+    static boolean isDuplicateEmail(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcDataIntegrityViolationException violation) {
+                return violation.getMessage() != null
+                        && violation.getMessage().contains('"' + CustomerServiceImpl.EMAIL_CONSTRAINT + '"');
+            }
+        }
+        return false;
+    }
+
+    private static NoSuchElementException notFound(Long id) {
+        return new NoSuchElementException("Customer not found with ID: " + id);
+    }
+}
@@ -0,0 +1,598 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerCursor;
+import com.example.theraven.dto.CustomerField;
+import com.example.theraven.dto.CustomerFieldsPage;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerRepository;
+import com.example.theraven.repository.CustomerSearchRepository;
+import com.example.theraven.service.interfaces.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Customer service over hash-sharded storage, used instead of {@link CustomerServiceImpl} when sharding is enabled.
+ * Work on known customers runs on the shard their ID maps to, and new emails are claimed in the directory's email
+ * index first, so they stay unique across shards. Lists, searches and exports ask every shard in parallel and
+ * merge the results in the order a single database would return them. Rows found on a shard their bucket is not
+ * assigned to, such as copies made by a rebalance still in progress, are left out. The work on each shard is done
+ * by {@link CustomerServiceImpl} with the calling thread bound to that shard.
+ */
+@Slf4j
+@Service
+@Primary
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "theraven.sharding", name = "enabled", havingValue = "true")
+public class ShardedCustomerService implements CustomerService {
+
+    private static final Comparator<Customer> BY_ID = Comparator.comparing(Customer::getId);
+    private static final Comparator<Map<String, Object>> ROWS_BY_ID = Comparator.comparing(ShardedCustomerService::idOf);
+    // Postgres' ~<~ operators order the search prefixes by their bytes
+    private static final Comparator<String> BYTEWISE = (a, b) ->
+            Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Rows each shard may read ahead of the merged export.
+     */
+    private static final int EXPORT_BUFFER_SIZE = Integer.parseInt(CustomerRepository.STREAM_FETCH_SIZE);
+    private static final Object END = new Object();
+
+    private final CustomerServiceImpl customerServiceImpl;
+    private final CustomerShardDirectory customerShardDirectory;
+    private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final CustomerValidator customerValidator;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    // Platform threads, like the batch loader's dispatcher they complete futures that cache loaders wait for
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("customer-shards-", 0).daemon().factory());
+
+    public ShardedCustomerService(CustomerServiceImpl customerServiceImpl,
+                                  CustomerShardDirectory customerShardDirectory,
+                                  CustomerRepository customerRepository,
+                                  EntityManager entityManager,
+                                  ObjectMapper objectMapper,
+                                  CustomerValidator customerValidator,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${theraven.customers.page.default-size:50}") int defaultPageSize,
+                                  @Value("${theraven.customers.page.max-size:1000}") int maxPageSize) {
+        this.customerServiceImpl = customerServiceImpl;
+        this.customerShardDirectory = customerShardDirectory;
+        this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.customerValidator = customerValidator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Retrieve all customers from every shard, ordered by ID.
+     *
+     * @return List of customers
+     */
+    @Override
+    public List<Customer> getAllCustomers() {
+        List<List<Customer>> shards = onEveryShard(customerServiceImpl::getAllCustomers);
+        return IntStream.range(0, shards.size()).boxed()
+                .flatMap(shard -> shards.get(shard).stream().filter(customer -> isOn(customer.getId(), shard)))
+                .sorted(BY_ID)
+                .toList();
+    }
+
+    /**
+     * Retrieve one page of customers. Every shard returns its own page after the cursor; the merged page
+     * takes the lowest IDs among them, up to the last ID every shard has returned rows to.
+     *
+     * @see CustomerServiceImpl#getCustomersPage
+     */
+    @Override
+    public CustomerPage getCustomersPage(String cursor, Integer limit, Boolean isActive, Long updatedAfter) {
+        List<CustomerPage> pages = onEveryShard(
+                () -> customerServiceImpl.getCustomersPage(cursor, limit, isActive, updatedAfter));
+        Merged<Customer> merged = merge(pages.stream().map(CustomerPage::getItems).toList(),
+                pages.stream().map(page -> page.getNext() != null).toList(), Customer::getId, BY_ID, limit);
+        return new CustomerPage(merged.items(), merged.last() == null ? null : CustomerCursor.encode(merged.last().getId()));
+    }
+
+    /**
+     * Retrieve one page of customers reduced to the selected fields, merged like {@link #getCustomersPage}.
+     *
+     * @see CustomerServiceImpl#getCustomerFieldsPage
+     */
+    @Override
+    public CustomerFieldsPage getCustomerFieldsPage(Set<CustomerField> fields, String cursor, Integer limit,
+                                                    Boolean isActive, Long updatedAfter) {
+        List<CustomerFieldsPage> pages = onEveryShard(
+                () -> customerServiceImpl.getCustomerFieldsPage(fields, cursor, limit, isActive, updatedAfter));
+        Merged<Map<String, Object>> merged = merge(pages.stream().map(CustomerFieldsPage::getItems).toList(),
+                pages.stream().map(page -> page.getNext() != null).toList(), ShardedCustomerService::idOf, ROWS_BY_ID, limit);
+        return new CustomerFieldsPage(merged.items(), merged.last() == null ? null : CustomerCursor.encode(idOf(merged.last())));
+    }
+
+    /**
+     * Search customers. An exact email is looked up in the email index and searched on its shard only;
+     * other searches run on every shard and are merged in the search's order.
+     *
+     * @see CustomerServiceImpl#searchCustomers
+     */
+    @Override
+    public CustomerPage searchCustomers(String email, String emailPrefix, String phonePrefix, String name,
+                                        String cursor, Integer limit) {
+        String exactEmail = CustomerServiceImpl.blankToNull(email);
+        if (exactEmail != null) {
+            // Unknown emails are searched on shard 0, which still validates the other criteria
+            int shard = customerShardDirectory.findEmailShard(exactEmail).orElse(0);
+            return ShardRoutingDataSource.callOn(shard,
+                    () -> customerServiceImpl.searchCustomers(email, emailPrefix, phonePrefix, name, cursor, limit));
+        }
+        List<CustomerPage> pages = onEveryShard(
+                () -> customerServiceImpl.searchCustomers(null, emailPrefix, phonePrefix, name, cursor, limit));
+        String byEmail = CustomerServiceImpl.blankToNull(emailPrefix);
+        String byPhone = CustomerServiceImpl.blankToNull(phonePrefix);
+        Comparator<Customer> order = byEmail != null ? Comparator.comparing(Customer::getEmail, BYTEWISE).thenComparing(BY_ID)
+                : byPhone != null ? Comparator.comparing(Customer::getPhone, BYTEWISE).thenComparing(BY_ID)
+                : BY_ID;
+        Merged<Customer> merged = merge(pages.stream().map(CustomerPage::getItems).toList(),
+                pages.stream().map(page -> page.getNext() != null).toList(), Customer::getId, order, limit);
+        return new CustomerPage(merged.items(), merged.last() == null ? null
+                : CustomerSearchRepository.cursorOf(merged.last(), byEmail, byPhone).encode());
+    }
+
+    /**
+     * Write every customer to the stream as newline-delimited JSON, ordered by ID.
+     * Every shard is read through its own cursor on its own thread; the rows are merged as they arrive,
+     * and a shard reads ahead at most a fetch of rows, so memory use does not grow with the table size.
+     *
+     * @param out Destination stream, left open for the caller
+     * @throws IOException If writing to the stream fails
+     */
+    @Override
+    public void exportCustomers(OutputStream out) throws IOException {
+        log.info("Exporting all customers from {} shards", customerShardDirectory.getShardCount());
+        long written = exportMerged(customerRepository::streamAll, Customer::getId, entityManager::detach, BY_ID, out);
+        log.info("Exported {} customers", written);
+    }
+
+    /**
+     * Write the selected fields of every customer to the stream, merged like {@link #exportCustomers}.
+     *
+     * @param fields Fields to write
+     * @param out    Destination stream, left open for the caller
+     * @throws IOException If writing to the stream fails
+     */
+    @Override
+    public void exportCustomerFields(Set<CustomerField> fields, OutputStream out) throws IOException {
+        log.info("Exporting {} of all customers from {} shards", fields, customerShardDirectory.getShardCount());
+        long written = exportMerged(() -> customerRepository.streamFields(fields), ShardedCustomerService::idOf, row -> {
+        }, ROWS_BY_ID, out);
+        log.info("Exported {} customers", written);
+    }
+
+    /**
+     * Retrieve a customer by ID from its shard.
+     *
+     * @see CustomerServiceImpl#getCustomerById
+     */
+    @Override
+    public Customer getCustomerById(Long id) {
+        return ShardRoutingDataSource.callOn(customerShardDirectory.shardOf(id),
+                () -> customerServiceImpl.getCustomerById(id));
+    }
+
+    /**
+     * Retrieve several customers by ID, asking each shard for its own.
+     *
+     * @param ids Customer IDs
+     * @return Customers that exist, in request order; unknown IDs are skipped
+     */
+    @Override
+    public List<Customer> getCustomersByIds(List<Long> ids) {
+        Map<Long, Customer> found = onShards(customerShardDirectory.partition(ids.stream().distinct().toList()),
+                customerServiceImpl::getCustomersByIds).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        return ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Retrieve selected fields of several customers, asking each shard for its own.
+     *
+     * @param fields Fields to return
+     * @param ids    Customer IDs
+     * @return Projected customers that exist, in request order; unknown IDs are skipped
+     */
+    @Override
+    public List<Map<String, Object>> getCustomerFieldsByIds(Set<CustomerField> fields, List<Long> ids) {
+        Map<Long, Map<String, Object>> found = onShards(customerShardDirectory.partition(ids.stream().distinct().toList()),
+                shardIds -> customerServiceImpl.getCustomerFieldsByIds(fields, shardIds)).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(ShardedCustomerService::idOf, Function.identity()));
+        return ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Check whether an email is free, asking only the shard the email index points to.
+     *
+     * @param email Email to check
+     * @return Whether no customer has the email
+     */
+    @Override
+    public boolean isEmailAvailable(String email) {
+        return !customerShardDirectory.isEmailTaken(email);
+    }
+
+    /**
+     * Create a new customer on the shard of its email's bucket.
+     *
+     * @param customer Customer details
+     * @return Created customer details
+     * @throws com.example.theraven.exception.DuplicateEmailException If a customer on any shard already has the email
+     */
+    @Override
+    public Customer createCustomer(Customer customer) {
+        return write(CustomerIdGenerator.bucketOf(customer.getEmail()), customer.getEmail(),
+                () -> customerServiceImpl.createCustomer(customer));
+    }
+
+    /**
+     * Create many customers, each shard's share in one transaction on that shard.
+     * Emails are checked against every shard through the email index first. The shards commit independently:
+     * if one fails, customers already committed on the others stay created.
+     *
+     * @param customers Customers to create
+     * @return Result for every element, in request order
+     */
+    @Override
+    public List<CustomerBatchResult> createCustomers(List<Customer> customers) {
+        log.info("Creating {} customers across {} shards", customers.size(), customerShardDirectory.getShardCount());
+        CustomerBatchResult[] results = new CustomerBatchResult[customers.size()];
+        Map<String, Integer> buckets = new HashMap<>();
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            List<String> errors = customerValidator.validate(customer);
+            if (!errors.isEmpty()) {
+                results[i] = new CustomerBatchResult(i, CustomerBatchResult.Status.INVALID, null, errors);
+            } else if (buckets.putIfAbsent(customer.getEmail(), CustomerIdGenerator.bucketOf(customer.getEmail())) != null) {
+                results[i] = CustomerBatchResult.duplicate(i);
+            }
+        }
+        // Refuse the whole request before claiming anything if one of its buckets is being moved
+        buckets.values().forEach(customerShardDirectory::shardForWrite);
+        CustomerShardDirectory.EmailClaims claims = buckets.isEmpty()
+                ? new CustomerShardDirectory.EmailClaims(Set.of(), Set.of())
+                : customerShardDirectory.claimEmails(buckets);
+
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (int i = 0; i < customers.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            String email = customers.get(i).getEmail();
+            if (claims.duplicates().contains(email)) {
+                results[i] = CustomerBatchResult.duplicate(i);
+            } else {
+                byShard.computeIfAbsent(customerShardDirectory.shardOfBucket(buckets.get(email)), shard -> new ArrayList<>())
+                        .add(i);
+            }
+        }
+        try {
+            onShards(byShard, indices -> {
+                List<CustomerBatchResult> created = customerServiceImpl.createCustomers(
+                        indices.stream().map(customers::get).toList());
+                for (CustomerBatchResult result : created) {
+                    int index = indices.get(result.getIndex());
+                    results[index] = new CustomerBatchResult(index, result.getStatus(), result.getId(), result.getErrors());
+                }
+                return created.size();
+            });
+        } finally {
+            Map<String, Integer> unused = new HashMap<>();
+            byShard.values().stream().flatMap(List::stream)
+                    .filter(index -> results[index] == null || results[index].getStatus() != CustomerBatchResult.Status.CREATED)
+                    .map(index -> customers.get(index).getEmail())
+                    .filter(claims.claimed()::contains)
+                    .forEach(email -> unused.put(email, buckets.get(email)));
+            customerShardDirectory.releaseEmails(unused);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Update an existing customer on its shard.
+     *
+     * @see CustomerServiceImpl#updateCustomer
+     */
+    @Override
+    public Customer updateCustomer(Long id, Customer customerDetails, Long expectedUpdated) {
+        return write(CustomerIdGenerator.bucketOf(id), customerDetails.getEmail(),
+                () -> customerServiceImpl.updateCustomer(id, customerDetails, expectedUpdated));
+    }
+
+    /**
+     * Partially update an existing customer on its shard.
+     *
+     * @see CustomerServiceImpl#patchCustomer
+     */
+    @Override
+    public Customer patchCustomer(Long id, CustomerPatch patch, Long expectedUpdated) {
+        return write(CustomerIdGenerator.bucketOf(id), patch.getEmail(),
+                () -> customerServiceImpl.patchCustomer(id, patch, expectedUpdated));
+    }
+
+    /**
+     * Delete a customer on its shard.
+     *
+     * @see CustomerServiceImpl#deleteCustomer
+     */
+    @Override
+    public Customer deleteCustomer(Long id, Long expectedUpdated) {
+        return write(CustomerIdGenerator.bucketOf(id), null, () -> customerServiceImpl.deleteCustomer(id, expectedUpdated));
+    }
+
+    /**
+     * Write a customer of a bucket on its shard, claiming the email it is given first.
+     */
+    private Customer write(int bucket, String email, Supplier<Customer> write) {
+        int shard = customerShardDirectory.shardForWrite(bucket);
+        boolean claimed = email != null && customerShardDirectory.claimEmail(email, bucket);
+        try {
+            return ShardRoutingDataSource.callOn(shard, write);
+        } catch (RuntimeException e) {
+            if (claimed) {
+                customerShardDirectory.releaseEmails(Map.of(email, bucket));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Page of rows merged from the pages of every shard.
+     *
+     * @param last Row to continue after if another page follows, otherwise null
+     */
+    private record Merged<T>(List<T> items, T last) {
+    }
+
+    /**
+     * Merge the pages of every shard, in shard order. Rows up to the smallest last row of the shards that have
+     * more are complete, so the merged page stops there even when rows left out as strays make it shorter.
+     */
+    private <T> Merged<T> merge(List<List<T>> pages, List<Boolean> more, Function<T, Long> idOf,
+                                Comparator<? super T> order, Integer limit) {
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        T horizon = null;
+        List<T> rows = new ArrayList<>();
+        for (int shard = 0; shard < pages.size(); shard++) {
+            List<T> page = pages.get(shard);
+            if (more.get(shard) && !page.isEmpty()) {
+                T last = page.get(page.size() - 1);
+                if (horizon == null || order.compare(last, horizon) < 0) {
+                    horizon = last;
+                }
+            }
+            for (T row : page) {
+                if (isOn(idOf.apply(row), shard)) {
+                    rows.add(row);
+                }
+            }
+        }
+        T bound = horizon;
+        List<T> sorted = rows.stream()
+                .filter(row -> bound == null || order.compare(row, bound) <= 0)
+                .sorted(order)
+                .toList();
+        if (sorted.size() > size) {
+            return new Merged<>(sorted.subList(0, size), sorted.get(size - 1));
+        }
+        return new Merged<>(sorted, horizon);
+    }
+
+    private boolean isOn(long customerId, int shard) {
+        return customerShardDirectory.shardOf(customerId) == shard;
+    }
+
+    private static Long idOf(Map<String, Object> row) {
+        return ((Number) row.get(CustomerField.ID.property())).longValue();
+    }
+
+    private <T> List<T> onEveryShard(Supplier<T> work) {
+        Map<Integer, Integer> shards = IntStream.range(0, customerShardDirectory.getShardCount()).boxed()
+                .collect(Collectors.toMap(Function.identity(), Function.identity(), (a, b) -> a, LinkedHashMap::new));
+        return onShards(shards, shard -> work.get());
+    }
+
+    /**
+     * Run work on several shards in parallel, each with its thread bound to the shard, and wait for all of them.
+     *
+     * @return Results in the order of the shards
+     */
+    private <K, T> List<T> onShards(Map<Integer, K> work, Function<K, T> task) {
+        if (work.size() == 1) {
+            Map.Entry<Integer, K> only = work.entrySet().iterator().next();
+            return List.of(ShardRoutingDataSource.callOn(only.getKey(), () -> task.apply(only.getValue())));
+        }
+        List<CompletableFuture<T>> futures = work.entrySet().stream()
+                .map(entry -> CompletableFuture.supplyAsync(
+                        () -> ShardRoutingDataSource.callOn(entry.getKey(), () -> task.apply(entry.getValue())), executor))
+                .toList();
+        // Let every shard finish before reporting a failure, so callers can tell what was done
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        return futures.stream().map(ShardedCustomerService::await).toList();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private <T> long exportMerged(Supplier<Stream<T>> query, Function<T, Long> idOf, Consumer<T> detach,
+                                  Comparator<? super T> order, OutputStream out) throws IOException {
+        List<BlockingQueue<Object>> buffers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        for (int shard = 0; shard < customerShardDirectory.getShardCount(); shard++) {
+            BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(EXPORT_BUFFER_SIZE);
+            int readFrom = shard;
+            buffers.add(buffer);
+            readers.add(executor.submit(() -> ShardRoutingDataSource.runOn(readFrom,
+                    () -> read(query, row -> isOn(idOf.apply(row), readFrom), detach, buffer))));
+        }
+        try {
+            return CustomerServiceImpl.writeNdjson(objectMapper, new MergingIterator<>(buffers, order), row -> {
+            }, out);
+        } finally {
+            // Stops readers still waiting for room when the client went away
+            readers.forEach(reader -> reader.cancel(true));
+        }
+    }
+
+    private <T> void read(Supplier<Stream<T>> query, Predicate<T> owned, Consumer<T> detach, BlockingQueue<Object> buffer) {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get()) {
+                    rows.forEach(row -> {
+                        detach.accept(row);
+                        if (owned.test(row)) {
+                            put(buffer, row);
+                        }
+                    });
+                }
+            });
+            put(buffer, END);
+        } catch (CancellationException e) {
+            log.debug("Export from shard {} cancelled", ShardRoutingDataSource.currentShard());
+        } catch (RuntimeException e) {
+            put(buffer, new ReadFailure(e));
+        }
+    }
+
+    private static void put(BlockingQueue<Object> buffer, Object item) {
+        try {
+            buffer.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Export cancelled");
+        }
+    }
+
+    private record ReadFailure(RuntimeException cause) {
+    }
+
+    /**
+     * Merges rows that arrive sorted from every shard's buffer into one sorted sequence.
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private record Head<T>(T row, int shard) {
+        }
+
+        private final List<BlockingQueue<Object>> buffers;
+        private final PriorityQueue<Head<T>> heads;
+        private boolean started;
+
+        private MergingIterator(List<BlockingQueue<Object>> buffers, Comparator<? super T> order) {
+            this.buffers = buffers;
+            this.heads = new PriorityQueue<>(Math.max(1, buffers.size()), (a, b) -> order.compare(a.row(), b.row()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                for (int shard = 0; shard < buffers.size(); shard++) {
+                    takeFrom(shard);
+                }
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head<T> head = heads.poll();
+            takeFrom(head.shard());
+            return head.row();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void takeFrom(int shard) {
+            Object item;
+            try {
+                item = buffers.get(shard).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Export interrupted");
+            }
+            if (item instanceof ReadFailure failure) {
+                throw failure.cause();
+            }
+            if (item != END) {
+                heads.add(new Head<>((T) item, shard));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
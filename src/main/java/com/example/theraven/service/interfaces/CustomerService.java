@@ -1,17 +1,48 @@
 package com.example.theraven.service.interfaces;
 
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerField;
+import com.example.theraven.dto.CustomerFieldsPage;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
 import com.example.theraven.entity.Customer;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface CustomerService {
     List<Customer> getAllCustomers();
 
+    CustomerPage getCustomersPage(String cursor, Integer limit, Boolean isActive, Long updatedAfter);
+
+    CustomerFieldsPage getCustomerFieldsPage(Set<CustomerField> fields, String cursor, Integer limit,
+                                             Boolean isActive, Long updatedAfter);
+
+    CustomerPage searchCustomers(String email, String emailPrefix, String phonePrefix, String name,
+                                 String cursor, Integer limit);
+
+    void exportCustomers(OutputStream out) throws IOException;
+
+    void exportCustomerFields(Set<CustomerField> fields, OutputStream out) throws IOException;
+
     Customer getCustomerById(Long id);
 
+    List<Customer> getCustomersByIds(List<Long> ids);
+
+    List<Map<String, Object>> getCustomerFieldsByIds(Set<CustomerField> fields, List<Long> ids);
+
+    boolean isEmailAvailable(String email);
+
     Customer createCustomer(Customer customer);
 
-    Customer updateCustomer(Long id, Customer customerDetails);
+    List<CustomerBatchResult> createCustomers(List<Customer> customers);
+
+    Customer updateCustomer(Long id, Customer customerDetails, Long expectedUpdated);
+
+    Customer patchCustomer(Long id, CustomerPatch patch, Long expectedUpdated);
 
-    Customer deleteCustomer(Long id);
+    Customer deleteCustomer(Long id, Long expectedUpdated);
 }
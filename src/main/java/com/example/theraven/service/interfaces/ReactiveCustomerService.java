@@ -0,0 +1,30 @@
+package com.example.theraven.service.interfaces;
+
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.entity.Customer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveCustomerService {
+    Mono<CustomerPage> getCustomersPage(String cursor, Integer limit, Boolean isActive, Long updatedAfter);
+
+    Flux<Customer> streamCustomers();
+
+    Mono<Customer> getCustomerById(Long id);
+
+    Flux<Customer> getCustomersByIds(List<Long> ids);
+
+    Mono<Customer> createCustomer(Customer customer);
+
+    Mono<List<CustomerBatchResult>> createCustomers(List<Customer> customers);
+
+    Mono<Customer> updateCustomer(Long id, Customer customerDetails, Long expectedUpdated);
+
+    Mono<Customer> patchCustomer(Long id, CustomerPatch patch, Long expectedUpdated);
+
+    Mono<Customer> deleteCustomer(Long id, Long expectedUpdated);
+}
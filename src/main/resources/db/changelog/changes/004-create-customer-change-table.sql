@@ -0,0 +1,14 @@
+CREATE SEQUENCE customer_change_id_seq INCREMENT BY 50;
+
+CREATE TABLE customer_change
+(
+    id          BIGINT PRIMARY KEY DEFAULT nextval('customer_change_id_seq'),
+    tx_id       BIGINT      NOT NULL DEFAULT CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT),
+    customer_id BIGINT      NOT NULL,
+    change_type VARCHAR(16) NOT NULL,
+    payload     TEXT        NOT NULL,
+    created     BIGINT      NOT NULL
+);
+
+CREATE INDEX customer_change_position_idx ON customer_change (tx_id, id);
+CREATE INDEX customer_change_created_idx ON customer_change (created);
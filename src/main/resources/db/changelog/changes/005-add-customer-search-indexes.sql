@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset theraven:005-pg-trgm
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- The indexes are built CONCURRENTLY, which cannot run inside a transaction, so writes to customer
+-- continue during the build. IF NOT EXISTS keeps the changesets safe on databases indexed by an earlier run
+--changeset theraven:005-customer-email-pattern-idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_email_pattern_idx ON customer (email text_pattern_ops, id);
+
+--changeset theraven:005-customer-phone-pattern-idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_phone_pattern_idx ON customer (phone text_pattern_ops, id);
+
+--changeset theraven:005-customer-full-name-trgm-idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_full_name_trgm_idx ON customer USING gin (full_name gin_trgm_ops);
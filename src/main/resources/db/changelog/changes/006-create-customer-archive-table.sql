@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+--changeset theraven:006-customer-archive-table
+CREATE TABLE IF NOT EXISTS customer_archive
+(
+    id        BIGINT       NOT NULL,
+    created   BIGINT,
+    updated   BIGINT       NOT NULL,
+    full_name VARCHAR(50)  NOT NULL,
+    email     VARCHAR(100) NOT NULL,
+    phone     VARCHAR(14),
+    is_active BOOLEAN,
+    archived  BIGINT       NOT NULL,
+    PRIMARY KEY (id, updated)
+) PARTITION BY RANGE (updated);
+
+-- The partial indexes on the live customer table are built CONCURRENTLY, outside a transaction,
+-- so writes continue during the build
+--changeset theraven:006-customer-active-id-idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_active_id_idx ON customer (id) WHERE is_active;
+
+--changeset theraven:006-customer-inactive-updated-idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_inactive_updated_idx ON customer (updated) WHERE NOT is_active;
@@ -0,0 +1,29 @@
+CREATE TABLE customer_stats_total
+(
+    is_active BOOLEAN PRIMARY KEY,
+    customers BIGINT NOT NULL
+);
+
+-- Counts per UTC day, keyed by days since the epoch
+CREATE TABLE customer_stats_daily
+(
+    day     BIGINT PRIMARY KEY,
+    created BIGINT NOT NULL DEFAULT 0,
+    updated BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO customer_stats_total (is_active, customers)
+SELECT is_active IS TRUE, count(*) FROM customer GROUP BY is_active IS TRUE;
+
+INSERT INTO customer_stats_daily (day, created)
+SELECT created / 86400000, count(*)
+FROM (SELECT created FROM customer UNION ALL SELECT created FROM customer_archive) customers
+WHERE created IS NOT NULL
+GROUP BY created / 86400000;
+
+INSERT INTO customer_stats_daily AS d (day, updated)
+SELECT created / 86400000, count(*)
+FROM customer_change
+WHERE change_type IN ('UPDATED', 'DELETED')
+GROUP BY created / 86400000
+ON CONFLICT (day) DO UPDATE SET updated = EXCLUDED.updated;
@@ -0,0 +1,77 @@
+--liquibase formatted sql
+
+-- Customer IDs issued by CustomerIdGenerator while customers are sharded outgrow the INTEGER column.
+-- Every changeset here belongs to the sharded context, so single-database deployments keep the SERIAL
+-- column and customer_id_seq. Run --migrate with the sharded profile before turning sharding on; the
+-- column is widened in stages that let the running application keep writing: a BIGINT copy kept current
+-- by a trigger, a batched backfill, indexes built CONCURRENTLY, then a swap that only changes the catalog.
+
+--changeset theraven:008-customer-id-bigint-column context:sharded splitStatements:false
+ALTER TABLE customer ADD COLUMN IF NOT EXISTS id_bigint BIGINT;
+
+CREATE OR REPLACE FUNCTION customer_id_bigint_copy() RETURNS trigger AS $$
+BEGIN
+    NEW.id_bigint := NEW.id;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS customer_id_bigint_copy ON customer;
+CREATE TRIGGER customer_id_bigint_copy BEFORE INSERT OR UPDATE ON customer
+    FOR EACH ROW EXECUTE FUNCTION customer_id_bigint_copy();
+
+-- Commits every 10000 IDs, so no row stays locked for long; rows written meanwhile are copied by the trigger
+--changeset theraven:008-customer-id-bigint-backfill context:sharded runInTransaction:false splitStatements:false
+DO $$
+DECLARE
+    last_id BIGINT := 0;
+    max_id  BIGINT;
+BEGIN
+    SELECT coalesce(max(id), 0) INTO max_id FROM customer;
+    WHILE last_id < max_id LOOP
+        UPDATE customer SET id_bigint = id WHERE id > last_id AND id <= last_id + 10000 AND id_bigint IS NULL;
+        COMMIT;
+        last_id := last_id + 10000;
+    END LOOP;
+END
+$$;
+
+-- Validated separately, without blocking writes, so SET NOT NULL in the swap needs no table scan
+--changeset theraven:008-customer-id-bigint-not-null context:sharded
+ALTER TABLE customer ADD CONSTRAINT customer_id_bigint_not_null CHECK (id_bigint IS NOT NULL) NOT VALID;
+ALTER TABLE customer VALIDATE CONSTRAINT customer_id_bigint_not_null;
+
+-- Counterparts of every index on the old column, built CONCURRENTLY outside a transaction
+--changeset theraven:008-customer-id-bigint-idx context:sharded runInTransaction:false
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS customer_id_bigint_idx ON customer (id_bigint);
+
+--changeset theraven:008-customer-email-pattern-bigint-idx context:sharded runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_email_pattern_bigint_idx ON customer (email text_pattern_ops, id_bigint);
+
+--changeset theraven:008-customer-phone-pattern-bigint-idx context:sharded runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_phone_pattern_bigint_idx ON customer (phone text_pattern_ops, id_bigint);
+
+--changeset theraven:008-customer-active-id-bigint-idx context:sharded runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_active_id_bigint_idx ON customer (id_bigint) WHERE is_active;
+
+-- Takes the table lock only for catalog changes. The sequence outlives the old column, so the
+-- deployment can go back to single-database IDs
+--changeset theraven:008-customer-id-bigint-swap context:sharded
+ALTER TABLE customer ALTER COLUMN id_bigint SET NOT NULL;
+ALTER TABLE customer DROP CONSTRAINT customer_pkey;
+ALTER TABLE customer ADD CONSTRAINT customer_pkey PRIMARY KEY USING INDEX customer_id_bigint_idx;
+ALTER TABLE customer DROP CONSTRAINT customer_id_bigint_not_null;
+DROP TRIGGER customer_id_bigint_copy ON customer;
+DROP FUNCTION customer_id_bigint_copy();
+ALTER SEQUENCE customer_id_seq OWNED BY NONE;
+ALTER TABLE customer DROP COLUMN id;
+ALTER TABLE customer RENAME COLUMN id_bigint TO id;
+ALTER INDEX customer_email_pattern_bigint_idx RENAME TO customer_email_pattern_idx;
+ALTER INDEX customer_phone_pattern_bigint_idx RENAME TO customer_phone_pattern_idx;
+ALTER INDEX customer_active_id_bigint_idx RENAME TO customer_active_id_idx;
+
+-- Customers of one hash bucket, the unit moved between shards; IDs from the SERIAL column spread
+-- over the buckets by their low bits, see CustomerIdGenerator.bucketOf
+--changeset theraven:008-customer-bucket-idx context:sharded runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS customer_bucket_idx
+    ON customer ((CASE WHEN id <= 2147483647 THEN id & 1023 ELSE (id >> 12) & 1023 END));
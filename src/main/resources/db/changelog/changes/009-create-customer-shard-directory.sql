@@ -0,0 +1,38 @@
+--liquibase formatted sql
+
+-- Directory of a sharded deployment, read from the first shard only.
+-- Every hash bucket maps to the shard storing its customers; all start on the first one
+--changeset theraven:009-customer-shard-bucket context:sharded
+CREATE TABLE IF NOT EXISTS customer_shard_bucket
+(
+    bucket INTEGER PRIMARY KEY,
+    shard  INTEGER NOT NULL,
+    moving BOOLEAN NOT NULL DEFAULT false
+);
+
+INSERT INTO customer_shard_bucket (bucket, shard)
+SELECT bucket, 0 FROM generate_series(0, 1023) AS bucket
+ON CONFLICT (bucket) DO NOTHING;
+
+-- Bucket of the customer holding each email, so email lookups and uniqueness checks go to one shard
+--changeset theraven:009-customer-email-index context:sharded
+CREATE TABLE IF NOT EXISTS customer_email_index
+(
+    email   VARCHAR(100) PRIMARY KEY,
+    bucket  INTEGER NOT NULL,
+    claimed BIGINT  NOT NULL
+);
+
+-- Node numbers of application instances, part of every customer ID they issue. An instance leases a free
+-- one at startup and keeps renewing it; a lease that runs out frees the number for another instance
+--changeset theraven:009-customer-id-node context:sharded
+CREATE TABLE IF NOT EXISTS customer_id_node
+(
+    node    INTEGER PRIMARY KEY,
+    holder  VARCHAR(36),
+    expires TIMESTAMPTZ NOT NULL DEFAULT '-infinity'
+);
+
+INSERT INTO customer_id_node (node)
+SELECT node FROM generate_series(0, 31) AS node
+ON CONFLICT (node) DO NOTHING;
@@ -0,0 +1,168 @@
+package com.example.theraven.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimitFilterTest {
+
+    private ConcurrencyLimitProperties properties;
+    private AdaptiveConcurrencyLimit reads;
+    private AdaptiveConcurrencyLimit writes;
+    private AdaptiveConcurrencyLimit bulk;
+
+    @BeforeEach
+    void setUp() {
+        //Given
+        properties = new ConcurrencyLimitProperties();
+        properties.setReads(new ConcurrencyLimitProperties.Budget(1, 1, 10, 50));
+        properties.setWrites(new ConcurrencyLimitProperties.Budget(4, 1, 10, 50));
+        reads = new AdaptiveConcurrencyLimit(properties.getReads(), 0.5);
+        writes = new AdaptiveConcurrencyLimit(properties.getWrites(), 0.5);
+        bulk = new AdaptiveConcurrencyLimit(new ConcurrencyLimitProperties.Budget(1, 1, 2, 50), 0.5);
+    }
+
+    @Test
+    public void givenReadBudgetInUse_whenRead_thenRejectWith503AndRetryAfter() throws Exception {
+        // given
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads, writes, bulk, new ClientRateLimiter(1000, 100), properties);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        FilterChain chain = (request, response) -> {
+            MockHttpServletResponse inner = new MockHttpServletResponse();
+            filter.doFilter(get("/api/customers/1"), inner, new MockFilterChain());
+            nested.set(inner);
+        };
+
+        // when
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(get("/api/customers/1"), outer, chain);
+
+        // then
+        assertEquals(200, outer.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("1", nested.get().getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, reads.getRejected());
+        assertEquals(0, reads.getInFlight());
+        assertEquals(0, writes.getRejected());
+    }
+
+    @Test
+    public void givenClientOverItsBurst_whenRequest_thenRejectWith429() throws Exception {
+        // given
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads, writes, bulk, new ClientRateLimiter(1, 2), properties);
+        MockHttpServletRequest other = get("/api/customers/1");
+        other.setRemoteAddr("10.0.0.2");
+
+        // when
+        int first = status(filter, get("/api/customers/1"));
+        int second = status(filter, get("/api/customers/1"));
+        MockHttpServletResponse third = new MockHttpServletResponse();
+        filter.doFilter(get("/api/customers/1"), third, new MockFilterChain());
+
+        // then
+        assertEquals(200, first);
+        assertEquals(200, second);
+        assertEquals(429, third.getStatus());
+        assertEquals("1", third.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(200, status(filter, other));
+    }
+
+    @Test
+    public void givenClientIdHeader_whenNotFromTrustedProxy_thenLimitByAddress() throws Exception {
+        // given
+        properties.setTrustedProxies(List.of("10.0.0.9"));
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads, writes, bulk, new ClientRateLimiter(1, 1), properties);
+
+        // when
+        int first = status(filter, withClientId(get("/api/customers/1"), "a"));
+        int rotated = status(filter, withClientId(get("/api/customers/1"), "b"));
+        MockHttpServletRequest proxied = withClientId(get("/api/customers/1"), "a");
+        proxied.setRemoteAddr("10.0.0.9");
+        MockHttpServletRequest proxiedOther = withClientId(get("/api/customers/1"), "b");
+        proxiedOther.setRemoteAddr("10.0.0.9");
+
+        // then
+        assertEquals(200, first);
+        assertEquals(429, rotated);
+        assertEquals(200, status(filter, proxied));
+        assertEquals(200, status(filter, proxiedOther));
+    }
+
+    @Test
+    public void givenBulkRequestInFlight_whenBulkAndSingleWrites_thenOnlyBulkRejected() throws Exception {
+        // given
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads, writes, bulk, new ClientRateLimiter(1000, 100), properties);
+        MockHttpServletResponse nestedBulk = new MockHttpServletResponse();
+        MockHttpServletResponse nestedWrite = new MockHttpServletResponse();
+        FilterChain chain = (request, response) -> {
+            filter.doFilter(post("/api/customers/import"), nestedBulk, new MockFilterChain());
+            filter.doFilter(post("/api/customers"), nestedWrite, new MockFilterChain());
+        };
+
+        // when
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(post("/api/customers/batch"), outer, chain);
+
+        // then
+        assertEquals(200, outer.getStatus());
+        assertEquals(503, nestedBulk.getStatus());
+        assertEquals(200, nestedWrite.getStatus());
+        assertEquals(1, bulk.getRejected());
+        assertEquals(0, writes.getRejected());
+        assertEquals(0, writes.getInFlight());
+    }
+
+    @Test
+    public void givenSlowRequests_whenReleased_thenCutLimitOncePerRound() throws Exception {
+        // given
+        long start = System.nanoTime();
+        assertTrue(writes.tryAcquire());
+        assertTrue(writes.tryAcquire());
+        Thread.sleep(60);
+
+        // when
+        writes.release(start);
+        writes.release(start);
+
+        // then
+        assertEquals(2, writes.getLimit());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writes.tryAcquire());
+            writes.release(System.nanoTime());
+        }
+        assertEquals(3, writes.getLimit());
+    }
+
+    private static int status(ConcurrencyLimitFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest withClientId(MockHttpServletRequest request, String client) {
+        request.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, client);
+        return request;
+    }
+
+    private static MockHttpServletRequest post(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+}
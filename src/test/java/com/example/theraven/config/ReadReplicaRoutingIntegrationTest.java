@@ -0,0 +1,145 @@
+package com.example.theraven.config;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.service.CustomerServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two independent databases stand in for a primary and its replica, so every row tells where it was read from.
+ */
+@SpringBootTest
+@Testcontainers
+public class ReadReplicaRoutingIntegrationTest {
+
+    private static final String REPLICA_ONLY_EMAIL = "replica.only@example.com";
+
+    @Container
+    private static final PostgreSQLContainer<?> primaryContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @Container
+    private static final PostgreSQLContainer<?> replicaContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @Autowired
+    private CustomerServiceImpl customerService;
+
+    @Autowired
+    private ReplicaRoutingDataSource readDataSource;
+
+    private static JdbcTemplate primary;
+    private static JdbcTemplate replica;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primaryContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", primaryContainer::getUsername);
+        registry.add("spring.datasource.password", primaryContainer::getPassword);
+        registry.add("theraven.datasource.replica.enabled", () -> true);
+        registry.add("theraven.datasource.replica.url", replicaContainer::getJdbcUrl);
+        registry.add("theraven.datasource.replica.username", replicaContainer::getUsername);
+        registry.add("theraven.datasource.replica.password", replicaContainer::getPassword);
+        registry.add("theraven.datasource.replica.lag-query", () -> "SELECT lag_ms FROM replica_lag");
+        registry.add("spring.cache.type", () -> "none");
+    }
+
+    @BeforeAll
+    static void createReplicaSchema() {
+        primary = jdbcTemplate(primaryContainer);
+        replica = jdbcTemplate(replicaContainer);
+        new ResourceDatabasePopulator(new ClassPathResource("db/changelog/changes/001-create-customer-table.sql"))
+                .execute(replica.getDataSource());
+        replica.execute("CREATE TABLE replica_lag (lag_ms BIGINT)");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        replica.update("INSERT INTO customer (created, updated, full_name, email, phone) VALUES (1, 1, 'Replica', ?, NULL)",
+                REPLICA_ONLY_EMAIL);
+    }
+
+    @BeforeEach
+    void setUp() {
+        replica.update("UPDATE replica_lag SET lag_ms = 0");
+        readDataSource.refreshReplicaStatus();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Test
+    public void givenHealthyReplica_whenReadOnlyTransaction_thenReadFromReplica() {
+        // when
+        List<String> emails = emails(customerService.getCustomersPage(null, 1000, null, null).getItems());
+
+        // then
+        Assertions.assertTrue(readDataSource.isReplicaAvailable());
+        Assertions.assertTrue(emails.contains(REPLICA_ONLY_EMAIL));
+    }
+
+    @Test
+    public void givenHealthyReplica_whenCreateCustomer_thenWriteToPrimary() {
+        // when
+        Customer created = customerService.createCustomer(
+                new Customer(null, null, null, "Primary", "primary.write@example.com", "+123456789", null));
+
+        // then
+        assertEquals(1, primary.queryForObject("SELECT count(*) FROM customer WHERE id = ?", Integer.class, created.getId()));
+        assertEquals(0, replica.queryForObject("SELECT count(*) FROM customer WHERE email = ?", Integer.class, created.getEmail()));
+    }
+
+    @Test
+    public void givenPinnedThread_whenReadOnlyTransaction_thenReadFromPrimary() {
+        // given
+        ReplicaRoutingDataSource.pinToPrimary();
+
+        // when
+        List<String> emails = emails(customerService.getCustomersPage(null, 1000, null, null).getItems());
+
+        // then
+        Assertions.assertFalse(emails.contains(REPLICA_ONLY_EMAIL));
+    }
+
+    @Test
+    public void givenLaggingReplica_whenReadOnlyTransaction_thenReadFromPrimary() {
+        // given
+        replica.update("UPDATE replica_lag SET lag_ms = 60000");
+        readDataSource.refreshReplicaStatus();
+
+        // when
+        List<String> emails = emails(customerService.getCustomersPage(null, 1000, null, null).getItems());
+
+        // then
+        Assertions.assertFalse(readDataSource.isReplicaAvailable());
+        assertEquals(60000, readDataSource.getLagMillis());
+        Assertions.assertFalse(emails.contains(REPLICA_ONLY_EMAIL));
+    }
+
+    private static List<String> emails(List<Customer> customers) {
+        return customers.stream().map(Customer::getEmail).toList();
+    }
+
+    private static JdbcTemplate jdbcTemplate(PostgreSQLContainer<?> container) {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                container.getJdbcUrl(), container.getUsername(), container.getPassword()));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.theraven.controller;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.service.interfaces.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reads and writes go through the real customer cache, so the ETag of a read reflects exactly the committed row.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+public class CustomerCacheIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgresContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+    }
+
+    @Test
+    public void givenCachedCustomer_whenPut_thenGetReturnsTheNewETag() throws Exception {
+        // given
+        Customer created = customerService.createCustomer(customer("etag.put@example.com", "Before Put"));
+        mockMvc.perform(get("/api/customers/{id}", created.getId())).andExpect(status().isOk());
+
+        // when
+        String eTag = mockMvc.perform(put("/api/customers/{id}", created.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullName\":\"After Put\",\"email\":\"etag.put@example.com\",\"phone\":\"+123456789\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // then
+        mockMvc.perform(get("/api/customers/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(jsonPath("$.fullName").value("After Put"));
+        mockMvc.perform(get("/api/customers/{id}", created.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void givenCachedCustomer_whenWriteRolledBack_thenGetReturnsTheCommittedRow() throws Exception {
+        // given
+        Customer created = customerService.createCustomer(customer("etag.rollback@example.com", "Committed"));
+        String eTag = mockMvc.perform(get("/api/customers/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            customerService.updateCustomer(created.getId(), customer("etag.rollback@example.com", "Rolled Back"), null);
+            status.setRollbackOnly();
+        });
+
+        // then
+        mockMvc.perform(get("/api/customers/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(jsonPath("$.fullName").value("Committed"));
+        mockMvc.perform(get("/api/customers/{id}", created.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void givenCachedCustomer_whenDelete_thenGetReturnsTheInactiveCustomer() throws Exception {
+        // given
+        Customer created = customerService.createCustomer(customer("etag.delete@example.com", "To Delete"));
+        String before = mockMvc.perform(get("/api/customers/{id}", created.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        String after = mockMvc.perform(delete("/api/customers/{id}", created.getId()).header(HttpHeaders.IF_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // then
+        mockMvc.perform(get("/api/customers/{id}", created.getId()))
+                .andExpect(header().string(HttpHeaders.ETAG, after))
+                .andExpect(jsonPath("$.isActive").value(false));
+    }
+
+    private static Customer customer(String email, String fullName) {
+        return new Customer(null, null, null, fullName, email, "+123456789", null);
+    }
+}
@@ -1,9 +1,30 @@
 package com.example.theraven.controller;
 
+import com.example.theraven.config.WireFormatConfig;
+import com.example.theraven.dto.ArchivedCustomerPage;
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerField;
+import com.example.theraven.dto.CustomerFieldsPage;
+import com.example.theraven.dto.CustomerImportJob;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
+import com.example.theraven.dto.CustomerStats;
+import com.example.theraven.dto.CustomerStatsDay;
+import com.example.theraven.entity.ArchivedCustomer;
 import com.example.theraven.entity.Customer;
+import com.example.theraven.exception.CustomerVersionMismatchException;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.exception.InvalidSearchException;
+import com.example.theraven.exception.InvalidStatsRangeException;
 import com.example.theraven.security.WebSecurityConfig;
+import com.example.theraven.service.CustomerArchiveService;
+import com.example.theraven.service.CustomerChangeFeed;
+import com.example.theraven.service.CustomerImportService;
 import com.example.theraven.service.CustomerServiceImpl;
+import com.example.theraven.service.CustomerStatsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,20 +32,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(CustomerController.class)
-@Import({WebSecurityConfig.class})
+@Import({WebSecurityConfig.class, WireFormatConfig.class})
 public class CustomerControllerIntegrationTest {
 
     @Autowired
@@ -33,6 +70,18 @@ public class CustomerControllerIntegrationTest {
     @MockBean
     private CustomerServiceImpl customerService;
 
+    @MockBean
+    private CustomerChangeFeed customerChangeFeed;
+
+    @MockBean
+    private CustomerImportService customerImportService;
+
+    @MockBean
+    private CustomerArchiveService customerArchiveService;
+
+    @MockBean
+    private CustomerStatsService customerStatsService;
+
     private Customer customer1;
     private Customer customer2;
     private List<Customer> customers;
@@ -46,34 +95,183 @@ public class CustomerControllerIntegrationTest {
     }
 
     @Test
-    @DisplayName("Get all customers should return JSON array")
-    public void givenCustomers_whenGetAllCustomers_thenReturnJsonArray() throws Exception {
+    @DisplayName("Get customers should return a JSON page")
+    public void givenCustomers_whenGetCustomers_thenReturnJsonPage() throws Exception {
         // when
-        when(customerService.getAllCustomers()).thenReturn(customers);
+        when(customerService.getCustomersPage(null, null, null, null)).thenReturn(new CustomerPage(customers, "Mg"));
         mockMvc.perform(get("/api/customers"))
 
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.next").value("Mg"))
+                .andExpect(jsonPath("$.items[0].id").value(customer1.getId()))
+                .andExpect(jsonPath("$.items[0].fullName").value(customer1.getFullName()))
+                .andExpect(jsonPath("$.items[0].email").value(customer1.getEmail()))
+                .andExpect(jsonPath("$.items[0].phone").value(customer1.getPhone()))
+                .andExpect(jsonPath("$.items[0].isActive").value(customer1.getIsActive()))
+                .andExpect(jsonPath("$.items[0].created").value(customer1.getCreated()))
+                .andExpect(jsonPath("$.items[0].updated").value(customer1.getUpdated()))
+                .andExpect(jsonPath("$.items[1].id").value(customer2.getId()))
+                .andExpect(jsonPath("$.items[1].fullName").value(customer2.getFullName()))
+                .andExpect(jsonPath("$.items[1].email").value(customer2.getEmail()))
+                .andExpect(jsonPath("$.items[1].phone").value(customer2.getPhone()))
+                .andExpect(jsonPath("$.items[1].isActive").value(customer2.getIsActive()))
+                .andExpect(jsonPath("$.items[1].created").value(customer2.getCreated()))
+                .andExpect(jsonPath("$.items[1].updated").value(customer2.getUpdated()));
+
+        verify(customerService).getCustomersPage(null, null, null, null);
+    }
+
+    @Test
+    @DisplayName("Get customers should pass cursor and filters to the service")
+    public void givenCursorAndFilters_whenGetCustomers_thenReturnLastPage() throws Exception {
+        // when
+        when(customerService.getCustomersPage("Mg", 10, true, 1620000000000L))
+                .thenReturn(new CustomerPage(List.of(customer2), null));
+        mockMvc.perform(get("/api/customers")
+                        .param("cursor", "Mg")
+                        .param("limit", "10")
+                        .param("isActive", "true")
+                        .param("updatedAfter", "1620000000000"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(customer2.getId()))
+                .andExpect(jsonPath("$.next").doesNotExist());
+
+        verify(customerService).getCustomersPage("Mg", 10, true, 1620000000000L);
+    }
+
+
+    @Test
+    @DisplayName("Get customers with fields should return only the selected fields")
+    public void givenFields_whenGetCustomers_thenReturnProjectedPage() throws Exception {
+        // given
+        Set<CustomerField> fields = EnumSet.of(CustomerField.ID, CustomerField.EMAIL);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", customer1.getId());
+        row.put("email", customer1.getEmail());
+
+        // when
+        when(customerService.getCustomerFieldsPage(fields, null, 10, null, null))
+                .thenReturn(new CustomerFieldsPage(List.of(row), "MQ"));
+        mockMvc.perform(get("/api/customers").param("fields", "email").param("limit", "10"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(customer1.getId()))
+                .andExpect(jsonPath("$.items[0].email").value(customer1.getEmail()))
+                .andExpect(jsonPath("$.items[0].fullName").doesNotExist())
+                .andExpect(jsonPath("$.next").value("MQ"));
+
+        verify(customerService).getCustomerFieldsPage(fields, null, 10, null, null);
+    }
+
+    @Test
+    @DisplayName("Get customers by IDs with an unknown field should return bad request")
+    public void givenUnknownField_whenGetCustomersByIds_thenReturnBadRequest() throws Exception {
+        // when
+        mockMvc.perform(get("/api/customers").param("ids", "1,2").param("fields", "email,password"))
+
+                // then
+                .andExpect(status().isBadRequest());
+
+        verify(customerService, never()).getCustomerFieldsByIds(any(), anyList());
+    }
+
+    @Test
+    @DisplayName("Search customers should pass criteria and cursor to the service")
+    public void givenCriteria_whenSearchCustomers_thenReturnJsonPage() throws Exception {
+        // when
+        when(customerService.searchCustomers(null, "john", "+38", "doe", "Mg", 10))
+                .thenReturn(new CustomerPage(List.of(customer1), "Mw"));
+        mockMvc.perform(get("/api/customers/search")
+                        .param("emailPrefix", "john")
+                        .param("phonePrefix", "+38")
+                        .param("name", "doe")
+                        .param("cursor", "Mg")
+                        .param("limit", "10"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(customer1.getId()))
+                .andExpect(jsonPath("$.next").value("Mw"));
+
+        verify(customerService).searchCustomers(null, "john", "+38", "doe", "Mg", 10);
+    }
+
+    @Test
+    @DisplayName("Search customers without criteria should return bad request")
+    public void givenNoCriteria_whenSearchCustomers_thenReturnBadRequest() throws Exception {
+        // given
+        when(customerService.searchCustomers(null, null, null, null, null, null))
+                .thenThrow(new InvalidSearchException("At least one criterion is required"));
+
+        // when
+        mockMvc.perform(get("/api/customers/search"))
+
+                // then
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Get customers by IDs should return JSON array")
+    public void givenIds_whenGetCustomersByIds_thenReturnJsonArray() throws Exception {
+        // when
+        when(customerService.getCustomersByIds(List.of(1L, 2L))).thenReturn(customers);
+        mockMvc.perform(get("/api/customers").param("ids", "1,2"))
+
                 // then
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].id").value(customer1.getId()))
-                .andExpect(jsonPath("$[0].fullName").value(customer1.getFullName()))
-                .andExpect(jsonPath("$[0].email").value(customer1.getEmail()))
-                .andExpect(jsonPath("$[0].phone").value(customer1.getPhone()))
-                .andExpect(jsonPath("$[0].isActive").value(customer1.getIsActive()))
-                .andExpect(jsonPath("$[0].created").value(customer1.getCreated()))
-                .andExpect(jsonPath("$[0].updated").value(customer1.getUpdated()))
-                .andExpect(jsonPath("$[1].id").value(customer2.getId()))
-                .andExpect(jsonPath("$[1].fullName").value(customer2.getFullName()))
-                .andExpect(jsonPath("$[1].email").value(customer2.getEmail()))
-                .andExpect(jsonPath("$[1].phone").value(customer2.getPhone()))
-                .andExpect(jsonPath("$[1].isActive").value(customer2.getIsActive()))
-                .andExpect(jsonPath("$[1].created").value(customer2.getCreated()))
-                .andExpect(jsonPath("$[1].updated").value(customer2.getUpdated()));
+                .andExpect(jsonPath("$[1].id").value(customer2.getId()));
 
-        verify(customerService).getAllCustomers();
+        verify(customerService).getCustomersByIds(List.of(1L, 2L));
     }
 
+    @Test
+    @DisplayName("Get customers by too many IDs should return bad request")
+    public void givenTooManyIds_whenGetCustomersByIds_thenReturnBadRequest() throws Exception {
+        // given
+        String ids = String.join(",", LongStream.rangeClosed(1, 1001).mapToObj(Long::toString).toList());
+
+        // when
+        mockMvc.perform(get("/api/customers").param("ids", ids))
+
+                // then
+                .andExpect(status().isBadRequest());
+
+        verify(customerService, never()).getCustomersByIds(anyList());
+    }
+
+    @Test
+    @DisplayName("Export customers should stream NDJSON")
+    public void givenCustomers_whenExportCustomers_thenReturnNdjson() throws Exception {
+        // given
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            for (Customer customer : customers) {
+                out.write((asJsonString(customer) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        }).when(customerService).exportCustomers(any(OutputStream.class));
+
+        // when
+        mockMvc.perform(get("/api/customers/export"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(asJsonString(customer1) + "\n" + asJsonString(customer2) + "\n"));
+
+        verify(customerService).exportCustomers(any(OutputStream.class));
+    }
 
     @Test
     @DisplayName("Get customer by ID should return JSON")
@@ -91,14 +289,76 @@ public class CustomerControllerIntegrationTest {
                 .andExpect(jsonPath("$.phone").value(customer1.getPhone()))
                 .andExpect(jsonPath("$.isActive").value(customer1.getIsActive()))
                 .andExpect(jsonPath("$.created").value(customer1.getCreated()))
-                .andExpect(jsonPath("$.updated").value(customer1.getUpdated()));
+                .andExpect(jsonPath("$.updated").value(customer1.getUpdated()))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-1620000000000\""));
+    }
+
+    @Test
+    @DisplayName("Get customer by ID with a current ETag should return not modified")
+    public void givenCurrentETag_whenGetCustomerById_thenReturnNotModified() throws Exception {
+        // when
+        when(customerService.getCustomerById(1L)).thenReturn(customer1);
+        mockMvc.perform(get("/api/customers/{id}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-1620000000000\""))
+
+                // then
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-1620000000000\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Update customer with If-Match should pass the expected version to the service")
+    public void givenIfMatch_whenUpdateCustomer_thenPassExpectedVersion() throws Exception {
+        // given
+        Customer updated = new Customer(1L, 1620000000000L, 1620000000001L, "John Doe", "john.doe@example.com", "+123456789", true);
+        when(customerService.updateCustomer(eq(1L), any(Customer.class), eq(1620000000000L))).thenReturn(updated);
+
+        // when
+        mockMvc.perform(put("/api/customers/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"1-1620000000000\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(customer1)))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-1620000000001\""));
+
+        verify(customerService).updateCustomer(eq(1L), any(Customer.class), eq(1620000000000L));
+    }
+
+    @Test
+    @DisplayName("Delete customer with a stale ETag should return precondition failed")
+    public void givenStaleETag_whenDeleteCustomer_thenReturnPreconditionFailed() throws Exception {
+        // given
+        when(customerService.deleteCustomer(1L, 1610000000000L)).thenThrow(new CustomerVersionMismatchException(1L));
+
+        // when
+        mockMvc.perform(delete("/api/customers/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"1-1610000000000\""))
+
+                // then
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("Delete customer with an ETag of another customer should not reach the service")
+    public void givenForeignETag_whenDeleteCustomer_thenReturnPreconditionFailed() throws Exception {
+        // when
+        mockMvc.perform(delete("/api/customers/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"2-1620000000000\""))
+
+                // then
+                .andExpect(status().isPreconditionFailed());
+
+        verify(customerService, never()).deleteCustomer(anyLong(), any());
     }
 
     @Test
     @DisplayName("Update customer should return JSON")
     public void givenCustomer_whenUpdateCustomer_thenReturnJson() throws Exception {
         // when
-        when(customerService.updateCustomer(anyLong(), any(Customer.class))).thenReturn(customer1);
+        when(customerService.updateCustomer(anyLong(), any(Customer.class), isNull())).thenReturn(customer1);
         mockMvc.perform(put("/api/customers/{id}", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(asJsonString(customer1)))
@@ -113,7 +373,42 @@ public class CustomerControllerIntegrationTest {
                 .andExpect(jsonPath("$.created").value(customer1.getCreated()))
                 .andExpect(jsonPath("$.updated").value(customer1.getUpdated()));
 
-        verify(customerService).updateCustomer(anyLong(), any(Customer.class));
+        verify(customerService).updateCustomer(anyLong(), any(Customer.class), isNull());
+    }
+
+    @Test
+    @DisplayName("Patch customer should return JSON")
+    public void givenPatch_whenPatchCustomer_thenReturnJson() throws Exception {
+        // given
+        CustomerPatch patch = new CustomerPatch(null, null, "+111222333");
+        when(customerService.patchCustomer(1L, patch, null)).thenReturn(customer1);
+
+        // when
+        mockMvc.perform(patch("/api/customers/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(patch)))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.id").value(customer1.getId()))
+                .andExpect(jsonPath("$.phone").value(customer1.getPhone()));
+
+        verify(customerService).patchCustomer(1L, patch, null);
+    }
+
+    @Test
+    @DisplayName("Patch customer with invalid phone should return bad request")
+    public void givenInvalidPatch_whenPatchCustomer_thenReturnBadRequest() throws Exception {
+        // when
+        mockMvc.perform(patch("/api/customers/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new CustomerPatch(null, null, "123"))))
+
+                // then
+                .andExpect(status().isBadRequest());
+
+        verify(customerService, never()).patchCustomer(anyLong(), any(CustomerPatch.class), any());
     }
 
     @Test
@@ -139,11 +434,69 @@ public class CustomerControllerIntegrationTest {
         verify(customerService).createCustomer(any(Customer.class));
     }
 
+    @Test
+    @DisplayName("Create customer with a taken email should return conflict")
+    public void givenTakenEmail_whenCreateCustomer_thenReturnConflict() throws Exception {
+        // given
+        when(customerService.createCustomer(any(Customer.class)))
+                .thenThrow(new DuplicateEmailException(customer1.getEmail()));
+
+        // when
+        mockMvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(customer1)))
+
+                // then
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("Email availability should return the service answer")
+    public void givenEmail_whenCheckEmailAvailable_thenReturnAvailability() throws Exception {
+        // given
+        when(customerService.isEmailAvailable("new@example.com")).thenReturn(true);
+
+        // when
+        mockMvc.perform(get("/api/customers/email-available").param("email", "new@example.com"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("new@example.com"))
+                .andExpect(jsonPath("$.available").value(true));
+
+        verify(customerService).isEmailAvailable("new@example.com");
+    }
+
+    @Test
+    @DisplayName("Bulk create customers should return per-item results")
+    public void givenCustomers_whenCreateCustomers_thenReturnPerItemResults() throws Exception {
+        // given
+        when(customerService.createCustomers(anyList())).thenReturn(List.of(
+                new CustomerBatchResult(0, CustomerBatchResult.Status.CREATED, 1L, List.of()),
+                new CustomerBatchResult(1, CustomerBatchResult.Status.DUPLICATE, null, List.of("email: already exists"))));
+
+        // when
+        mockMvc.perform(post("/api/customers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(customers)))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$[1].errors[0]").value("email: already exists"));
+
+        verify(customerService).createCustomers(anyList());
+    }
+
     @Test
     @DisplayName("Delete customer should return JSON")
     public void givenCustomer_whenDeleteCustomer_thenReturnJson() throws Exception {
         // given
-        when(customerService.deleteCustomer(anyLong())).thenReturn(customer1);
+        when(customerService.deleteCustomer(anyLong(), isNull())).thenReturn(customer1);
 
         // when
         mockMvc.perform(delete("/api/customers/{id}", 1L))
@@ -160,10 +513,150 @@ public class CustomerControllerIntegrationTest {
                 .andExpect(jsonPath("$.updated").value(customer1.getUpdated()));
 
         // Verify that the service method was called
-        verify(customerService).deleteCustomer(anyLong());
+        verify(customerService).deleteCustomer(anyLong(), isNull());
     }
 
     public static String asJsonString(Object obj) throws Exception {
         return new ObjectMapper().writeValueAsString(obj);
     }
+
+    @Test
+    @DisplayName("Get changes should resume the event stream after Last-Event-ID")
+    public void givenLastEventId_whenGetChanges_thenSubscribeAfterIt() throws Exception {
+        // when
+        when(customerChangeFeed.subscribe("42-7")).thenReturn(new SseEmitter());
+        mockMvc.perform(get("/api/customers/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "42-7"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+        verify(customerChangeFeed).subscribe("42-7");
+    }
+
+    @Test
+    @DisplayName("Import should queue a job and point to its progress")
+    public void givenCsvFile_whenImportCustomers_thenReturnAcceptedJob() throws Exception {
+        // given
+        MockMultipartFile file = new MockMultipartFile("file", "customers.csv", "text/csv",
+                "fullName,email\nJohn Doe,john.doe@example.com\n".getBytes(StandardCharsets.UTF_8));
+        CustomerImportJob job = new CustomerImportJob("job-1", "customers.csv", 10);
+
+        // when
+        when(customerImportService.startImport(any())).thenReturn(job);
+        mockMvc.perform(multipart("/api/customers/import").file(file))
+
+                // then
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/customers/import/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    @DisplayName("Unknown import job should return 404")
+    public void givenUnknownJob_whenGetImportJob_thenReturnNotFound() throws Exception {
+        // when
+        when(customerImportService.getJob("missing")).thenReturn(Optional.empty());
+        mockMvc.perform(get("/api/customers/import/missing"))
+
+                // then
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Get archive should return a page of archived customers")
+    public void givenArchivedCustomers_whenGetArchive_thenReturnPage() throws Exception {
+        // given
+        ArchivedCustomer archived = new ArchivedCustomer(3L, 1620000000000L, 1620000000000L, "Old Customer",
+                "old@example.com", "+111222333", false, 1630000000000L);
+
+        // when
+        when(customerArchiveService.getArchivedCustomersPage(null, 1))
+                .thenReturn(new ArchivedCustomerPage(List.of(archived), "Mw"));
+        mockMvc.perform(get("/api/customers/archive").param("limit", "1"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.items[0].isActive").value(false))
+                .andExpect(jsonPath("$.items[0].archived").value(1630000000000L))
+                .andExpect(jsonPath("$.next").value("Mw"));
+    }
+
+    @Test
+    @DisplayName("Get stats should return totals and per-day counts")
+    public void givenDateRange_whenGetStats_thenReturnCounts() throws Exception {
+        // given
+        LocalDate day = LocalDate.of(2026, 10, 1);
+        CustomerStats stats = new CustomerStats(3, 2, 1, List.of(new CustomerStatsDay(day, 2, 5)));
+
+        // when
+        when(customerStatsService.getStats(day, day)).thenReturn(stats);
+        mockMvc.perform(get("/api/customers/stats").param("from", "2026-10-01").param("to", "2026-10-01"))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.active").value(2))
+                .andExpect(jsonPath("$.inactive").value(1))
+                .andExpect(jsonPath("$.days[0].day").value("2026-10-01"))
+                .andExpect(jsonPath("$.days[0].created").value(2))
+                .andExpect(jsonPath("$.days[0].updated").value(5));
+    }
+
+    @Test
+    @DisplayName("Get stats with a reversed range should return 400")
+    public void givenReversedRange_whenGetStats_thenReturnBadRequest() throws Exception {
+        // when
+        when(customerStatsService.getStats(any(), any())).thenThrow(new InvalidStatsRangeException("from must not be after to"));
+        mockMvc.perform(get("/api/customers/stats").param("from", "2026-10-02").param("to", "2026-10-01"))
+
+                // then
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Get customers should return CBOR when the client accepts it")
+    public void givenAcceptCbor_whenGetCustomers_thenReturnCborPage() throws Exception {
+        // given
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+
+        // when
+        when(customerService.getCustomersPage(null, null, null, null)).thenReturn(new CustomerPage(customers, "Mg"));
+        byte[] body = mockMvc.perform(get("/api/customers").accept(cbor))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(cbor))
+                .andReturn().getResponse().getContentAsByteArray();
+        CustomerPage page = new CBORMapper().readValue(body, CustomerPage.class);
+        assertEquals(customers, page.getItems());
+        assertEquals("Mg", page.getNext());
+    }
+
+    @Test
+    @DisplayName("Create should accept a Smile body and answer in Smile")
+    public void givenSmileBody_whenCreateCustomer_thenReturnSmileCustomer() throws Exception {
+        // given
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        SmileMapper smileMapper = new SmileMapper();
+        Customer newCustomer = new Customer(null, null, null, "John Doe", "john.doe@example.com", "+123456789", null);
+
+        // when
+        when(customerService.createCustomer(any(Customer.class))).thenReturn(customer1);
+        byte[] body = mockMvc.perform(post("/api/customers")
+                        .contentType(smile)
+                        .accept(smile)
+                        .content(smileMapper.writeValueAsBytes(newCustomer)))
+
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(smile))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(customer1, smileMapper.readValue(body, Customer.class));
+        verify(customerService).createCustomer(newCustomer);
+    }
 }
@@ -0,0 +1,35 @@
+package com.example.theraven.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MaskingMessageConverterTest {
+
+    @Test
+    public void givenMessageWithEmailAndPhone_whenMask_thenPiiIsMasked() {
+        // when
+        String masked = MaskingMessageConverter.mask("Customer john.doe@example.com with phone +123456789 created");
+
+        // then
+        assertEquals("Customer j***@example.com with phone +***89 created", masked);
+    }
+
+    @Test
+    public void givenMessageWithoutPii_whenMask_thenMessageIsUnchanged() {
+        // when
+        String masked = MaskingMessageConverter.mask("Fetching customer by ID: 42");
+
+        // then
+        assertEquals("Fetching customer by ID: 42", masked);
+    }
+
+    @Test
+    public void givenObjectIdentity_whenMask_thenMessageIsUnchanged() {
+        // when
+        String masked = MaskingMessageConverter.mask("replica - Added connection org.postgresql.jdbc.PgConnection@6722e622");
+
+        // then
+        assertEquals("replica - Added connection org.postgresql.jdbc.PgConnection@6722e622", masked);
+    }
+}
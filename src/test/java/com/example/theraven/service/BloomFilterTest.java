@@ -0,0 +1,49 @@
+package com.example.theraven.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void givenAddedEmails_whenMightContain_thenNeverMissOne() {
+        // given
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        IntStream.range(0, 100_000).forEach(i -> filter.put("user" + i + "@example.com"));
+
+        // then
+        IntStream.range(0, 100_000).forEach(i -> assertTrue(filter.mightContain("user" + i + "@example.com")));
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void givenFilterAtCapacity_whenMightContainUnknownEmails_thenFalsePositiveRateNearTarget() {
+        // given
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        IntStream.range(0, 100_000).forEach(i -> filter.put("user" + i + "@example.com"));
+
+        // when
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("other" + i + "@example.com"))
+                .count();
+
+        // then
+        assertTrue(falsePositives < 1_500, "False positives: " + falsePositives);
+    }
+
+    @Test
+    public void givenMoreEmailsThanCapacity_whenPut_thenSaturated() {
+        // given
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+        // when
+        IntStream.range(0, 2_000).forEach(i -> filter.put("user" + i + "@example.com"));
+
+        // then
+        assertTrue(filter.isSaturated());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.theraven.service;
+
+import com.example.theraven.entity.ArchivedCustomer;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "theraven.customers.archive.enabled=false",
+        "theraven.customers.archive.retention-days=1",
+        "theraven.customers.archive.chunk-size=1",
+        "theraven.customers.archive.chunk-delay-ms=0"
+})
+@Testcontainers
+public class CustomerArchiveServiceIntegrationTest {
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Autowired
+    private CustomerArchiveService customerArchiveService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgresContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+    }
+
+    @Test
+    public void givenOldInactiveCustomers_whenArchive_thenMoveOnlyThem() {
+        // given
+        long now = System.currentTimeMillis();
+        long old = now - 40 * DAY_MILLIS;
+        Customer oldInactive = customerRepository.save(
+                new Customer(null, old, old, "Old Inactive", "old.inactive@example.com", "+123456789", false));
+        Customer olderInactive = customerRepository.save(
+                new Customer(null, old, old - 40 * DAY_MILLIS, "Older Inactive", "older.inactive@example.com", null, false));
+        Customer recentInactive = customerRepository.save(
+                new Customer(null, now, now, "Recent Inactive", "recent.inactive@example.com", null, false));
+        Customer oldActive = customerRepository.save(
+                new Customer(null, old, old, "Old Active", "old.active@example.com", null, true));
+
+        // when
+        long archived = customerArchiveService.archive();
+
+        // then
+        assertEquals(2, archived);
+        assertFalse(customerRepository.existsById(oldInactive.getId()));
+        assertFalse(customerRepository.existsById(olderInactive.getId()));
+        assertTrue(customerRepository.existsById(recentInactive.getId()));
+        assertTrue(customerRepository.existsById(oldActive.getId()));
+
+        ArchivedCustomer moved = customerArchiveService.getArchivedCustomer(oldInactive.getId());
+        assertEquals("old.inactive@example.com", moved.getEmail());
+        assertEquals(old, moved.getUpdated());
+        assertTrue(moved.getArchived() >= now);
+        assertEquals(2, customerArchiveService.getArchivedCustomersPage(null, 10).getItems().size());
+        assertEquals(0, customerArchiveService.archive());
+    }
+}
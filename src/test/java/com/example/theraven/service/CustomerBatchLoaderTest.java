@@ -0,0 +1,127 @@
+package com.example.theraven.service;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CustomerBatchLoaderTest {
+
+    private CustomerRepository customerRepository;
+    private CustomerBatchLoader customerBatchLoader;
+
+    private Customer customer1;
+    private Customer customer2;
+
+    @BeforeEach
+    void setUp() {
+        //Given
+        customer1 = new Customer(1L, 1620000000000L, 1620000000000L, "John Doe", "john.doe@example.com", "+123456789", true);
+        customer2 = new Customer(2L, 1620000000000L, 1620000000000L, "Jane Doe", "jane.doe@example.com", "+987654321", true);
+        customerRepository = mock(CustomerRepository.class);
+        when(customerRepository.findAllByIdIn(any(Long[].class))).thenAnswer(invocation -> {
+            List<Long> ids = Arrays.asList(invocation.getArgument(0, Long[].class));
+            return List.of(customer1, customer2).stream().filter(c -> ids.contains(c.getId())).toList();
+        });
+        customerBatchLoader = new CustomerBatchLoader(customerRepository, 50, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerBatchLoader.shutdown();
+    }
+
+    @Test
+    public void givenConcurrentLoadsOfSameId_whenLoad_thenShareOneFuture() {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerRepository.findAllByIdIn(any(Long[].class))).thenAnswer(invocation -> {
+            release.await();
+            return List.of(customer1);
+        });
+
+        // when
+        CompletableFuture<Optional<Customer>> first = customerBatchLoader.load(1L);
+        CompletableFuture<Optional<Customer>> second = customerBatchLoader.load(1L);
+        release.countDown();
+
+        // then
+        assertSame(first, second);
+        assertEquals(first.join(), Optional.of(customer1));
+        verify(customerRepository, times(1)).findAllByIdIn(any(Long[].class));
+    }
+
+    @Test
+    public void givenDistinctIdsWithinWindow_whenGetAll_thenLoadWithOneQuery() {
+        // when
+        List<Customer> actualCustomers = customerBatchLoader.getAll(List.of(2L, 3L, 1L, 2L));
+
+        // then
+        assertEquals(actualCustomers, List.of(customer2, customer1));
+        verify(customerRepository, times(1)).findAllByIdIn(any(Long[].class));
+    }
+
+    @Test
+    public void givenNoLookupInFlight_whenGet_thenLoadWithoutWaitingForWindow() {
+        // given
+        CustomerBatchLoader slowWindowLoader = new CustomerBatchLoader(customerRepository, 60_000, 100);
+
+        // when
+        Optional<Customer> actualCustomer = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> slowWindowLoader.get(1L));
+
+        // then
+        assertEquals(actualCustomer, Optional.of(customer1));
+        slowWindowLoader.shutdown();
+    }
+
+    @Test
+    public void givenLookupInFlight_whenGetOthers_thenLoadThemTogether() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerRepository.findAllByIdIn(any(Long[].class))).thenAnswer(invocation -> {
+            List<Long> ids = Arrays.asList(invocation.getArgument(0, Long[].class));
+            if (ids.contains(3L)) {
+                release.await();
+            }
+            return List.of(customer1, customer2).stream().filter(c -> ids.contains(c.getId())).toList();
+        });
+        CompletableFuture<Optional<Customer>> blocking = customerBatchLoader.load(3L);
+
+        // when
+        CompletableFuture<Optional<Customer>> first = customerBatchLoader.load(1L);
+        CompletableFuture<Optional<Customer>> second = customerBatchLoader.load(2L);
+        first.join();
+        second.join();
+        release.countDown();
+
+        // then
+        assertTrue(blocking.get().isEmpty());
+        verify(customerRepository, times(2)).findAllByIdIn(any(Long[].class));
+        verify(customerRepository).findAllByIdIn(new Long[]{1L, 2L});
+    }
+
+    @Test
+    public void givenUnknownId_whenGet_thenReturnEmpty() {
+        // when
+        Optional<Customer> actualCustomer = customerBatchLoader.get(3L);
+
+        // then
+        assertTrue(actualCustomer.isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.theraven.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CustomerIdGeneratorTest {
+
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+    private static final long EPOCH_SECONDS = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+
+    @Test
+    public void givenBurstOverOneSecondInOneBucket_whenNext_thenUniqueIncreasingAndNotAheadOfClock() {
+        // given
+        CustomerIdGenerator generator = generator(3);
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+
+        // when
+        for (int i = 0; i < 300; i++) {
+            long id = generator.next(42);
+
+            // then
+            assertTrue(id > previous, "ID " + id + " after " + previous);
+            assertTrue(ids.add(id));
+            assertTrue(EPOCH_SECONDS + (id >>> 22) <= Instant.now().getEpochSecond(), "ID " + id + " is ahead of the clock");
+            previous = id;
+        }
+    }
+
+    @Test
+    public void givenEmail_whenNext_thenIdCarriesEmailBucket() {
+        // given
+        CustomerIdGenerator generator = generator(31);
+
+        // then
+        IntStream.range(0, 1_000).mapToObj(i -> "user" + i + "@example.com").forEach(email -> {
+            long id = generator.next(email);
+            assertEquals(CustomerIdGenerator.bucketOf(email), CustomerIdGenerator.bucketOf(id));
+            assertTrue(id > 0 && id <= MAX_SAFE_INTEGER, "ID " + id + " is not safe in JavaScript");
+        });
+    }
+
+    @Test
+    public void givenManyEmails_whenBucketOf_thenSpreadOverAllBuckets() {
+        // when
+        int[] counts = new int[CustomerIdGenerator.BUCKETS];
+        IntStream.range(0, 1_024_000).forEach(i -> counts[CustomerIdGenerator.bucketOf("user" + i + "@example.com")]++);
+
+        // then
+        assertTrue(IntStream.of(counts).min().getAsInt() > 500);
+        assertTrue(IntStream.of(counts).max().getAsInt() < 1_500);
+    }
+
+    @Test
+    public void givenSerialIds_whenBucketOf_thenSpreadOverAllBuckets() {
+        // when
+        int[] counts = new int[CustomerIdGenerator.BUCKETS];
+        IntStream.rangeClosed(1, 2_048_000).forEach(id -> counts[CustomerIdGenerator.bucketOf((long) id)]++);
+
+        // then
+        IntStream.of(counts).forEach(count -> assertEquals(2_000, count));
+    }
+
+    private static CustomerIdGenerator generator(int node) {
+        CustomerIdNodeLease nodeLease = mock(CustomerIdNodeLease.class);
+        when(nodeLease.node()).thenReturn(node);
+        return new CustomerIdGenerator(null, new StaticListableBeanFactory(Map.of("customerIdNodeLease", nodeLease))
+                .getBeanProvider(CustomerIdNodeLease.class));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.theraven.service;
+
+import com.example.theraven.dto.CustomerImportError;
+import com.example.theraven.dto.CustomerImportJob;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "theraven.customers.import.chunk-size=2")
+@Testcontainers
+public class CustomerImportServiceIntegrationTest {
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgresContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+    }
+
+    @Test
+    public void givenCsvFile_whenImport_thenUpsertValidRowsAndReportInvalidOnes() throws Exception {
+        // given
+        Customer existing = customerRepository.save(
+                new Customer(null, 1L, 1L, "Old Name", "existing@example.com", "+123456789", true));
+        String csv = """
+                full_name,email,phone
+                New Customer,new@example.com,+111222333
+                "Doe, Jane",existing@example.com,
+                Bad Email,not-an-email,+111222333
+                Repeated,new@example.com,+444555666
+                X,short@example.com,12
+                """;
+        MockMultipartFile file = new MockMultipartFile("file", "customers.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        CustomerImportJob job = customerImportService.startImport(file);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        // then
+        assertEquals(CustomerImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRowsRead());
+        assertEquals(1, job.getRowsCreated());
+        assertEquals(2, job.getRowsUpdated());
+        assertEquals(2, job.getRowsRejected());
+        assertEquals(List.of(3L, 5L), job.getErrors().stream().map(CustomerImportError::getRow).toList());
+        assertTrue(job.getErrors().get(1).getErrors().stream().anyMatch(error -> error.startsWith("phone: ")));
+
+        Customer updated = customerRepository.findById(existing.getId()).orElseThrow();
+        assertEquals("Doe, Jane", updated.getFullName());
+        assertEquals(null, updated.getPhone());
+        assertTrue(updated.getUpdated() > existing.getUpdated());
+        assertEquals("+444555666", customerRepository.findAll().stream()
+                .filter(customer -> customer.getEmail().equals("new@example.com"))
+                .findFirst().orElseThrow().getPhone());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.theraven.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CustomerServiceImplTest {
+
+    @Test
+    public void givenManyRows_whenWriteNdjson_thenFlushFirstRowAndEveryFetchSize() throws IOException {
+        // given
+        FlushCountingOutputStream out = new FlushCountingOutputStream();
+
+        // when
+        long written = CustomerServiceImpl.writeNdjson(new ObjectMapper(),
+                IntStream.rangeClosed(1, 2_500).mapToObj(id -> Map.of("id", id)).iterator(), row -> {
+                }, out);
+
+        // then
+        assertEquals(2_500, written);
+        assertEquals(2_500, out.toString(StandardCharsets.UTF_8).lines().count());
+        // Rows 1, 1000 and 2000, then once more when the generator closes
+        assertEquals(4, out.flushes);
+    }
+
+    private static class FlushCountingOutputStream extends ByteArrayOutputStream {
+
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
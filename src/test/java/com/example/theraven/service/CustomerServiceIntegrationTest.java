@@ -1,12 +1,23 @@
 package com.example.theraven.service;
 
+import com.example.theraven.config.CacheConfig;
+import com.example.theraven.dto.CustomerBatchResult;
+import com.example.theraven.dto.CustomerChangePosition;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.dto.CustomerPatch;
 import com.example.theraven.entity.Customer;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.exception.CustomerVersionMismatchException;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.repository.CustomerChangeRepository;
 import com.example.theraven.repository.CustomerRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -34,6 +45,15 @@ public class CustomerServiceIntegrationTest {
     @Autowired
     private CustomerServiceImpl customerService;
 
+    @Autowired
+    private CustomerChangeRepository customerChangeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CustomerEmailFilter customerEmailFilter;
+
     @Container
     private static final PostgreSQLContainer<?> postgresContainer =
             new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
@@ -69,7 +89,41 @@ public class CustomerServiceIntegrationTest {
         assertEquals(actualCustomers.get(1), customers.get(1));
     }
 
+    @Test
+    public void givenCustomers_whenGetCustomersPage_thenReturnPagesInIdOrder() {
+        // given
+        customerRepository.save(customer1);
+        customerRepository.save(customer2);
+
+        // when
+        CustomerPage firstPage = customerService.getCustomersPage(null, 1, null, null);
+        CustomerPage secondPage = customerService.getCustomersPage(firstPage.getNext(), 1, null, null);
+
+        // then
+        assertEquals(firstPage.getItems().size(), 1);
+        Assertions.assertNotNull(firstPage.getNext());
+        assertEquals(secondPage.getItems().size(), 1);
+        Assertions.assertTrue(firstPage.getItems().get(0).getId() < secondPage.getItems().get(0).getId());
+    }
+
     // Test the getCustomerById method
+    @Test
+    public void givenCustomers_whenSearchByEmailPrefix_thenReturnPagesInEmailOrder() {
+        // given
+        customerRepository.save(customer1);
+        customerRepository.save(customer2);
+
+        // when
+        CustomerPage firstPage = customerService.searchCustomers(null, "j", null, "doe", null, 1);
+        CustomerPage secondPage = customerService.searchCustomers(null, "j", null, "doe", firstPage.getNext(), 1);
+
+        // then
+        assertEquals("jane.doe@example.com", firstPage.getItems().get(0).getEmail());
+        Assertions.assertNotNull(firstPage.getNext());
+        assertEquals("john.doe@example.com", secondPage.getItems().get(0).getEmail());
+        Assertions.assertNull(secondPage.getNext());
+    }
+
     @Test
     public void givenCustomer_whenGetCustomerById_thenReturnCustomer() {
         // given
@@ -83,6 +137,43 @@ public class CustomerServiceIntegrationTest {
         assertEquals(actualCustomer, customer1);
     }
 
+    @Test
+    public void givenCachedCustomer_whenUpdateCustomer_thenGetReturnsUpdatedCustomer() {
+        // given
+        Customer created = customerService.createCustomer(
+                new Customer(null, null, null, "Cached", "cached@example.com", "+123456789", null));
+        customerService.getCustomerById(created.getId());
+        Customer details = new Customer(null, null, null, "Cached New", "cached.new@example.com", "+123456789", null);
+
+        // when
+        customerService.updateCustomer(created.getId(), details, null);
+        Customer actualCustomer = customerService.getCustomerById(created.getId());
+
+        // then
+        assertEquals(actualCustomer.getFullName(), details.getFullName());
+        assertEquals(actualCustomer.getEmail(), details.getEmail());
+    }
+
+    @Test
+    public void givenOneCachedCustomer_whenGetCustomersByIds_thenServeItFromCacheAndCacheTheOther() {
+        // given
+        Customer cached = customerService.createCustomer(
+                new Customer(null, null, null, "Multi Cached", "multi.cached@example.com", "+123456789", null));
+        Customer uncached = customerService.createCustomer(
+                new Customer(null, null, null, "Multi Uncached", "multi.uncached@example.com", "+123456789", null));
+        Cache cache = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        cache.evict(uncached.getId());
+        cache.put(cached.getId(), new Customer(cached.getId(), cached.getCreated(), cached.getUpdated(), "From Cache",
+                cached.getEmail(), cached.getPhone(), true));
+
+        // when
+        List<Customer> actualCustomers = customerService.getCustomersByIds(List.of(uncached.getId(), cached.getId()));
+
+        // then
+        assertEquals(List.of("Multi Uncached", "From Cache"), actualCustomers.stream().map(Customer::getFullName).toList());
+        assertEquals("Multi Uncached", cache.get(uncached.getId(), Customer.class).getFullName());
+    }
+
     @Test
     public void givenCustomer_whenCreateCustomer_thenReturnCustomer() {
         // given
@@ -95,6 +186,46 @@ public class CustomerServiceIntegrationTest {
         assertEquals(actualCustomer, customer1);
     }
 
+    @Test
+    public void givenMixedCustomers_whenCreateCustomers_thenReturnPerItemResults() {
+        // given
+        Customer valid = new Customer(null, null, null, "Bulk One", "bulk.one@example.com", "+123456789", null);
+        Customer invalid = new Customer(null, null, null, "B", "not-an-email", "123", null);
+        Customer duplicate = new Customer(null, null, null, "Bulk Two", "bulk.one@example.com", "+123456789", null);
+
+        // when
+        List<CustomerBatchResult> results = customerService.createCustomers(List.of(valid, invalid, duplicate));
+
+        // then
+        assertEquals(results.size(), 3);
+        assertEquals(results.get(0).getStatus(), CustomerBatchResult.Status.CREATED);
+        Assertions.assertNotNull(results.get(0).getId());
+        assertEquals(results.get(1).getStatus(), CustomerBatchResult.Status.INVALID);
+        assertEquals(results.get(2).getStatus(), CustomerBatchResult.Status.DUPLICATE);
+        Assertions.assertTrue(customerRepository.existsById(results.get(0).getId()));
+    }
+
+    @Test
+    public void givenEmailStoredBehindTheFilter_whenCreate_thenDuplicateInsteadOfConstraintFailure() throws InterruptedException {
+        // given
+        awaitEmailFilter();
+        // Saved directly: neither added to the filter nor recorded in the outbox it follows
+        customerRepository.save(new Customer(null, 1620000000000L, 1620000000000L, "Unseen", "unseen@example.com",
+                "+123456789", true));
+        Customer single = new Customer(null, null, null, "Unseen Again", "unseen@example.com", "+123456789", null);
+        Customer fresh = new Customer(null, null, null, "Seen Now", "seen.now@example.com", "+123456789", null);
+        Customer duplicate = new Customer(null, null, null, "Unseen Bulk", "unseen@example.com", "+123456789", null);
+
+        // when
+        Assertions.assertThrows(DuplicateEmailException.class, () -> customerService.createCustomer(single));
+        List<CustomerBatchResult> results = customerService.createCustomers(List.of(fresh, duplicate));
+
+        // then
+        assertEquals(results.get(0).getStatus(), CustomerBatchResult.Status.CREATED);
+        assertEquals(results.get(1).getStatus(), CustomerBatchResult.Status.DUPLICATE);
+        Assertions.assertTrue(customerRepository.existsById(results.get(0).getId()));
+    }
+
     // Test the updateCustomer method
     @Test
     public void givenCustomer_whenUpdateCustomer_thenReturnCustomer() {
@@ -102,7 +233,7 @@ public class CustomerServiceIntegrationTest {
         customerRepository.save(customer1);
         Customer updatedCustomer = new Customer(1L, 1620000000000L, 1706100456024L, "New", "new@example.com", "+123456789", true);
         // when
-        Customer actualCustomer = customerService.updateCustomer(1L, updatedCustomer);
+        Customer actualCustomer = customerService.updateCustomer(1L, updatedCustomer, null);
 
         // then
         Assertions.assertNotNull(actualCustomer);
@@ -113,13 +244,29 @@ public class CustomerServiceIntegrationTest {
         assertNotEquals(actualCustomer.getEmail(), customer1.getEmail());
     }
 
+    @Test
+    public void givenCustomer_whenPatchCustomer_thenOnlySuppliedFieldsChange() {
+        // given
+        Customer created = customerService.createCustomer(
+                new Customer(null, null, null, "Patched", "patched@example.com", "+123456789", null));
+
+        // when
+        Customer actualCustomer = customerService.patchCustomer(created.getId(), new CustomerPatch(null, null, "+111222333"), null);
+
+        // then
+        assertEquals(actualCustomer.getPhone(), "+111222333");
+        assertEquals(actualCustomer.getFullName(), created.getFullName());
+        assertEquals(actualCustomer.getEmail(), created.getEmail());
+        Assertions.assertTrue(actualCustomer.getUpdated() >= created.getUpdated());
+    }
+
     // Test the deleteCustomer method
     @Test
     public void givenCustomer_whenDeleteCustomer_thenReturnCustomer() {
         // given
         customerRepository.save(customer1);
         // when
-        Customer actualCustomer = customerService.deleteCustomer(1L);
+        Customer actualCustomer = customerService.deleteCustomer(1L, null);
 
         // then
         Assertions.assertNotNull(actualCustomer);
@@ -129,4 +276,67 @@ public class CustomerServiceIntegrationTest {
         assertNotEquals(actualCustomer.getIsActive(), customer1.getIsActive());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenDeletedCustomer_whenDeleteAgain_thenUnchangedAndNoChangeRecorded() {
+        // given
+        Customer created = customerService.createCustomer(
+                new Customer(null, null, null, "Deleted Twice", "deleted.twice@example.com", "+123456789", null));
+        Customer deleted = customerService.deleteCustomer(created.getId(), null);
+        CustomerChangePosition afterDelete = CustomerChangePosition.before(customerChangeRepository.currentSnapshotXmin());
+
+        // when
+        Customer deletedAgain = customerService.deleteCustomer(created.getId(), null);
+
+        // then
+        Assertions.assertFalse(deletedAgain.getIsActive());
+        assertEquals(deleted.getUpdated(), deletedAgain.getUpdated());
+        Assertions.assertTrue(customerChangeRepository.findAfter(afterDelete.txId(), afterDelete.id(), 10).isEmpty());
+        Assertions.assertThrows(CustomerVersionMismatchException.class,
+                () -> customerService.deleteCustomer(created.getId(), created.getUpdated()));
+    }
+
+    @Test
+    public void givenStaleVersion_whenUpdateCustomer_thenThrowVersionMismatch() {
+        // given
+        Customer created = customerService.createCustomer(
+                new Customer(null, null, null, "Versioned", "versioned@example.com", "+123456789", null));
+        Customer current = customerService.patchCustomer(created.getId(), new CustomerPatch("Renamed", null, null),
+                created.getUpdated());
+
+        // when / then
+        Assertions.assertTrue(current.getUpdated() > created.getUpdated());
+        Assertions.assertThrows(CustomerVersionMismatchException.class,
+                () -> customerService.deleteCustomer(created.getId(), created.getUpdated()));
+        Assertions.assertFalse(customerService.deleteCustomer(created.getId(), current.getUpdated()).getIsActive());
+    }
+
+    @Test
+    public void givenWrites_whenReadingChangesAfterPosition_thenReturnThemInCommitOrder() {
+        // given
+        CustomerChangePosition start = CustomerChangePosition.before(customerChangeRepository.currentSnapshotXmin());
+        Customer created = customerService.createCustomer(
+                new Customer(null, null, null, "Tracked", "tracked@example.com", "+123456789", null));
+        customerService.patchCustomer(created.getId(), new CustomerPatch("Renamed", null, null), null);
+        customerService.deleteCustomer(created.getId(), null);
+
+        // when
+        List<CustomerChange> changes = customerChangeRepository.findAfter(start.txId(), start.id(), 10);
+        CustomerChangePosition second = CustomerChangePosition.of(changes.get(1));
+
+        // then
+        assertEquals(List.of(CustomerChange.Type.CREATED, CustomerChange.Type.UPDATED, CustomerChange.Type.DELETED),
+                changes.stream().map(CustomerChange::getType).toList());
+        Assertions.assertTrue(changes.stream().allMatch(change -> created.getId().equals(change.getCustomerId())));
+        Assertions.assertTrue(changes.get(1).getPayload().contains("\"fullName\":\"Renamed\""));
+        assertEquals(List.of(changes.get(2)), customerChangeRepository.findAfter(second.txId(), second.id(), 10));
+    }
+
+    private void awaitEmailFilter() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!customerEmailFilter.isReady()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Email filter not built");
+            Thread.sleep(50);
+        }
+    }
+}
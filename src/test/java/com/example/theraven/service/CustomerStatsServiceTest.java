@@ -0,0 +1,89 @@
+package com.example.theraven.service;
+
+import com.example.theraven.dto.CustomerStats;
+import com.example.theraven.dto.CustomerStatsDay;
+import com.example.theraven.exception.InvalidStatsRangeException;
+import com.example.theraven.repository.CustomerStatsRepository;
+import com.example.theraven.repository.CustomerStatsRepository.DayCounts;
+import com.example.theraven.repository.CustomerStatsRepository.Snapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static com.example.theraven.repository.CustomerStatsRepository.DAY_MILLIS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CustomerStatsServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 1);
+    private static final long DAY_START = DAY.toEpochDay() * DAY_MILLIS;
+
+    private CustomerStatsRepository customerStatsRepository;
+    private CustomerStatsService customerStatsService;
+
+    @BeforeEach
+    void setUp() {
+        //Given
+        customerStatsRepository = mock(CustomerStatsRepository.class);
+        NavigableMap<Long, DayCounts> days = new TreeMap<>();
+        days.put(DAY.toEpochDay(), new DayCounts(3, 1));
+        when(customerStatsRepository.load()).thenReturn(new Snapshot(10, 2, days));
+        customerStatsService = new CustomerStatsService(customerStatsRepository, 1000, 60, 168, 30, 366);
+    }
+
+    @Test
+    public void givenUnflushedWrites_whenGetStats_thenAddThemToSummary() {
+        // given
+        customerStatsService.recordCreated(DAY_START + 1000, 2);
+        customerStatsService.recordUpdated(DAY_START + 2000, 1);
+        customerStatsService.recordDeleted(DAY_START + 3000);
+
+        // when
+        CustomerStats stats = customerStatsService.getStats(DAY.minusDays(1), DAY);
+
+        // then
+        assertEquals(14, stats.getTotal());
+        assertEquals(11, stats.getActive());
+        assertEquals(3, stats.getInactive());
+        assertEquals(new CustomerStatsDay(DAY.minusDays(1), 0, 0), stats.getDays().get(0));
+        assertEquals(new CustomerStatsDay(DAY, 5, 3), stats.getDays().get(1));
+        verify(customerStatsRepository, times(1)).load();
+    }
+
+    @Test
+    public void givenRecordedWrites_whenShutdown_thenFlushTheirDeltas() {
+        // given
+        customerStatsService.recordCreated(DAY_START, 2);
+        customerStatsService.recordArchived(5);
+
+        // when
+        customerStatsService.shutdown();
+
+        // then
+        NavigableMap<Long, DayCounts> expected = new TreeMap<>();
+        expected.put(DAY.toEpochDay(), new DayCounts(2, 0));
+        verify(customerStatsRepository).add(eq(2L), eq(-5L), eq(expected));
+        // The flushed deltas are part of the reloaded summary now and are not counted twice
+        CustomerStats stats = customerStatsService.getStats(DAY, DAY);
+        assertEquals(10, stats.getActive());
+        assertEquals(3, stats.getDays().get(0).getCreated());
+    }
+
+    @Test
+    public void givenTooLongRange_whenGetStats_thenThrowInvalidStatsRange() {
+        // when, then
+        assertThrows(InvalidStatsRangeException.class,
+                () -> customerStatsService.getStats(DAY.minusDays(366), DAY));
+        assertThrows(InvalidStatsRangeException.class,
+                () -> customerStatsService.getStats(DAY, DAY.minusDays(1)));
+        verify(customerStatsRepository, never()).add(anyLong(), anyLong(), any());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.theraven.service;
+
+import com.example.theraven.entity.Customer;
+import com.example.theraven.entity.CustomerChange;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.repository.ReactiveCustomerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReactiveCustomerServiceImplTest {
+
+    private ReactiveCustomerRepository customerRepository;
+    private ReactiveCustomerServiceImpl customerService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        customerRepository = mock(ReactiveCustomerRepository.class);
+        TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        customerService = new ReactiveCustomerServiceImpl(customerRepository, transactionalOperator,
+                mock(CustomerValidator.class), new ObjectMapper());
+    }
+
+    @Test
+    public void givenNewCustomer_whenCreateCustomer_thenChangeRecorded() {
+        // given
+        when(customerRepository.insert(any(Customer.class))).thenAnswer(invocation -> {
+            Customer customer = invocation.getArgument(0);
+            customer.setId(7L);
+            return Mono.just(customer);
+        });
+        when(customerRepository.insertChanges(any(), any(), any(), anyLong())).thenReturn(Mono.empty());
+
+        // when
+        Customer created = customerService.createCustomer(customer()).block();
+
+        // then
+        ArgumentCaptor<String[]> payloads = ArgumentCaptor.forClass(String[].class);
+        verify(customerRepository).insertChanges(eq(CustomerChange.Type.CREATED), aryEq(new Long[]{7L}),
+                payloads.capture(), anyLong());
+        assertEquals(7L, created.getId());
+        assertTrue(payloads.getValue()[0].contains("\"email\":\"reactive@example.com\""));
+    }
+
+    @Test
+    public void givenTakenEmail_whenCreateCustomer_thenDuplicateEmail() {
+        // given
+        when(customerRepository.insert(any(Customer.class))).thenReturn(Mono.error(violation("customer_email_key")));
+
+        // when / then
+        assertThrows(DuplicateEmailException.class, () -> customerService.createCustomer(customer()).block());
+    }
+
+    @Test
+    public void givenOtherViolation_whenCreateCustomer_thenNotDuplicateEmail() {
+        // given
+        DataIntegrityViolationException violation = violation("customer_pkey");
+        when(customerRepository.insert(any(Customer.class))).thenReturn(Mono.error(violation));
+
+        // when / then
+        assertEquals(violation, assertThrows(DataIntegrityViolationException.class,
+                () -> customerService.createCustomer(customer()).block()));
+    }
+
+    private static DataIntegrityViolationException violation(String constraint) {
+        String message = "duplicate key value violates unique constraint \"" + constraint + "\"";
+        return new DataIntegrityViolationException(message, new R2dbcDataIntegrityViolationException(message));
+    }
+
+    private static Customer customer() {
+        return new Customer(null, null, null, "Reactive Customer", "reactive@example.com", "+123456789", null);
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.theraven.service;
+
+import com.example.theraven.config.ShardRoutingDataSource;
+import com.example.theraven.config.ShardingProperties;
+import com.example.theraven.dto.CustomerPage;
+import com.example.theraven.entity.Customer;
+import com.example.theraven.exception.DuplicateEmailException;
+import com.example.theraven.repository.CustomerShardDirectoryRepository;
+import com.example.theraven.service.interfaces.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Three databases hold the customers; the buckets start out spread round-robin over them.
+ */
+@SpringBootTest
+@Testcontainers
+public class ShardedCustomerServiceIntegrationTest {
+
+    private static final int SHARDS = 3;
+
+    @Container
+    private static final PostgreSQLContainer<?> shard0Container =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @Container
+    private static final PostgreSQLContainer<?> shard1Container =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @Container
+    private static final PostgreSQLContainer<?> shard2Container =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:16-alpine"));
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerShardDirectory customerShardDirectory;
+
+    @Autowired
+    private CustomerShardDirectoryRepository customerShardDirectoryRepository;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private CustomerEmailFilter customerEmailFilter;
+
+    @Autowired
+    private CustomerIdNodeLease customerIdNodeLease;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", shard0Container::getJdbcUrl);
+        registry.add("spring.datasource.username", shard0Container::getUsername);
+        registry.add("spring.datasource.password", shard0Container::getPassword);
+        registry.add("theraven.sharding.enabled", () -> true);
+        registry.add("spring.liquibase.contexts", () -> "default,sharded");
+        registry.add("theraven.sharding.shards[0].url", shard1Container::getJdbcUrl);
+        registry.add("theraven.sharding.shards[0].username", shard1Container::getUsername);
+        registry.add("theraven.sharding.shards[0].password", shard1Container::getPassword);
+        registry.add("theraven.sharding.shards[1].url", shard2Container::getJdbcUrl);
+        registry.add("theraven.sharding.shards[1].username", shard2Container::getUsername);
+        registry.add("theraven.sharding.shards[1].password", shard2Container::getPassword);
+        registry.add("theraven.sharding.rebalance.grace-ms", () -> 0);
+        registry.add("theraven.customers.archive.enabled", () -> false);
+        registry.add("theraven.customers.stats.reconcile-interval-minutes", () -> 0);
+        registry.add("spring.cache.type", () -> "none");
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shard(shard).update("DELETE FROM customer");
+        }
+        shard(0).update("DELETE FROM customer_email_index");
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int owner = shard;
+            customerShardDirectoryRepository.assign(IntStream.range(0, CustomerIdGenerator.BUCKETS)
+                    .filter(bucket -> bucket % SHARDS == owner).boxed().toList(), shard);
+        }
+        customerShardDirectory.refresh();
+    }
+
+    @Test
+    public void givenSpreadBuckets_whenCreateCustomers_thenEachStoredOnlyOnItsShard() {
+        // when
+        List<Customer> created = create(30);
+
+        // then
+        for (Customer customer : created) {
+            int owner = customerShardDirectory.shardOf(customer.getId());
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == owner ? 1 : 0, shard(shard).queryForObject(
+                        "SELECT count(*) FROM customer WHERE id = ?", Integer.class, customer.getId()));
+            }
+            assertEquals(customer.getEmail(), customerService.getCustomerById(customer.getId()).getEmail());
+        }
+        Assertions.assertTrue(created.stream().map(customer -> customerShardDirectory.shardOf(customer.getId()))
+                .distinct().count() > 1);
+    }
+
+    @Test
+    public void givenCustomersOnEveryShard_whenPageThrough_thenEveryCustomerOnceInIdOrder() {
+        // given
+        List<Long> ids = create(25).stream().map(Customer::getId).sorted().toList();
+
+        // when
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CustomerPage page = customerService.getCustomersPage(cursor, 10, null, null);
+            page.getItems().forEach(customer -> paged.add(customer.getId()));
+            cursor = page.getNext();
+        } while (cursor != null);
+
+        // then
+        assertEquals(ids, paged);
+    }
+
+    @Test
+    public void givenEmailOnAnotherShard_whenUpdateToIt_thenDuplicateEmail() {
+        // given
+        Customer first = customerService.createCustomer(customer(emailOnShard(0)));
+        Customer second = customerService.createCustomer(customer(emailOnShard(1)));
+
+        // when
+        Customer update = customer(first.getEmail());
+
+        // then
+        Assertions.assertFalse(customerService.isEmailAvailable(first.getEmail()));
+        assertThrows(DuplicateEmailException.class, () -> customerService.updateCustomer(second.getId(), update, null));
+        assertThrows(DuplicateEmailException.class, () -> customerService.createCustomer(customer(first.getEmail())));
+    }
+
+    @Test
+    public void givenSharded_whenCheckUnknownEmail_thenFilterDefersToDatabase() {
+        // when
+        boolean mightExist = customerEmailFilter.mightExist("unknown@example.com");
+
+        // then
+        Assertions.assertFalse(customerEmailFilter.isReady());
+        Assertions.assertTrue(mightExist);
+    }
+
+    @Test
+    public void givenLeasedNode_whenAnotherInstanceLeases_thenGetsAnotherNode() {
+        // given
+        int node = customerIdNodeLease.node();
+
+        // when
+        boolean sameNode = customerShardDirectoryRepository.leaseNode(node, "other-instance", 60_000);
+        int otherNode = customerShardDirectoryRepository.leaseAnyNode("other-instance", 60_000).orElseThrow();
+        customerShardDirectoryRepository.releaseNode(otherNode, "other-instance");
+
+        // then
+        Assertions.assertFalse(sameNode);
+        Assertions.assertNotEquals(node, otherNode);
+    }
+
+    @Test
+    public void givenCustomerOnAnotherShard_whenSearchByEmail_thenFound() {
+        // given
+        Customer created = customerService.createCustomer(customer(emailOnShard(2)));
+
+        // when
+        List<Customer> found = customerService.searchCustomers(created.getEmail(), null, null, null, null, null).getItems();
+
+        // then
+        assertEquals(List.of(created.getId()), found.stream().map(Customer::getId).toList());
+    }
+
+    @Test
+    public void givenCustomersOnEveryShard_whenExport_thenEveryCustomerOnceInIdOrder() throws IOException {
+        // given
+        List<Long> ids = create(40).stream().map(Customer::getId).sorted().toList();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        customerService.exportCustomers(out);
+
+        // then
+        List<Long> exported = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            exported.add(objectMapper.readValue(line, Customer.class).getId());
+        }
+        assertEquals(ids, exported);
+    }
+
+    @Test
+    public void givenAllBucketsOnShardZero_whenRebalance_thenSpreadEvenlyAndStillFound() {
+        // given
+        customerShardDirectoryRepository.assign(IntStream.range(0, CustomerIdGenerator.BUCKETS).boxed().toList(), 0);
+        customerShardDirectory.refresh();
+        List<Customer> created = create(60);
+        shard(0).update("DELETE FROM customer_email_index");
+
+        // when
+        new CustomerShardRebalancer(customerShardDirectoryRepository, shardRoutingDataSource, shardingProperties)
+                .rebalance();
+        customerShardDirectory.refresh();
+
+        // then
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int count = shard(0).queryForObject("SELECT count(*) FROM customer_shard_bucket WHERE shard = ?",
+                    Integer.class, shard);
+            Assertions.assertTrue(count == 341 || count == 342, "Shard " + shard + " has " + count + " buckets");
+        }
+        int stored = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            stored += shard(shard).queryForObject("SELECT count(*) FROM customer", Integer.class);
+        }
+        assertEquals(created.size(), stored);
+        for (Customer customer : created) {
+            assertEquals(customer.getEmail(), customerService.getCustomerById(customer.getId()).getEmail());
+            Assertions.assertFalse(customerService.isEmailAvailable(customer.getEmail()));
+        }
+    }
+
+    private List<Customer> create(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> customerService.createCustomer(customer("customer" + i + "@example.com")))
+                .toList();
+    }
+
+    private String emailOnShard(int shard) {
+        return IntStream.iterate(0, i -> i + 1)
+                .mapToObj(i -> "shard" + shard + "." + i + "@example.com")
+                .filter(email -> customerShardDirectory.shardOfBucket(CustomerIdGenerator.bucketOf(email)) == shard)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Customer customer(String email) {
+        return new Customer(null, null, null, "Sharded Customer", email, "+123456789", null);
+    }
+
+    private JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(shardRoutingDataSource.getShard(shard));
+    }
+}